@@ -0,0 +1,502 @@
+
+
+/*
+ * Copyright (c) 2013, Erika Nana
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Project 1 nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY Erika Nana ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL Erika Nana BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A skip list of strings with no object per key.  The keys live as UTF-8
+ * in a KeyArena outside the heap, and the nodes are rows of a few parallel
+ * primitive arrays: the key handle, the tower height, and where the
+ * node's forward pointers start in one shared int array of links.  The
+ * garbage collector sees a handful of large arrays however many keys the
+ * list holds.
+ *
+ * Node 0 is the head, so a link of 0 means there is no next node.  Rows
+ * freed by delete are reused by later inserts of the same height.
+ *
+ * Searches encode the key they look for once, into a buffer the list
+ * reuses, and compare it with the keys in the arena where they lie, so keys
+ * are in code point order and a lookup makes no objects.  They return keys
+ * rather than nodes: search hands back the caller's own String, which is
+ * byte for byte the key it found, and only successor, predecessor, minimum
+ * and maximum decode a new one.
+ *
+ * @author Erika Nana
+ */
+public class ArenaSkipList implements DynamicSet<String> {
+	
+	/** The most levels a tower may have. */
+	public static final int MAX_LEVEL = 32;
+	
+	/** The head, and the link meaning there is no next node. */
+	private static final int HEAD = 0;
+	
+	/** Holds the bytes of the keys. */
+	private final KeyArena arena;
+	
+	/** The handle of each node's key. */
+	private long[] keys;
+	
+	/** Where each node's links start in links. */
+	private int[] base;
+	
+	/** The height of each node. */
+	private byte[] heights;
+	
+	/** The forward pointers of every node, level 0 first. */
+	private int[] links;
+	
+	/** The number of node rows handed out, including the head and freed rows. */
+	private int nodeCount;
+	
+	/** The number of links handed out. */
+	private int linkCount;
+	
+	/** The first freed node of each height; freed nodes chain through their level-0 link. */
+	private final int[] free = new int[MAX_LEVEL + 1];
+	
+	/** The number of levels currently in use. */
+	private int levels = 1;
+	
+	/** The number of keys in the list. */
+	private int size = 0;
+	
+	/** Scratch array for the last node before the key on each level. */
+	private final int[] update = new int[MAX_LEVEL];
+	
+	/** Scratch buffer a key is encoded into to look for it, or decoded through. */
+	private byte[] scratch = new byte[64];
+	
+	/**
+	 * Instantiates a new arena skip list with its own arena.
+	 */
+	public ArenaSkipList() {
+		this(new KeyArena());
+	}
+	
+	/**
+	 * Instantiates a new arena skip list.
+	 *
+	 * @param arena The arena to store the keys in; bulkLoad clears it
+	 */
+	public ArenaSkipList(KeyArena arena) {
+		this.arena = arena;
+		reset(16);
+	}
+	
+	/**
+	 * Empties the list and sizes the arrays for a number of keys.
+	 *
+	 * @param capacity The number of keys to make room for
+	 */
+	private void reset(int capacity) {
+		keys = new long[capacity + 1];
+		base = new int[capacity + 1];
+		heights = new byte[capacity + 1];
+		links = new int[MAX_LEVEL + 2 * capacity];
+		heights[HEAD] = MAX_LEVEL;
+		nodeCount = 1;
+		linkCount = MAX_LEVEL;
+		Arrays.fill(free, HEAD);
+		levels = 1;
+		size = 0;
+	}
+	
+	/**
+	 * Gets the arena holding the keys.
+	 *
+	 * @return The arena
+	 */
+	public KeyArena getArena() {
+		return arena;
+	}
+	
+	/**
+	 * Gets a node's link on a level.
+	 *
+	 * @param node The node
+	 * @param level The level
+	 * @return The next node on that level, or HEAD if there is none
+	 */
+	private int next(int node, int level) {
+		return links[base[node] + level];
+	}
+	
+	/**
+	 * Makes sure a buffer holds a number of bytes.
+	 *
+	 * @param buffer The buffer
+	 * @param length The number of bytes
+	 * @return The buffer, or a larger one if it was too short
+	 */
+	private static byte[] fit(byte[] buffer, int length) {
+		return (buffer.length >= length) ? buffer : new byte[Math.max(length, buffer.length * 2)];
+	}
+	
+	/**
+	 * Encodes a key into the scratch buffer.
+	 *
+	 * @param key The key
+	 * @return The number of bytes
+	 */
+	private int encode(String key) {
+		scratch = fit(scratch, KeyArena.maxEncodedLength(key));
+		return KeyArena.encode(key, scratch);
+	}
+	
+	/**
+	 * Hands out a node row, reusing a freed one of the same height if any.
+	 *
+	 * @param height The height of the tower
+	 * @return The node
+	 */
+	private int allocate(int height) {
+		int node = free[height];
+		if (node != HEAD) {
+			free[height] = links[base[node]];
+			return node;
+		}
+		if (nodeCount == keys.length) {
+			int capacity = keys.length * 2;
+			keys = Arrays.copyOf(keys, capacity);
+			base = Arrays.copyOf(base, capacity);
+			heights = Arrays.copyOf(heights, capacity);
+		}
+		if (linkCount + height > links.length) {
+			links = Arrays.copyOf(links, Math.max(links.length * 2, linkCount + height));
+		}
+		node = nodeCount++;
+		base[node] = linkCount;
+		heights[node] = (byte) height;
+		linkCount += height;
+		return node;
+	}
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#size()
+	 */
+	
+	public int size() {
+		return size;
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#getComparator()
+	 */
+	
+	public Comparator<? super String> getComparator() {
+		return Utils.CODE_POINT_ORDER;
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#insert(java.lang.Object, java.lang.Object)
+	 */
+	
+	public void insert(String key, Object e) {
+		int length = encode(key);
+		int node = next(lowerNode(length, update), 0);
+		if (node != HEAD && arena.compare(keys[node], scratch, length) == 0) {
+			return; //already in the set
+		}
+		int height = randomLevel();
+		if (height > levels) {
+			for (int i = levels; i < height; i++) {
+				update[i] = HEAD;
+			}
+			levels = height;
+		}
+		node = allocate(height);
+		keys[node] = arena.add(scratch, length);
+		for (int i = 0; i < height; i++) {
+			links[base[node] + i] = next(update[i], i);
+			links[base[update[i]] + i] = node;
+		}
+		size++;
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#bulkLoad(java.lang.Object[], boolean)
+	 */
+	
+	public void bulkLoad(String[] keys, boolean presorted) {
+		String[] sorted = Utils.sortedKeys(keys, presorted, Utils.CODE_POINT_ORDER);
+		arena.clear();
+		reset(sorted.length);
+		Arrays.fill(update, HEAD);
+		//the i-th key (from 1) gets one level per trailing zero bit of i, so
+		//each level holds exactly half of the level below
+		for (int i = 0; i < sorted.length; i++) {
+			int height = Math.min(Integer.numberOfTrailingZeros(i + 1) + 1, MAX_LEVEL);
+			int node = allocate(height);
+			this.keys[node] = arena.add(scratch, encode(sorted[i]));
+			for (int j = 0; j < height; j++) {
+				links[base[update[j]] + j] = node;
+				update[j] = node;
+			}
+			levels = Math.max(levels, height);
+		}
+		size = sorted.length;
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#delete(java.lang.Object)
+	 */
+	
+	public void delete(String key) {
+		int length = encode(key);
+		int node = next(lowerNode(length, update), 0);
+		if (node == HEAD || arena.compare(keys[node], scratch, length) != 0) {
+			return;
+		}
+		int height = heights[node];
+		for (int i = 0; i < height; i++) {
+			links[base[update[i]] + i] = next(node, i);
+		}
+		links[base[node]] = free[height];
+		free[height] = node;
+		while (levels > 1 && next(HEAD, levels - 1) == HEAD) {
+			levels--;
+		}
+		size--;
+	}
+	
+	/**
+	 * Finds the last node whose key is less than the key in the scratch buffer.
+	 *
+	 * @param length The number of bytes of the key in the scratch buffer
+	 * @param update If not null, filled with the last node before the key on each level in use
+	 * @return The node, or HEAD if every key is at least the key
+	 */
+	private int lowerNode(int length, int[] update) {
+		byte[] key = scratch;
+		int p = HEAD;
+		for (int i = levels - 1; i >= 0; i--) {
+			int next = next(p, i);
+			while (next != HEAD && arena.compare(keys[next], key, length) < 0) {
+				p = next;
+				next = next(p, i);
+			}
+			if (update != null) {
+				update[i] = p;
+			}
+		}
+		return p;
+	}
+	
+	/**
+	 * Finds the node holding the key.
+	 *
+	 * @param key The key
+	 * @return The node, or HEAD if the key is not in the list
+	 */
+	private int find(String key) {
+		int length = encode(key);
+		int node = next(lowerNode(length, null), 0);
+		if (node != HEAD && arena.compare(keys[node], scratch, length) == 0) {
+			return node;
+		}
+		return HEAD;
+	}
+	
+	/**
+	 * Decodes the key of a node.
+	 *
+	 * @param node The node
+	 * @return The key, or null for HEAD
+	 */
+	private String keyOf(int node) {
+		if (node == HEAD) {
+			return null;
+		}
+		scratch = fit(scratch, arena.length(keys[node]));
+		return arena.get(keys[node], scratch);
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#search(java.lang.Object)
+	 */
+	
+	public Object search(String key) {
+		return (find(key) == HEAD) ? null : key;
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#minimum()
+	 */
+	
+	public Object minimum() {
+		return keyOf(next(HEAD, 0));
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#maximum()
+	 */
+	
+	public Object maximum() {
+		int p = HEAD;
+		for (int i = levels - 1; i >= 0; i--) {
+			while (next(p, i) != HEAD) {
+				p = next(p, i);
+			}
+		}
+		return keyOf(p);
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#successor(java.lang.Object)
+	 */
+	
+	public Object successor(String key) {
+		int node = find(key);
+		return (node == HEAD) ? null : keyOf(next(node, 0));
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#predecessor(java.lang.Object)
+	 */
+	
+	public Object predecessor(String key) {
+		int length = encode(key);
+		int pred = lowerNode(length, null);
+		int node = next(pred, 0);
+		if (node == HEAD || arena.compare(keys[node], scratch, length) != 0) {
+			return null;
+		}
+		return keyOf(pred);
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#cursor(java.lang.Object, java.lang.Object)
+	 *
+	 * Moving the cursor decodes nothing.  key() decodes the key the first
+	 * time it is called on a node, and handle() gives the key's place in the
+	 * arena for reading its bytes without making a String at all.
+	 */
+	
+	public KeyCursor cursor(String fromKey, String toKey) {
+		KeyCursor cursor = new KeyCursor();
+		cursor.reset(fromKey, toKey);
+		return cursor;
+	}
+	
+	/**
+	 * Picks the height of a new tower.  Each trailing zero bit of one random
+	 * int is a successful coin flip, so level k is reached with probability
+	 * 1/2^k without calling the generator again.
+	 *
+	 * @return The height, between 1 and MAX_LEVEL
+	 */
+	private int randomLevel() {
+		int height = Integer.numberOfTrailingZeros(ThreadLocalRandom.current().nextInt()) + 1;
+		return Math.min(height, MAX_LEVEL);
+	}
+	
+	/**
+	 * Walks the bottom level of the list.  The key to stop before is encoded
+	 * once per range into a buffer the cursor keeps, and each step compares
+	 * it with the next key in the arena.
+	 */
+	public class KeyCursor implements Cursor<String> {
+		
+		/** The node the cursor is on, or HEAD. */
+		private int current = HEAD;
+		
+		/** The node the cursor moves to next, or HEAD. */
+		private int next = HEAD;
+		
+		/** The UTF-8 bytes of the key to stop before. */
+		private byte[] toKey = new byte[16];
+		
+		/** The number of bytes of the key to stop before, or -1 to run to the end. */
+		private int toLength = -1;
+		
+		/** The buffer keys are decoded through. */
+		private byte[] buffer = new byte[16];
+		
+		/** The key of the current node once key() has decoded it, or null. */
+		private String key = null;
+		
+		/**
+		 * Instantiates a new key cursor.
+		 */
+		private KeyCursor() {
+		}
+		
+		public boolean next() {
+			key = null;
+			if (next == HEAD || (toLength >= 0 && arena.compare(keys[next], toKey, toLength) >= 0)) {
+				current = next = HEAD;
+				return false;
+			}
+			current = next;
+			next = ArenaSkipList.this.next(current, 0);
+			return true;
+		}
+		
+		public String key() {
+			if (current == HEAD) {
+				throw new NoSuchElementException();
+			}
+			if (key == null) {
+				buffer = fit(buffer, arena.length(keys[current]));
+				key = arena.get(keys[current], buffer);
+			}
+			return key;
+		}
+		
+		/**
+		 * Gets where the current key lies in the arena, for reading or
+		 * comparing its bytes through getArena() without decoding it.
+		 *
+		 * @return The handle of the current key
+		 */
+		public long handle() {
+			if (current == HEAD) {
+				throw new NoSuchElementException();
+			}
+			return keys[current];
+		}
+		
+		public void reset(String fromKey, String toKey) {
+			if (toKey == null) {
+				toLength = -1;
+			}
+			else {
+				this.toKey = fit(this.toKey, KeyArena.maxEncodedLength(toKey));
+				toLength = KeyArena.encode(toKey, this.toKey);
+			}
+			current = HEAD;
+			key = null;
+			next = (fromKey == null) ? ArenaSkipList.this.next(HEAD, 0)
+					: ArenaSkipList.this.next(lowerNode(encode(fromKey), null), 0);
+		}
+	}
+}
@@ -0,0 +1,339 @@
+
+
+/*
+ * Copyright (c) 2013, Erika Nana
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Project 1 nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY Erika Nana ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL Erika Nana BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+import java.util.Comparator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A skip list that stores each key in a single node holding an array of
+ * forward pointers, instead of one SkipListEntry per level.  A search only
+ * moves right and down through next[], so every step is one array load.
+ *
+ * @author Erika Nana
+ * @param <Type> the generic type
+ */
+public class ArraySkipList<Type> implements DynamicSet<Type> {
+	
+	/** The maximum number of levels used by the default constructor. */
+	public static final int DEFAULT_MAX_LEVEL = 32;
+	
+	/** The most levels a tower may have. */
+	private final int maxLevel;
+	
+	/** The head; its tower is maxLevel high. */
+	private final ArraySkipListNode<Type> head;
+	
+	/** The number of levels currently in use. */
+	private int levels = 1;
+	
+	/** The number of entries in the skip list. */
+	private int size = 0;
+	
+	/** The order of the keys. */
+	private final Comparator<? super Type> comparator;
+	
+	/** Scratch array for the last node before the key on each level. */
+	private final ArraySkipListNode<Type>[] update;
+	
+	/**
+	 * Instantiates a new array skip list with the default maximum level,
+	 * ordered by the keys' natural order.
+	 */
+	public ArraySkipList() {
+		this(DEFAULT_MAX_LEVEL, null);
+	}
+	
+	/**
+	 * Instantiates a new array skip list ordered by the keys' natural order.
+	 *
+	 * @param maxLevel The most levels a tower may have, from 1 to 32
+	 */
+	public ArraySkipList(int maxLevel) {
+		this(maxLevel, null);
+	}
+	
+	/**
+	 * Instantiates a new array skip list.
+	 *
+	 * @param maxLevel The most levels a tower may have, from 1 to 32
+	 * @param comparator The order of the keys, or null for their natural order
+	 */
+	public ArraySkipList(int maxLevel, Comparator<? super Type> comparator) {
+		this.comparator = Utils.orNatural(comparator);
+		if (maxLevel < 1 || maxLevel > 32) {
+			throw new IllegalArgumentException("The maximum level must be between 1 and 32");
+		}
+		this.maxLevel = maxLevel;
+		head = new ArraySkipListNode<Type>(null, maxLevel);
+		update = ArraySkipListNode.newArray(maxLevel);
+	}
+	
+	/**
+	 * Returns whether or not the list is empty.
+	 *
+	 * @return True, if is empty
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	/**
+	 * Gets the maximum level.
+	 *
+	 * @return The most levels a tower may have
+	 */
+	public int getMaxLevel() {
+		return maxLevel;
+	}
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#size()
+	 */
+	
+	public int size() {
+		return size;
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#getComparator()
+	 */
+	
+	public Comparator<? super Type> getComparator() {
+		return comparator;
+	}
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#insert(java.lang.Object, java.lang.Object)
+	 */
+	
+	public void insert(Type key, Object e) {
+		ArraySkipListNode<Type> node = lowerNode(key, update);
+		node = node.next[0];
+		if (node != null && comparator.compare(node.key, key) == 0) {
+			return; //already in the set
+		}
+		int height = randomLevel();
+		if (height > levels) {
+			for (int i = levels; i < height; i++) {
+				update[i] = head;
+			}
+			levels = height;
+		}
+		node = new ArraySkipListNode<Type>(key, height);
+		for (int i = 0; i < height; i++) {
+			node.next[i] = update[i].next[i];
+			update[i].next[i] = node;
+		}
+		size++;
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#bulkLoad(java.lang.Object[], boolean)
+	 */
+	
+	public void bulkLoad(Type[] keys, boolean presorted) {
+		Type[] sorted = Utils.sortedKeys(keys, presorted, comparator);
+		//the i-th key (from 1) gets one level per trailing zero bit of i, so
+		//each level holds exactly half of the level below
+		for (int i = 0; i < maxLevel; i++) {
+			head.next[i] = null;
+			update[i] = head;
+		}
+		levels = 1;
+		for (int i = 0; i < sorted.length; i++) {
+			int height = Math.min(Integer.numberOfTrailingZeros(i + 1) + 1, maxLevel);
+			ArraySkipListNode<Type> node = new ArraySkipListNode<Type>(sorted[i], height);
+			for (int j = 0; j < height; j++) {
+				update[j].next[j] = node;
+				update[j] = node;
+			}
+			levels = Math.max(levels, height);
+		}
+		size = sorted.length;
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#delete(java.lang.Object)
+	 */
+	
+	public void delete(Type key) {
+		ArraySkipListNode<Type> node = lowerNode(key, update).next[0];
+		if (node == null || comparator.compare(node.key, key) != 0) {
+			return;
+		}
+		for (int i = 0; i < node.next.length; i++) {
+			update[i].next[i] = node.next[i];
+		}
+		while (levels > 1 && head.next[levels - 1] == null) {
+			levels--;
+		}
+		size--;
+	}
+	
+	/**
+	 * Finds the last node whose key is less than the key.
+	 *
+	 * @param key The key
+	 * @param update If not null, filled with the last node before the key on each level in use
+	 * @return The node, or head if every key is at least the key
+	 */
+	private ArraySkipListNode<Type> lowerNode(Type key, ArraySkipListNode<Type>[] update) {
+		ArraySkipListNode<Type> p = head;
+		for (int i = levels - 1; i >= 0; i--) {
+			ArraySkipListNode<Type> next = p.next[i];
+			while (next != null && comparator.compare(next.key, key) < 0) {
+				p = next;
+				next = p.next[i];
+			}
+			if (update != null) {
+				update[i] = p;
+			}
+		}
+		return p;
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#search(java.lang.Object)
+	 */
+	
+	public Object search(Type key) {
+		ArraySkipListNode<Type> node = lowerNode(key, null).next[0];
+		if (node != null && comparator.compare(node.key, key) == 0) {
+			return node;
+		}
+		return null;
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#minimum()
+	 */
+	
+	public Object minimum() {
+		return head.next[0];
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#maximum()
+	 */
+	
+	public Object maximum() {
+		ArraySkipListNode<Type> p = head;
+		for (int i = levels - 1; i >= 0; i--) {
+			while (p.next[i] != null) {
+				p = p.next[i];
+			}
+		}
+		return (p == head) ? null : p;
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#successor(java.lang.Object)
+	 */
+	
+	public Object successor(Type key) {
+		ArraySkipListNode<Type> node = lowerNode(key, null).next[0];
+		if (node == null || comparator.compare(node.key, key) != 0) {
+			return null;
+		}
+		return node.next[0];
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#predecessor(java.lang.Object)
+	 */
+	
+	public Object predecessor(Type key) {
+		ArraySkipListNode<Type> pred = lowerNode(key, null);
+		ArraySkipListNode<Type> node = pred.next[0];
+		if (node == null || comparator.compare(node.key, key) != 0) {
+			return null;
+		}
+		return (pred == head) ? null : pred;
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#cursor(java.lang.Object, java.lang.Object)
+	 */
+	
+	public Cursor<Type> cursor(Type fromKey, Type toKey) {
+		LevelCursor cursor = new LevelCursor();
+		cursor.reset(fromKey, toKey);
+		return cursor;
+	}
+	
+	/**
+	 * Picks the height of a new tower.  Each trailing zero bit of one random
+	 * int is a successful coin flip, so level k is reached with probability
+	 * 1/2^k without calling the generator again.
+	 *
+	 * @return The height, between 1 and maxLevel
+	 */
+	private int randomLevel() {
+		int height = Integer.numberOfTrailingZeros(ThreadLocalRandom.current().nextInt()) + 1;
+		return Math.min(height, maxLevel);
+	}
+	
+	/**
+	 * Walks the bottom level of the list.
+	 */
+	private class LevelCursor implements Cursor<Type> {
+		
+		/** The node the cursor is on. */
+		private ArraySkipListNode<Type> current = null;
+		
+		/** The node the cursor moves to next. */
+		private ArraySkipListNode<Type> next = null;
+		
+		/** The key to stop before. */
+		private Type toKey = null;
+		
+		public boolean next() {
+			if (next == null || (toKey != null && comparator.compare(next.key, toKey) >= 0)) {
+				current = next = null;
+				return false;
+			}
+			current = next;
+			next = current.next[0];
+			return true;
+		}
+		
+		public Type key() {
+			if (current == null) {
+				throw new NoSuchElementException();
+			}
+			return current.key;
+		}
+		
+		public void reset(Type fromKey, Type toKey) {
+			this.toKey = toKey;
+			current = null;
+			next = (fromKey == null) ? head.next[0] : lowerNode(fromKey, null).next[0];
+		}
+	}
+}
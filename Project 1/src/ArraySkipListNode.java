@@ -0,0 +1,83 @@
+
+
+/*
+ * Copyright (c) 2013, Erika Nana
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Project 1 nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY Erika Nana ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL Erika Nana BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+/**
+ * Creates a node for the array skip list.  The whole tower of a key is one
+ * node: the key is stored once and next[i] is the following node on level i.
+ *
+ * @author Erika Nana
+ * @param <Type> the generic type
+ */
+public class ArraySkipListNode<Type> {
+	
+	/** The key; null for the head. */
+	public Type key;
+	
+	/** The forward pointers, one per level of the tower. */
+	public ArraySkipListNode<Type>[] next;
+	
+	/**
+	 * Instantiates a new node.
+	 *
+	 * @param key The key
+	 * @param levels The height of the tower
+	 */
+	public ArraySkipListNode(Type key, int levels) {
+		this.key = key;
+		next = newArray(levels);
+	}
+	
+	/**
+	 * Makes an array of nodes.  Java cannot make an array of a generic type
+	 * directly, so this makes one of unknown type and casts it once here.
+	 *
+	 * @param <Type> the generic type
+	 * @param length The length of the array
+	 * @return The array, filled with null
+	 */
+	@SuppressWarnings("unchecked")
+	public static <Type> ArraySkipListNode<Type>[] newArray(int length) {
+		return (ArraySkipListNode<Type>[]) new ArraySkipListNode<?>[length];
+	}
+	
+	/**
+	 * Gets the key.
+	 *
+	 * @return The key
+	 */
+	public Type getKey() {
+		return key;
+	}
+	
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		return String.valueOf(key);
+	}
+}
@@ -36,6 +36,12 @@ public class BNode<Type>{
 	/** The key. */
 	private Type key = null;
 	
+	/** The key in the form the tree compares, the key itself unless the tree folds. */
+	private Type folded = null;
+	
+	/** The element stored under the key. */
+	private Object element = null;
+	
 	/** The left child. */
 	private BNode<Type> leftChild = null;
 	
@@ -45,13 +51,27 @@ public class BNode<Type>{
 	/** The parent. */
 	private BNode<Type> parent = null;
 	
+	/** The number of nodes in the subtree rooted here, this one included. */
+	private int count = 1;
+	
 	/**
 	 * Instantiates a new b node.
 	 *
 	 * @param key the value of the node
 	 */
 	public BNode(Type key) {
+		this(key, key);
+	}
+	
+	/**
+	 * Instantiates a new b node that keeps the folded form of its key.
+	 *
+	 * @param key the value of the node
+	 * @param folded the key in the form the tree compares
+	 */
+	public BNode(Type key, Type folded) {
 		this.key = key;
+		this.folded = folded;
 	}
 	
 	/**
@@ -63,6 +83,33 @@ public class BNode<Type>{
 		return key;
 	}
 	
+	/**
+	 * Gets the key in the form the tree compares.
+	 *
+	 * @return the folded key
+	 */
+	public Type getFolded() {
+		return folded;
+	}
+	
+	/**
+	 * Gets the element stored under the key.
+	 *
+	 * @return the element
+	 */
+	public Object getElement() {
+		return element;
+	}
+	
+	/**
+	 * Gets the number of nodes in the subtree rooted here.
+	 *
+	 * @return the count
+	 */
+	public int getCount() {
+		return count;
+	}
+	
 	/**
 	 * Gets the parent.
 	 *
@@ -99,6 +146,24 @@ public class BNode<Type>{
 		this.key = key;
 	}
 
+	/**
+	 * Sets the element stored under the key.
+	 *
+	 * @param element the new element
+	 */
+	public void setElement(Object element) {
+		this.element = element;
+	}
+
+	/**
+	 * Sets the number of nodes in the subtree rooted here.
+	 *
+	 * @param count the new count
+	 */
+	public void setCount(int count) {
+		this.count = count;
+	}
+
 	/**
 	 * Sets the right child.
 	 *
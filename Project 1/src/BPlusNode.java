@@ -0,0 +1,98 @@
+
+
+/*
+ * Copyright (c) 2013, Erika Nana
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Project 1 nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY Erika Nana ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL Erika Nana BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+/**
+ * Creates a node for the B+ tree.  Every node keeps its keys in one sorted
+ * array; internal nodes also keep one more child than they have keys, and
+ * leaves are chained to their neighbors so the tree can be walked in order.
+ *
+ * @author Erika Nana
+ * @param <Type> the generic type
+ */
+public class BPlusNode<Type>{
+	
+	/** The sorted keys; one slot bigger than the order allows so a node can overflow before it splits. */
+	public Object[] keys;
+	
+	/** The children, or null if this is a leaf. */
+	public BPlusNode<Type>[] children;
+	
+	/** The number of keys in use. */
+	public int count;
+	
+	/** The next and previous leaves; only used by leaves. */
+	public BPlusNode<Type> next, prev;
+	
+	/**
+	 * Instantiates a new B+ node.
+	 *
+	 * @param order The maximum number of children of an internal node
+	 * @param leaf True if the node is a leaf
+	 */
+	public BPlusNode(int order, boolean leaf) {
+		keys = new Object[order];
+		if (!leaf) {
+			children = newArray(order + 1);
+		}
+		count = 0;
+		next = prev = null;
+	}
+	
+	/**
+	 * Checks if is a leaf.
+	 *
+	 * @return True, if is a leaf
+	 */
+	public boolean isLeaf() {
+		return children == null;
+	}
+	
+	/**
+	 * Makes an array of nodes.  Java cannot make an array of a generic type
+	 * directly, so this makes one of unknown type and casts it once here.
+	 *
+	 * @param <Type> the generic type
+	 * @param length The length of the array
+	 * @return The array, filled with null
+	 */
+	@SuppressWarnings("unchecked")
+	public static <Type> BPlusNode<Type>[] newArray(int length) {
+		return (BPlusNode<Type>[]) new BPlusNode<?>[length];
+	}
+	
+	/**
+	 * Gets a key.
+	 *
+	 * @param i The index of the key
+	 * @return The key
+	 */
+	@SuppressWarnings("unchecked")
+	public Type getKey(int i) {
+		return (Type) keys[i];
+	}
+}
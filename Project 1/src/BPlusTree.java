@@ -0,0 +1,633 @@
+
+
+/*
+ * Copyright (c) 2013, Erika Nana
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Project 1 nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY Erika Nana ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL Erika Nana BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.NoSuchElementException;
+
+/**
+ * Operations for manipulating a B+ tree.  Keys live in sorted arrays inside
+ * wide nodes, so a lookup touches only a few nodes instead of one node per
+ * key, and the leaves are chained so that successor and predecessor are a
+ * step within a leaf or across to its neighbor.
+ * Based on the B-tree chapter of Introduction to Algorithms Third Edition
+ * by Cormen et al.
+ *
+ * @author Erika Nana
+ * @param <Type> the generic type
+ */
+
+public class BPlusTree<Type> implements DynamicSet<Type>{
+	
+	/** The order used by the default constructor. */
+	public static final int DEFAULT_ORDER = 128;
+	
+	/** The maximum number of children of an internal node; a node holds at most order - 1 keys. */
+	private int order;
+	
+	/** The fewest keys a node other than the root may hold. */
+	private int minKeys;
+	
+	/** The size. */
+	private int size = 0;
+	
+	/** The order of the keys. */
+	private final Comparator<? super Type> comparator;
+	
+	/** The root. */
+	private BPlusNode<Type> root = null;
+	
+	/** The key pushed up into the parent by the last split. */
+	private Type splitKey = null;
+	
+	/** Set when the last insert added a new key. */
+	private boolean added = false;
+	
+	/**
+	 * Instantiates a new B+ tree with the default order, ordered by the keys'
+	 * natural order.
+	 */
+	public BPlusTree() {
+		this(DEFAULT_ORDER, null);
+	}
+	
+	/**
+	 * Instantiates a new B+ tree ordered by the keys' natural order.
+	 *
+	 * @param order The maximum number of children of an internal node, at least 3
+	 */
+	public BPlusTree(int order) {
+		this(order, null);
+	}
+	
+	/**
+	 * Instantiates a new B+ tree.
+	 *
+	 * @param order The maximum number of children of an internal node, at least 3
+	 * @param comparator The order of the keys, or null for their natural order
+	 */
+	public BPlusTree(int order, Comparator<? super Type> comparator) {
+		this.comparator = Utils.orNatural(comparator);
+		if (order < 3) {
+			throw new IllegalArgumentException("The order must be at least 3");
+		}
+		this.order = order;
+		this.minKeys = (order - 1) / 2;
+		root = new BPlusNode<Type>(order, true);
+	}
+	
+	/**
+	 * Checks if is empty.
+	 *
+	 * @return True, if is empty
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	/**
+	 * Gets the order.
+	 *
+	 * @return The order
+	 */
+	public int getOrder() {
+		return order;
+	}
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#size()
+	 */
+	
+	public int size() {
+		return size;
+	}
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#getComparator()
+	 */
+	
+	public Comparator<? super Type> getComparator() {
+		return comparator;
+	}
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#insert(java.lang.Object, java.lang.Object)
+	 */
+	
+	public void insert(Type key, Object e) {
+		added = false;
+		BPlusNode<Type> sibling = insert(root, key);
+		if (sibling != null) { //the root split, so the tree grows a level
+			BPlusNode<Type> newRoot = new BPlusNode<Type>(order, false);
+			newRoot.keys[0] = splitKey;
+			newRoot.children[0] = root;
+			newRoot.children[1] = sibling;
+			newRoot.count = 1;
+			root = newRoot;
+		}
+		if (added) {
+			size++;
+		}
+	}
+	
+	/**
+	 * Inserts the key into the subtree rooted at node.
+	 *
+	 * @param node The root of the subtree
+	 * @param key The key to insert
+	 * @return The new right sibling if node had to split, otherwise null
+	 */
+	private BPlusNode<Type> insert(BPlusNode<Type> node, Type key) {
+		if (node.isLeaf()) {
+			int pos = indexOf(node, key);
+			if (pos >= 0) {
+				return null; //already in the set
+			}
+			pos = -pos - 1;
+			System.arraycopy(node.keys, pos, node.keys, pos + 1, node.count - pos);
+			node.keys[pos] = key;
+			node.count++;
+			added = true;
+			return node.count == order ? splitLeaf(node) : null;
+		}
+		int i = childIndex(node, key);
+		BPlusNode<Type> sibling = insert(node.children[i], key);
+		if (sibling == null) {
+			return null;
+		}
+		System.arraycopy(node.keys, i, node.keys, i + 1, node.count - i);
+		System.arraycopy(node.children, i + 1, node.children, i + 2, node.count - i);
+		node.keys[i] = splitKey;
+		node.children[i + 1] = sibling;
+		node.count++;
+		return node.count == order ? splitInternal(node) : null;
+	}
+	
+	/**
+	 * Moves the upper half of an overfull leaf into a new leaf.
+	 *
+	 * @param node The leaf to split
+	 * @return The new leaf
+	 */
+	private BPlusNode<Type> splitLeaf(BPlusNode<Type> node) {
+		int mid = node.count / 2;
+		BPlusNode<Type> right = new BPlusNode<Type>(order, true);
+		right.count = node.count - mid;
+		System.arraycopy(node.keys, mid, right.keys, 0, right.count);
+		Arrays.fill(node.keys, mid, node.count, null);
+		node.count = mid;
+		
+		right.next = node.next;
+		if (node.next != null) {
+			node.next.prev = right;
+		}
+		node.next = right;
+		right.prev = node;
+		splitKey = right.getKey(0);
+		return right;
+	}
+	
+	/**
+	 * Moves the upper half of an overfull internal node into a new node; the
+	 * middle key goes up to the parent.
+	 *
+	 * @param node The node to split
+	 * @return The new node
+	 */
+	private BPlusNode<Type> splitInternal(BPlusNode<Type> node) {
+		int mid = node.count / 2;
+		BPlusNode<Type> right = new BPlusNode<Type>(order, false);
+		right.count = node.count - mid - 1;
+		System.arraycopy(node.keys, mid + 1, right.keys, 0, right.count);
+		System.arraycopy(node.children, mid + 1, right.children, 0, right.count + 1);
+		splitKey = node.getKey(mid);
+		Arrays.fill(node.keys, mid, node.count, null);
+		Arrays.fill(node.children, mid + 1, node.count + 1, null);
+		node.count = mid;
+		return right;
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#bulkLoad(java.lang.Object[], boolean)
+	 */
+	
+	public void bulkLoad(Type[] keys, boolean presorted) {
+		Type[] sorted = Utils.sortedKeys(keys, presorted, comparator);
+		int n = sorted.length;
+		
+		//spread the keys evenly over as few leaves as will hold them, so
+		//every leaf ends up at least half full
+		int count = Math.max(1, (n + order - 2) / (order - 1));
+		BPlusNode<Type>[] nodes = BPlusNode.newArray(count);
+		Object[] lows = new Object[count]; //the smallest key under each node
+		for (int j = 0; j < count; j++) {
+			int from = (int) ((long) n * j / count);
+			int to = (int) ((long) n * (j + 1) / count);
+			BPlusNode<Type> leaf = new BPlusNode<Type>(order, true);
+			System.arraycopy(sorted, from, leaf.keys, 0, to - from);
+			leaf.count = to - from;
+			if (j > 0) {
+				nodes[j - 1].next = leaf;
+				leaf.prev = nodes[j - 1];
+			}
+			nodes[j] = leaf;
+			lows[j] = (to > from) ? sorted[from] : null;
+		}
+		
+		//then group each level under as few parents as will hold it
+		while (count > 1) {
+			int parents = (count + order - 1) / order;
+			BPlusNode<Type>[] above = BPlusNode.newArray(parents);
+			Object[] aboveLows = new Object[parents];
+			for (int p = 0; p < parents; p++) {
+				int from = (int) ((long) count * p / parents);
+				int to = (int) ((long) count * (p + 1) / parents);
+				BPlusNode<Type> node = new BPlusNode<Type>(order, false);
+				System.arraycopy(nodes, from, node.children, 0, to - from);
+				System.arraycopy(lows, from + 1, node.keys, 0, to - from - 1);
+				node.count = to - from - 1;
+				above[p] = node;
+				aboveLows[p] = lows[from];
+			}
+			nodes = above;
+			lows = aboveLows;
+			count = parents;
+		}
+		root = nodes[0];
+		size = n;
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#delete(java.lang.Object)
+	 */
+	
+	public void delete(Type key) {
+		if (!delete(root, key)) {
+			System.out.println("Can't delete from a node that doesn't exist!");
+			return;
+		}
+		if (!root.isLeaf() && root.count == 0) { //the root lost its last key, so the tree shrinks a level
+			root = root.children[0];
+		}
+		size--;
+	}
+	
+	/**
+	 * Deletes the key from the subtree rooted at node.
+	 *
+	 * @param node The root of the subtree
+	 * @param key The key to delete
+	 * @return True, if the key was found
+	 */
+	private boolean delete(BPlusNode<Type> node, Type key) {
+		if (node.isLeaf()) {
+			int pos = indexOf(node, key);
+			if (pos < 0) {
+				return false;
+			}
+			System.arraycopy(node.keys, pos + 1, node.keys, pos, node.count - pos - 1);
+			node.keys[--node.count] = null;
+			return true;
+		}
+		int i = childIndex(node, key);
+		if (!delete(node.children[i], key)) {
+			return false;
+		}
+		if (node.children[i].count < minKeys) {
+			rebalance(node, i);
+		}
+		return true;
+	}
+	
+	/**
+	 * Refills an underfull child by borrowing a key from a sibling, or merges
+	 * it with a sibling if neither can spare one.
+	 *
+	 * @param parent The parent of the underfull child
+	 * @param i The index of the underfull child
+	 */
+	private void rebalance(BPlusNode<Type> parent, int i) {
+		BPlusNode<Type> child = parent.children[i];
+		BPlusNode<Type> left = (i > 0) ? parent.children[i - 1] : null;
+		BPlusNode<Type> right = (i < parent.count) ? parent.children[i + 1] : null;
+		
+		if (left != null && left.count > minKeys) {
+			borrowFromLeft(parent, i, left, child);
+		}
+		else if (right != null && right.count > minKeys) {
+			borrowFromRight(parent, i, child, right);
+		}
+		else if (left != null) {
+			merge(parent, i - 1);
+		}
+		else {
+			merge(parent, i);
+		}
+	}
+	
+	/**
+	 * Moves the last key of the left sibling into the front of child.
+	 *
+	 * @param parent The parent
+	 * @param i The index of child
+	 * @param left The left sibling
+	 * @param child The underfull child
+	 */
+	private void borrowFromLeft(BPlusNode<Type> parent, int i, BPlusNode<Type> left, BPlusNode<Type> child) {
+		System.arraycopy(child.keys, 0, child.keys, 1, child.count);
+		if (child.isLeaf()) {
+			child.keys[0] = left.keys[left.count - 1];
+			parent.keys[i - 1] = child.keys[0];
+		}
+		else {
+			System.arraycopy(child.children, 0, child.children, 1, child.count + 1);
+			child.keys[0] = parent.keys[i - 1];
+			child.children[0] = left.children[left.count];
+			parent.keys[i - 1] = left.keys[left.count - 1];
+			left.children[left.count] = null;
+		}
+		left.keys[left.count - 1] = null;
+		left.count--;
+		child.count++;
+	}
+	
+	/**
+	 * Moves the first key of the right sibling onto the end of child.
+	 *
+	 * @param parent The parent
+	 * @param i The index of child
+	 * @param child The underfull child
+	 * @param right The right sibling
+	 */
+	private void borrowFromRight(BPlusNode<Type> parent, int i, BPlusNode<Type> child, BPlusNode<Type> right) {
+		if (child.isLeaf()) {
+			child.keys[child.count] = right.keys[0];
+			System.arraycopy(right.keys, 1, right.keys, 0, right.count - 1);
+			parent.keys[i] = right.keys[0];
+		}
+		else {
+			child.keys[child.count] = parent.keys[i];
+			child.children[child.count + 1] = right.children[0];
+			parent.keys[i] = right.keys[0];
+			System.arraycopy(right.keys, 1, right.keys, 0, right.count - 1);
+			System.arraycopy(right.children, 1, right.children, 0, right.count);
+			right.children[right.count] = null;
+		}
+		right.keys[right.count - 1] = null;
+		right.count--;
+		child.count++;
+	}
+	
+	/**
+	 * Merges the child at j+1 into the child at j and drops their separator
+	 * from the parent.
+	 *
+	 * @param parent The parent
+	 * @param j The index of the left child of the pair
+	 */
+	private void merge(BPlusNode<Type> parent, int j) {
+		BPlusNode<Type> left = parent.children[j];
+		BPlusNode<Type> right = parent.children[j + 1];
+		if (left.isLeaf()) {
+			System.arraycopy(right.keys, 0, left.keys, left.count, right.count);
+			left.count += right.count;
+			left.next = right.next;
+			if (right.next != null) {
+				right.next.prev = left;
+			}
+		}
+		else {
+			left.keys[left.count] = parent.keys[j];
+			System.arraycopy(right.keys, 0, left.keys, left.count + 1, right.count);
+			System.arraycopy(right.children, 0, left.children, left.count + 1, right.count + 1);
+			left.count += right.count + 1;
+		}
+		System.arraycopy(parent.keys, j + 1, parent.keys, j, parent.count - j - 1);
+		System.arraycopy(parent.children, j + 2, parent.children, j + 1, parent.count - j - 1);
+		parent.keys[parent.count - 1] = null;
+		parent.children[parent.count] = null;
+		parent.count--;
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#search(java.lang.Object)
+	 */
+	
+	public Object search(Type key) {
+		BPlusNode<Type> leaf = findLeaf(key);
+		int pos = indexOf(leaf, key);
+		return (pos >= 0) ? leaf.keys[pos] : null;
+	}
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#minimum()
+	 */
+	
+	public Object minimum() {
+		BPlusNode<Type> node = root;
+		while (!node.isLeaf()) {
+			node = node.children[0];
+		}
+		return (node.count == 0) ? null : node.keys[0];
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#maximum()
+	 */
+	
+	public Object maximum() {
+		BPlusNode<Type> node = root;
+		while (!node.isLeaf()) {
+			node = node.children[node.count];
+		}
+		return (node.count == 0) ? null : node.keys[node.count - 1];
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#successor(java.lang.Object)
+	 */
+	
+	public Object successor(Type key) {
+		BPlusNode<Type> leaf = findLeaf(key);
+		int pos = indexOf(leaf, key);
+		if (pos < 0) {
+			System.out.println("The node doesn't exist!");
+			return null;
+		}
+		if (pos + 1 < leaf.count) {
+			return leaf.keys[pos + 1];
+		}
+		return (leaf.next == null) ? null : leaf.next.keys[0];
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#predecessor(java.lang.Object)
+	 */
+	
+	public Object predecessor(Type key) {
+		BPlusNode<Type> leaf = findLeaf(key);
+		int pos = indexOf(leaf, key);
+		if (pos < 0) {
+			System.out.println("The node doesn't exist!");
+			return null;
+		}
+		if (pos > 0) {
+			return leaf.keys[pos - 1];
+		}
+		return (leaf.prev == null) ? null : leaf.prev.keys[leaf.prev.count - 1];
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#cursor(java.lang.Object, java.lang.Object)
+	 */
+	
+	public Cursor<Type> cursor(Type fromKey, Type toKey) {
+		LeafCursor cursor = new LeafCursor();
+		cursor.reset(fromKey, toKey);
+		return cursor;
+	}
+	
+	/**
+	 * Finds the leaf whose key range covers the key.
+	 *
+	 * @param key The key
+	 * @return The leaf
+	 */
+	private BPlusNode<Type> findLeaf(Type key) {
+		BPlusNode<Type> node = root;
+		while (!node.isLeaf()) {
+			node = node.children[childIndex(node, key)];
+		}
+		return node;
+	}
+	
+	/**
+	 * Binary searches the keys of a node.
+	 *
+	 * @param node The node
+	 * @param key The key
+	 * @return The index of the key, or (-(insertion point) - 1) if it is not there
+	 */
+	private int indexOf(BPlusNode<Type> node, Type key) {
+		int low = 0;
+		int high = node.count - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int compare = comparator.compare(key, node.getKey(mid));
+			if (compare > 0) {
+				low = mid + 1;
+			}
+			else if (compare < 0) {
+				high = mid - 1;
+			}
+			else {
+				return mid;
+			}
+		}
+		return -(low + 1);
+	}
+	
+	/**
+	 * Finds which child of an internal node to descend into; each separator
+	 * is the smallest key of the subtree to its right.
+	 *
+	 * @param node The internal node
+	 * @param key The key
+	 * @return The number of separators that are less than or equal to the key
+	 */
+	private int childIndex(BPlusNode<Type> node, Type key) {
+		int pos = indexOf(node, key);
+		return (pos >= 0) ? pos + 1 : -pos - 1;
+	}
+	
+	/**
+	 * Walks the keys of one leaf, then follows the chain to the next leaf.
+	 */
+	private class LeafCursor implements Cursor<Type> {
+		
+		/** The key the cursor is on. */
+		private Type current = null;
+		
+		/** The leaf holding the next key, or null at the end. */
+		private BPlusNode<Type> leaf = null;
+		
+		/** The index of the next key in its leaf. */
+		private int index = 0;
+		
+		/** Set while the cursor is on a key. */
+		private boolean onKey = false;
+		
+		/** The key to stop before. */
+		private Type toKey = null;
+		
+		public boolean next() {
+			if (leaf == null || (toKey != null && comparator.compare(leaf.getKey(index), toKey) >= 0)) {
+				leaf = null;
+				current = null;
+				onKey = false;
+				return false;
+			}
+			current = leaf.getKey(index);
+			onKey = true;
+			if (++index == leaf.count) {
+				leaf = leaf.next;
+				index = 0;
+			}
+			return true;
+		}
+		
+		public Type key() {
+			if (!onKey) {
+				throw new NoSuchElementException();
+			}
+			return current;
+		}
+		
+		public void reset(Type fromKey, Type toKey) {
+			this.toKey = toKey;
+			current = null;
+			onKey = false;
+			if (fromKey == null) {
+				leaf = root;
+				while (!leaf.isLeaf()) {
+					leaf = leaf.children[0];
+				}
+				index = 0;
+			}
+			else {
+				leaf = findLeaf(fromKey);
+				int pos = indexOf(leaf, fromKey);
+				index = (pos >= 0) ? pos : -pos - 1;
+			}
+			if (index == leaf.count) { //the range starts past the end of this leaf
+				leaf = leaf.next;
+				index = 0;
+			}
+		}
+	}
+}
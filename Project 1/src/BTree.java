@@ -26,16 +26,32 @@
  * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
+import java.util.AbstractMap;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
 /**
  * Operations for manipulating a binary search tree.
  * Based on the psuedocode found in Introduction to Algorithms Third Edition
  * by Cormen et al.
  *
+ * Every node counts the nodes of its subtree, the augmentation from
+ * chapter 14 of the same book, which gives rank and select in one walk
+ * down the tree.
+ *
+ * A tree built with a fold, e.g. Utils.FOLD_CASE, folds each key once as
+ * it is inserted and keeps the folded form in the node next to the key;
+ * lookups fold the probe once and compare folded forms from there on.
+ *
  * @author Erika Nana
  * @param <Type> the generic type
  */
 
-public class BTree<Type> implements DynamicSet<Type>{
+public class BTree<Type> implements DynamicMap<Type>, OrderStatisticSet<Type>{
 	
 	/** The size. */
 	private int size = 0;
@@ -43,16 +59,68 @@ public class BTree<Type> implements DynamicSet<Type>{
 	/** The root. */
 	private BNode<Type> root = null;
 	
+	/** The order of the folded keys. */
+	private final Comparator<? super Type> comparator;
+	
+	/** The fold applied to each key before it is compared, or null for none. */
+	private final UnaryOperator<Type> fold;
+	
+	/** The order of the keys as they were inserted. */
+	private final Comparator<? super Type> order;
+	
 	/** The empty node to return; handles null pointer exceptions. */
 	private BNode<Type> empty = null;
 	
 	/**
-	 * Instantiates a new b tree.
+	 * Instantiates a new b tree ordered by the keys' natural order.
 	 */
 	public BTree() {
+		this(null);
+	}
+	
+	/**
+	 * Instantiates a new b tree.
+	 *
+	 * @param comparator The order of the keys, or null for their natural order
+	 */
+	public BTree(Comparator<? super Type> comparator) {
+		this(comparator, null);
+	}
+	
+	/**
+	 * Instantiates a new b tree that compares folded keys.
+	 *
+	 * @param comparator The order of the folded keys, or null for their natural order
+	 * @param fold The fold applied to each key before it is compared, or null for none
+	 */
+	public BTree(Comparator<? super Type> comparator, UnaryOperator<Type> fold) {
+		this.comparator = Utils.orNatural(comparator);
+		this.fold = fold;
+		this.order = Utils.foldedOrder(this.comparator, fold);
 		empty = new BNode<Type>(null); //for null pointer
 	}
 	
+	/**
+	 * Folds a key into the form the tree compares, once, for a walk that
+	 * compares it with each node's getFolded().
+	 *
+	 * @param key The key, or null
+	 * @return The folded key, or the key itself if the tree does not fold
+	 */
+	Type fold(Type key) {
+		return (fold == null || key == null) ? key : fold.apply(key);
+	}
+	
+	/**
+	 * Gets the order of the folded keys.  Unlike getComparator, it folds
+	 * nothing, so it is the one to use against getFolded().
+	 *
+	 * @return The comparator
+	 */
+	Comparator<? super Type> getFoldedComparator() {
+		return comparator;
+	}
+	
 	/**
 	 * Checks if is empty.
 	 *
@@ -92,37 +160,152 @@ public class BTree<Type> implements DynamicSet<Type>{
 		return size;
 	}
 	
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#getComparator()
+	 */
+	
+	public Comparator<? super Type> getComparator() {
+		return order;
+	}
+	
 	/* (non-Javadoc)
 	 * @see main.DynamicSet#insert(java.lang.Object, java.lang.Object)
 	 */
 	
 	public void insert(Type key, Object e) {
-		BNode<Type> node = new BNode<Type>(key);
-		node.setKey(key);
-		
+		put(key, e);
+	}
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicMap#put(java.lang.Object, java.lang.Object)
+	 */
+	
+	public Object put(Type key, Object e) {
 		BNode<Type> y = null;
 		BNode<Type> x = this.root;
+		Type folded = fold(key);
+		int compare = 0;
 		
 		while (x != null) {
 			y = x;
-			if (Utils.compareValue((String)key, (String) x.getKey()) == Utils.LESSER) {
+			compare = comparator.compare(folded, x.getFolded());
+			if (compare == 0) {
+				//already in the tree, so only the element changes
+				Object old = x.getElement();
+				x.setElement(e);
+				return old;
+			}
+			if (compare < 0) {
 				x = x.getLeftChild();
 			}
 			else {
 				x = x.getRightChild();
 			}
 		}
+		BNode<Type> node = new BNode<Type>(key, folded);
+		node.setElement(e);
 		node.setParent(y);
 		if (y == null) {
 			this.root = node; //tree is empty to begin with
 		}
-		else if (Utils.compareValue((String) node.getKey(), (String) y.getKey()) == Utils.LESSER) {
+		else if (compare < 0) {
 			y.setLeftChild(node);
 		}
 		else {
 			y.setRightChild(node);
 		}
+		for (BNode<Type> above = y; above != null; above = above.getParent()) {
+			above.setCount(above.getCount() + 1);
+		}
 		size++;
+		return null;
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicMap#get(java.lang.Object)
+	 */
+	
+	public Object get(Type key) {
+		@SuppressWarnings("unchecked")
+		BNode<Type> node = (BNode<Type>) this.search(key);
+		return (node == null) ? null : node.getElement();
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicMap#remove(java.lang.Object)
+	 */
+	
+	public Object remove(Type key) {
+		@SuppressWarnings("unchecked")
+		BNode<Type> node = (BNode<Type>) this.search(key);
+		if (node == null) {
+			return null;
+		}
+		deleteNode(node);
+		return node.getElement();
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicMap#floorEntry(java.lang.Object)
+	 */
+	
+	public Map.Entry<Type, Object> floorEntry(Type key) {
+		return entry(floorNode(key));
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicMap#ceilingEntry(java.lang.Object)
+	 */
+	
+	public Map.Entry<Type, Object> ceilingEntry(Type key) {
+		return entry(ceilingNode(key));
+	}
+
+	/**
+	 * Pairs the key of a node with its element.
+	 *
+	 * @param node The node, or null
+	 * @return The key and element, or null if node is null
+	 */
+	private Map.Entry<Type, Object> entry(BNode<Type> node) {
+		if (node == null) {
+			return null;
+		}
+		return new AbstractMap.SimpleImmutableEntry<Type, Object>(node.getKey(), node.getElement());
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#bulkLoad(java.lang.Object[], boolean)
+	 */
+	
+	public void bulkLoad(Type[] keys, boolean presorted) {
+		Type[][] sorted = Utils.sortedKeys(keys, presorted, comparator, fold);
+		root = build(sorted[0], sorted[1], 0, sorted[0].length - 1, null);
+		size = sorted[0].length;
+	}
+	
+	/**
+	 * Builds a perfectly balanced subtree out of a run of sorted keys; the
+	 * middle key becomes the root.
+	 *
+	 * @param keys The sorted keys
+	 * @param folded The folded forms of the keys
+	 * @param low The index of the first key of the run
+	 * @param high The index of the last key of the run
+	 * @param parent The parent of the subtree
+	 * @return The root of the subtree, or null if the run is empty
+	 */
+	private BNode<Type> build(Type[] keys, Type[] folded, int low, int high, BNode<Type> parent) {
+		if (low > high) {
+			return null;
+		}
+		int mid = (low + high) >>> 1;
+		BNode<Type> node = new BNode<Type>(keys[mid], folded[mid]);
+		node.setCount(high - low + 1);
+		node.setParent(parent);
+		node.setLeftChild(build(keys, folded, low, mid - 1, node));
+		node.setRightChild(build(keys, folded, mid + 1, high, node));
+		return node;
 	}
 
 	/* (non-Javadoc)
@@ -138,15 +321,31 @@ public class BTree<Type> implements DynamicSet<Type>{
 			System.out.println("Can't delete from a node that doesn't exist!");
 			return;
 		}
+		deleteNode(node);
+	}
+	
+	/**
+	 * Unlinks a node from the tree.  The subtree counts drop by one on the
+	 * path above the place that empties, which is the node's own place, or
+	 * its successor's if it has two children; the successor then takes
+	 * over the node's count along with its place.
+	 *
+	 * @param node The node to unlink
+	 */
+	private void deleteNode(BNode<Type> node) {
 		if (node.getLeftChild() == null) {
+			shrink(node.getParent());
 			transplant(node, node.getRightChild());
 		}
 		else if (node.getRightChild() == null) {
+			shrink(node.getParent());
 			transplant(node, node.getLeftChild());
 		}
 		else  {
 /*			System.out.println("in else");*/
 			BNode<Type>y = minimum(node.getRightChild());
+			shrink(y.getParent());
+			y.setCount(node.getCount());
 			if (y.getParent() != node) {
 				transplant(y,y.getRightChild());
 				y.setRightChild(node.getRightChild());
@@ -159,6 +358,82 @@ public class BTree<Type> implements DynamicSet<Type>{
 		size--;
 	}
 
+	/**
+	 * Takes one off the count of a node and of every node above it.
+	 *
+	 * @param node The lowest node to change, or null
+	 */
+	private void shrink(BNode<Type> node) {
+		for (; node != null; node = node.getParent()) {
+			node.setCount(node.getCount() - 1);
+		}
+	}
+	
+	/**
+	 * Gets the number of nodes in a subtree.
+	 *
+	 * @param node The root of the subtree, or null
+	 * @return The count, or 0 for an empty subtree
+	 */
+	private int count(BNode<Type> node) {
+		return (node == null) ? 0 : node.getCount();
+	}
+
+	/* (non-Javadoc)
+	 * @see main.OrderStatisticSet#rank(java.lang.Object)
+	 */
+	
+	public int rank(Type key) {
+		BNode<Type> current = root;
+		Type folded = fold(key);
+		int rank = 0;
+		while (current != null) {
+			if (comparator.compare(folded, current.getFolded()) <= 0) {
+				current = current.getLeftChild();
+			}
+			else {
+				//the node and its whole left subtree are below the key
+				rank += count(current.getLeftChild()) + 1;
+				current = current.getRightChild();
+			}
+		}
+		return rank;
+	}
+
+	/* (non-Javadoc)
+	 * @see main.OrderStatisticSet#select(int)
+	 */
+	
+	public Type select(int k) {
+		if (k < 0 || k >= size) {
+			throw new IndexOutOfBoundsException("No key at position " + k + " of " + size);
+		}
+		return selectNode(k).getKey();
+	}
+	
+	/**
+	 * Finds the node at a position by walking down the subtree counts.
+	 *
+	 * @param k The 0-based position, which must be in the tree
+	 * @return The node with k keys below it
+	 */
+	private BNode<Type> selectNode(int k) {
+		BNode<Type> current = root;
+		while (true) {
+			int below = count(current.getLeftChild());
+			if (k < below) {
+				current = current.getLeftChild();
+			}
+			else if (k > below) {
+				k -= below + 1;
+				current = current.getRightChild();
+			}
+			else {
+				return current;
+			}
+		}
+	}
+
 	/* (non-Javadoc)
 	 * @see main.DynamicSet#search(java.lang.Object)
 	 */
@@ -166,17 +441,21 @@ public class BTree<Type> implements DynamicSet<Type>{
 	public Object search(Type key) {
 		//matches at the root
 		BNode<Type> current = root;
+		if (current == null) {
+			return null;
+		}
+		Type folded = fold(key);
 		
 		while (true) {
-			int compare = Utils.compareValue((String)key, (String)current.getKey());
-			if (compare == Utils.LESSER) {
+			int compare = comparator.compare(folded, current.getFolded());
+			if (compare < 0) {
 				current = current.getLeftChild();
 				if (current == null) {
 					//System.out.println("Not in the tree");
 					return null;
 				}
 			}
-			else if (compare == Utils.GREATER) {
+			else if (compare > 0) {
 				current = current.getRightChild();
 				if (current == null) {
 					//System.out.println("Not in the tree");
@@ -287,6 +566,90 @@ public class BTree<Type> implements DynamicSet<Type>{
 			return predecessor;
 		}
 	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#cursor(java.lang.Object, java.lang.Object)
+	 */
+	
+	public Cursor<Type> cursor(Type fromKey, Type toKey) {
+		TreeCursor cursor = new TreeCursor();
+		cursor.reset(fromKey, toKey);
+		return cursor;
+	}
+	
+	/**
+	 * Finds the node with the smallest key that is at least the key.
+	 *
+	 * @param key The key, or null for the minimum
+	 * @return The node, or null if every key is smaller
+	 */
+	private BNode<Type> ceilingNode(Type key) {
+		BNode<Type> current = root;
+		BNode<Type> ceiling = null;
+		Type folded = fold(key);
+		while (current != null) {
+			if (folded == null || comparator.compare(folded, current.getFolded()) <= 0) {
+				ceiling = current;
+				current = current.getLeftChild();
+			}
+			else {
+				current = current.getRightChild();
+			}
+		}
+		return ceiling;
+	}
+	
+	/**
+	 * Finds the node with the largest key that is at most the key.
+	 *
+	 * @param key The key
+	 * @return The node, or null if every key is larger
+	 */
+	private BNode<Type> floorNode(Type key) {
+		BNode<Type> current = root;
+		BNode<Type> floor = null;
+		Type folded = fold(key);
+		while (current != null) {
+			if (comparator.compare(folded, current.getFolded()) >= 0) {
+				floor = current;
+				current = current.getRightChild();
+			}
+			else {
+				current = current.getLeftChild();
+			}
+		}
+		return floor;
+	}
+	
+	/**
+	 * Opens a spliterator that splits at the median of what is left, found
+	 * by walking the subtree counts.  The first split lands on the root's
+	 * position and each later one on a subtree's, so a split costs one walk
+	 * down the tree and both halves know their exact size.
+	 *
+	 * @see main.DynamicSet#spliterator()
+	 */
+	public Spliterator<Type> spliterator() {
+		return new TreeSpliterator((root == null) ? null : minimum(root), 0, size);
+	}
+	
+	/**
+	 * Gets the in-order successor of a node.
+	 *
+	 * @param node The node
+	 * @return The next node, or null if node is the maximum
+	 */
+	private BNode<Type> nextNode(BNode<Type> node) {
+		if (node.getRightChild() != null) {
+			return minimum(node.getRightChild());
+		}
+		BNode<Type> parent = node.getParent();
+		while (parent != null && node == parent.getRightChild()) {
+			node = parent;
+			parent = parent.getParent();
+		}
+		return parent;
+	}
 	
 
 	/**
@@ -316,7 +679,9 @@ public class BTree<Type> implements DynamicSet<Type>{
 	}
 	
 	/**
-	 * Replaces one subtree as a child of its parent with another subtree
+	 * Replaces one subtree as a child of its parent with another subtree.
+	 * Only the links change; the subtree counts above u are left for the
+	 * caller to fix, as deleteNode does.
 	 *
 	 * @param u The root of a tree
 	 * @param v The root of another tree
@@ -339,4 +704,109 @@ public class BTree<Type> implements DynamicSet<Type>{
 	public void setRoot(BNode<Type> node) {
 		root = node;
 	}
+	
+	/**
+	 * Walks the nodes from one position up to another in order, and splits
+	 * the positions in half.
+	 */
+	private class TreeSpliterator extends KeySpliterator<Type> {
+		
+		/** The node at the next position. */
+		private BNode<Type> next;
+		
+		/** The position of the next node. */
+		private int index;
+		
+		/** The position to stop before. */
+		private final int fence;
+		
+		/**
+		 * Instantiates a new tree spliterator.
+		 *
+		 * @param next The node at the first position
+		 * @param index The first position
+		 * @param fence The position to stop before
+		 */
+		private TreeSpliterator(BNode<Type> next, int index, int fence) {
+			super(BTree.this.order);
+			this.next = next;
+			this.index = index;
+			this.fence = fence;
+		}
+		
+		public boolean tryAdvance(Consumer<? super Type> action) {
+			if (index >= fence) {
+				return false;
+			}
+			BNode<Type> node = next;
+			next = nextNode(node);
+			index++;
+			action.accept(node.getKey());
+			return true;
+		}
+		
+		public void forEachRemaining(Consumer<? super Type> action) {
+			BNode<Type> node = next;
+			for (; index < fence; index++) {
+				action.accept(node.getKey());
+				node = nextNode(node);
+			}
+			next = node;
+		}
+		
+		public Spliterator<Type> trySplit() {
+			int low = index;
+			int mid = (low + fence) >>> 1;
+			if (low >= mid) {
+				return null;
+			}
+			BNode<Type> first = next;
+			next = selectNode(mid);
+			index = mid;
+			return new TreeSpliterator(first, low, mid);
+		}
+		
+		public long estimateSize() {
+			return fence - index;
+		}
+	}
+	
+	/**
+	 * Walks the tree in order, climbing back up through parent pointers
+	 * once a right subtree is used up.
+	 */
+	private class TreeCursor implements Cursor<Type> {
+		
+		/** The node the cursor is on. */
+		private BNode<Type> current = null;
+		
+		/** The node the cursor moves to next. */
+		private BNode<Type> next = null;
+		
+		/** The folded key to stop before. */
+		private Type toKey = null;
+		
+		public boolean next() {
+			if (next == null || (toKey != null && comparator.compare(next.getFolded(), toKey) >= 0)) {
+				current = next = null;
+				return false;
+			}
+			current = next;
+			next = nextNode(current);
+			return true;
+		}
+		
+		public Type key() {
+			if (current == null) {
+				throw new NoSuchElementException();
+			}
+			return current.getKey();
+		}
+		
+		public void reset(Type fromKey, Type toKey) {
+			this.toKey = fold(toKey);
+			current = null;
+			next = ceilingNode(fromKey);
+		}
+	}
 }
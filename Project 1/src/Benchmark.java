@@ -0,0 +1,770 @@
+
+
+/*
+ * Copyright (c) 2013, Erika Nana
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Project 1 nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY Erika Nana ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL Erika Nana BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Measures the cost per operation of the DynamicSet implementations.
+ *
+ * Utils.testSet times each call on its own, with no warmup, so its numbers
+ * include timer overhead and JIT compilation, and later runtest rows run on
+ * code the earlier rows already warmed up.  This harness instead:
+ * <ul>
+ * <li>runs every (structure, size) pair in fresh JVMs, one per fork, so no
+ *     structure inherits another's compiled code or heap;</li>
+ * <li>runs warmup iterations that are thrown away before the measured ones;</li>
+ * <li>times whole batches of operations, repeated until a batch lasts long
+ *     enough that the timer's cost disappears;</li>
+ * <li>folds every result into a sink so the JIT cannot remove the calls.</li>
+ * </ul>
+ * It also reports the bytes each operation allocates, from the JVM's
+ * per-thread allocation counter.  The long-keyed sets (longlist, longskip,
+ * longbtree) run on numeric keys and must allocate nothing on a lookup;
+ * the benchmark prints a warning if one does.
+ *
+ * Usage:  java Benchmark [name=value ...]
+ * <pre>
+ * sets=list,skip,fingerskip,arrayskip,arenaskip,concurrentskip,bst,rbtree,bplus,radix,eytzinger,
+ *      longlist,longskip,longbtree, and bloom-NAME for any of the word sets
+ *      behind a BloomFilteredSet, or sharded-NAME for a ShardedDynamicSet
+ *      of them, one shard per core
+ * sizes=100,1000,10000        any sizes; the linked list at 10^6 takes hours
+ * ops=insert,search,pred,succ,min,max,delete,miss
+ *                             miss searches for keys that are not in the set
+ * dist=uniform                uniform, sequential or clustered keys; numbers
+ *                             for the long-keyed sets
+ * order=random                random or sorted input order
+ * access=random               random or sorted order of the keys looked up
+ * forks=2                     JVMs per structure and size; 0 runs in this JVM
+ * warmup=3                    iterations thrown away in each fork
+ * iterations=5                iterations measured in each fork
+ * </pre>
+ *
+ * @author Erika Nana
+ */
+public class Benchmark {
+	
+	/** The shortest a timed batch may last, in nanoseconds. */
+	static final long MIN_BATCH_NANOS = 20000000L;
+	
+	/** The most keys a read batch looks up. */
+	static final int MAX_PROBES = 100000;
+	
+	/** Marks the result lines a forked JVM prints. */
+	static final String RESULT = "RESULT";
+	
+	/** The seed for the keys, so every fork and structure sees the same data. */
+	static final long SEED = 311;
+	
+	/** Keeps results alive so the calls that made them cannot be removed. */
+	static int sink;
+	
+	/**
+	 * Runs the benchmark, forking a JVM for each structure, size and fork.
+	 *
+	 * @param args The settings, as name=value
+	 * @throws IOException if a forked JVM cannot be started
+	 * @throws InterruptedException if interrupted while waiting for a fork
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		Map<String, String> options = new LinkedHashMap<String, String>();
+		options.put("sets", "list,skip,fingerskip,arrayskip,arenaskip,concurrentskip,bst,rbtree,bplus,radix,eytzinger,"
+				+ "longlist,longskip,longbtree,bloom-list,bloom-rbtree");
+		options.put("sizes", "100,1000,10000");
+		options.put("ops", "insert,search,pred,succ,min,max,delete,miss");
+		options.put("dist", "uniform");
+		options.put("order", "random");
+		options.put("access", "random");
+		options.put("forks", "2");
+		options.put("warmup", "3");
+		options.put("iterations", "5");
+		boolean child = false;
+		for (String arg : args) {
+			if (arg.equals("--child")) {
+				child = true;
+				continue;
+			}
+			int equals = arg.indexOf('=');
+			if (equals < 0 || !options.containsKey(arg.substring(0, equals))) {
+				System.out.println("Unknown setting: " + arg);
+				return;
+			}
+			options.put(arg.substring(0, equals), arg.substring(equals + 1));
+		}
+		
+		if (child) {
+			run(options, true);
+			return;
+		}
+		System.out.println("Benchmark " + options);
+		Map<String, List<double[]>> samples = new LinkedHashMap<String, List<double[]>>();
+		int forks = Integer.parseInt(options.get("forks"));
+		if (forks == 0) {
+			collect(run(options, false), samples);
+		}
+		for (String set : options.get("sets").split(",")) {
+			for (String size : options.get("sizes").split(",")) {
+				for (int fork = 0; fork < forks; fork++) {
+					Map<String, String> single = new LinkedHashMap<String, String>(options);
+					single.put("sets", set);
+					single.put("sizes", size);
+					collect(fork(single), samples);
+				}
+			}
+		}
+		report(samples);
+	}
+	
+	/**
+	 * Runs every structure, size and operation in this JVM.
+	 *
+	 * @param options The settings
+	 * @param print True to print each result line for a parent JVM to read
+	 * @return The result lines
+	 */
+	static List<String> run(Map<String, String> options, boolean print) {
+		List<String> results = new ArrayList<String>();
+		int warmup = Integer.parseInt(options.get("warmup"));
+		int iterations = Integer.parseInt(options.get("iterations"));
+		String dist = options.get("dist");
+		boolean sorted = options.get("order").equals("sorted");
+		boolean sortedAccess = options.get("access").equals("sorted");
+		for (String size : options.get("sizes").split(",")) {
+			String[] keys = keys(Integer.parseInt(size), dist, sorted);
+			String[] probes = probes(keys, sortedAccess);
+			String[] misses = misses(probes);
+			long[] longKeys = longKeys(Integer.parseInt(size), dist, sorted);
+			long[] longProbes = probes(longKeys, sortedAccess);
+			for (String set : options.get("sets").split(",")) {
+				for (String op : options.get("ops").split(",")) {
+					if (!supports(set, op)) {
+						continue;
+					}
+					boolean primitive = isLong(set);
+					String[] lookups = op.equals("miss") ? misses : probes;
+					for (int i = 0; i < warmup; i++) {
+						if (primitive) {
+							measure(set, op, longKeys, longProbes);
+						}
+						else {
+							measure(set, op, keys, lookups);
+						}
+					}
+					for (int i = 0; i < iterations; i++) {
+						double[] result = primitive ? measure(set, op, longKeys, longProbes) : measure(set, op, keys, lookups);
+						String line = RESULT + "\t" + set + "\t" + size + "\t" + op + "\t" + result[0] + "\t" + result[1]
+								+ "\t" + result[2];
+						results.add(line);
+						if (print) {
+							System.out.println(line);
+						}
+						if (primitive && !op.equals("insert") && !op.equals("delete") && result[2] > 0) {
+							System.out.println("Warning: " + set + " " + op + " allocated " + result[2] + " bytes per operation");
+						}
+					}
+				}
+			}
+		}
+		return results;
+	}
+	
+	/**
+	 * Runs the settings in a new JVM and reads back its result lines.
+	 *
+	 * @param options The settings, naming one structure and one size
+	 * @return The result lines
+	 * @throws IOException if the JVM cannot be started
+	 * @throws InterruptedException if interrupted while waiting for it
+	 */
+	static List<String> fork(Map<String, String> options) throws IOException, InterruptedException {
+		List<String> command = new ArrayList<String>();
+		command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(Benchmark.class.getName());
+		command.add("--child");
+		for (Map.Entry<String, String> option : options.entrySet()) {
+			command.add(option.getKey() + "=" + option.getValue());
+		}
+		Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+		List<String> results = new ArrayList<String>();
+		BufferedReader br = new BufferedReader(new InputStreamReader(process.getInputStream()));
+		String line;
+		while ((line = br.readLine()) != null) {
+			if (line.startsWith(RESULT)) {
+				results.add(line);
+			}
+			else {
+				System.out.println(line); //errors from the fork
+			}
+		}
+		br.close();
+		if (process.waitFor() != 0) {
+			System.out.println("A fork of " + options.get("sets") + " at size " + options.get("sizes") + " failed");
+		}
+		return results;
+	}
+	
+	/**
+	 * Adds result lines to the samples of their structure, size and operation.
+	 *
+	 * @param results The result lines
+	 * @param samples The samples so far
+	 */
+	static void collect(List<String> results, Map<String, List<double[]>> samples) {
+		for (String line : results) {
+			String[] fields = line.split("\t");
+			String name = fields[1] + "\t" + fields[2] + "\t" + fields[3];
+			List<double[]> list = samples.get(name);
+			if (list == null) {
+				list = new ArrayList<double[]>();
+				samples.put(name, list);
+			}
+			list.add(new double[] { Double.parseDouble(fields[4]), Double.parseDouble(fields[5]), Double.parseDouble(fields[6]) });
+		}
+	}
+	
+	/**
+	 * Prints the mean cost of each operation with the spread of its samples,
+	 * the mean key comparisons per operation where they are counted,
+	 * and the mean bytes allocated per operation.
+	 *
+	 * @param samples The nanoseconds, comparisons and bytes per operation of every measured iteration
+	 */
+	static void report(Map<String, List<double[]>> samples) {
+		System.out.printf("%-15s %10s %-8s %14s %12s %10s %10s %8s%n", "structure", "size", "op", "ns/op", "+/- (99%)", "cmp/op", "B/op", "samples");
+		for (Map.Entry<String, List<double[]>> entry : samples.entrySet()) {
+			String[] name = entry.getKey().split("\t");
+			List<double[]> list = entry.getValue();
+			double mean = 0;
+			double comparisons = 0;
+			double bytes = 0;
+			for (double[] sample : list) {
+				mean += sample[0];
+				comparisons += sample[1];
+				bytes += sample[2];
+			}
+			mean /= list.size();
+			comparisons /= list.size();
+			bytes /= list.size();
+			double variance = 0;
+			for (double[] sample : list) {
+				variance += (sample[0] - mean) * (sample[0] - mean);
+			}
+			double error = (list.size() > 1) ? 2.576 * Math.sqrt(variance / (list.size() - 1) / list.size()) : Double.NaN;
+			System.out.printf("%-15s %10s %-8s %14.1f %12.1f %10s %10s %8d%n", name[0], name[1], name[2], mean, error,
+					Double.isNaN(comparisons) ? "-" : String.format("%.1f", comparisons),
+					Double.isNaN(bytes) ? "-" : String.format("%.1f", bytes), list.size());
+		}
+	}
+	
+	/**
+	 * Orders words naturally and counts every comparison.  The skip lists
+	 * are built with one, so the benchmark reports their comparisons per
+	 * operation without the structure paying for a counter outside it.
+	 */
+	static class CountingComparator implements Comparator<String> {
+		
+		/** The number of comparisons made. */
+		long count = 0;
+		
+		public int compare(String a, String b) {
+			count++;
+			return a.compareTo(b);
+		}
+	}
+	
+	/**
+	 * Makes a new, empty structure.
+	 *
+	 * @param name The short name of the structure
+	 * @return The structure
+	 */
+	static DynamicSet<String> newSet(String name) {
+		if (name.startsWith("bloom-")) {
+			return new BloomFilteredSet<String>(newSet(name.substring("bloom-".length())));
+		}
+		else if (name.startsWith("sharded-")) {
+			final String inner = name.substring("sharded-".length());
+			return new ShardedDynamicSet<String>(new ShardedDynamicSet.Factory<String>() {
+				public DynamicSet<String> newSet() {
+					return Benchmark.newSet(inner);
+				}
+			}, Runtime.getRuntime().availableProcessors());
+		}
+		else if (name.equals("list")) {
+			return new DLinkedList<String>();
+		}
+		else if (name.equals("skip")) {
+			return new SkipList<String>(new CountingComparator());
+		}
+		else if (name.equals("fingerskip")) {
+			SkipList<String> list = new SkipList<String>(new CountingComparator());
+			list.setFingerSearch(true);
+			return list;
+		}
+		else if (name.equals("arrayskip")) {
+			return new ArraySkipList<String>();
+		}
+		else if (name.equals("arenaskip")) {
+			return new ArenaSkipList();
+		}
+		else if (name.equals("concurrentskip")) {
+			return new ConcurrentSkipList<String>();
+		}
+		else if (name.equals("bst")) {
+			return new BTree<String>();
+		}
+		else if (name.equals("rbtree")) {
+			return new RBTree<String>();
+		}
+		else if (name.equals("bplus")) {
+			return new BPlusTree<String>();
+		}
+		else if (name.equals("radix")) {
+			return new RadixTree();
+		}
+		else if (name.equals("eytzinger")) {
+			return new EytzingerSet<String>(null);
+		}
+		throw new IllegalArgumentException("Unknown structure: " + name);
+	}
+	
+	/**
+	 * Checks if a structure is keyed by primitive longs.
+	 *
+	 * @param name The short name of the structure
+	 * @return True, if it is
+	 */
+	static boolean isLong(String name) {
+		return name.startsWith("long");
+	}
+	
+	/**
+	 * Makes a new, empty long-keyed structure.
+	 *
+	 * @param name The short name of the structure
+	 * @return The structure
+	 */
+	static LongDynamicSet newLongSet(String name) {
+		if (name.equals("longlist")) {
+			return new LongSortedList();
+		}
+		else if (name.equals("longskip")) {
+			return new LongSkipList();
+		}
+		else if (name.equals("longbtree")) {
+			return new LongBTree();
+		}
+		throw new IllegalArgumentException("Unknown structure: " + name);
+	}
+	
+	/**
+	 * Checks if a structure can run an operation; the read-only ones can
+	 * only be built with bulkLoad.
+	 *
+	 * @param set The short name of the structure
+	 * @param op The operation
+	 * @return True, if it can
+	 */
+	static boolean supports(String set, String op) {
+		if (set.startsWith("bloom-")) {
+			return supports(set.substring("bloom-".length()), op);
+		}
+		if (set.startsWith("sharded-")) {
+			return supports(set.substring("sharded-".length()), op);
+		}
+		if (isLong(set)) {
+			return !op.equals("miss");
+		}
+		return !set.equals("eytzinger") || !(op.equals("insert") || op.equals("delete"));
+	}
+	
+	/**
+	 * Measures one iteration of an operation.  Insert and delete start from a
+	 * fresh structure each batch; the other operations share one structure
+	 * built before the clock starts.
+	 *
+	 * @param set The short name of the structure
+	 * @param op The operation
+	 * @param keys The keys, in input order
+	 * @param probes The keys the read operations and delete look up
+	 * @return The nanoseconds per operation, the key comparisons per
+	 *         operation if the structure was built with a CountingComparator,
+	 *         or else NaN, and the
+	 *         bytes allocated per operation, or NaN if they cannot be counted
+	 */
+	static double[] measure(String set, String op, String[] keys, String[] probes) {
+		long elapsed = 0;
+		long count = 0;
+		long comparisons = 0;
+		long bytes = 0;
+		boolean counted = false;
+		DynamicSet<String> shared = null;
+		while (elapsed < MIN_BATCH_NANOS) {
+			DynamicSet<String> s;
+			if (op.equals("insert")) {
+				s = newSet(set);
+			}
+			else if (op.equals("delete") || shared == null) {
+				s = newSet(set);
+				s.bulkLoad(keys, false);
+				shared = s;
+			}
+			else {
+				s = shared;
+			}
+			Comparator<? super String> order = s.getComparator();
+			CountingComparator counter = (order instanceof CountingComparator) ? (CountingComparator) order : null;
+			long before = (counter != null) ? counter.count : 0;
+			long allocated = Utils.allocatedBytes();
+			long start = System.nanoTime();
+			count += batch(s, op, keys, probes);
+			elapsed += System.nanoTime() - start;
+			bytes += Utils.allocatedBytes() - allocated;
+			if (counter != null) {
+				comparisons += counter.count - before;
+				counted = true;
+			}
+		}
+		return new double[] { (double) elapsed / count, counted ? (double) comparisons / count : Double.NaN,
+				(Utils.THREADS != null) ? (double) bytes / count : Double.NaN };
+	}
+	
+	/**
+	 * Measures one iteration of an operation on a long-keyed structure, the
+	 * same way as for the others.
+	 *
+	 * @param set The short name of the structure
+	 * @param op The operation
+	 * @param keys The keys, in input order
+	 * @param probes The keys the read operations and delete look up
+	 * @return The nanoseconds per operation, NaN for the comparisons, and the
+	 *         bytes allocated per operation, or NaN if they cannot be counted
+	 */
+	static double[] measure(String set, String op, long[] keys, long[] probes) {
+		long elapsed = 0;
+		long count = 0;
+		long bytes = 0;
+		LongDynamicSet shared = null;
+		while (elapsed < MIN_BATCH_NANOS) {
+			LongDynamicSet s;
+			if (op.equals("insert")) {
+				s = newLongSet(set);
+			}
+			else if (op.equals("delete") || shared == null) {
+				s = newLongSet(set);
+				s.bulkLoad(keys, false);
+				shared = s;
+			}
+			else {
+				s = shared;
+			}
+			long allocated = Utils.allocatedBytes();
+			long start = System.nanoTime();
+			count += batch(s, op, keys, probes);
+			elapsed += System.nanoTime() - start;
+			bytes += Utils.allocatedBytes() - allocated;
+		}
+		return new double[] { (double) elapsed / count, Double.NaN, (Utils.THREADS != null) ? (double) bytes / count : Double.NaN };
+	}
+	
+	/**
+	 * Runs one batch of an operation.
+	 *
+	 * @param set The structure
+	 * @param op The operation
+	 * @param keys The keys, in input order
+	 * @param probes The keys to look up
+	 * @return The number of operations run
+	 */
+	static int batch(DynamicSet<String> set, String op, String[] keys, String[] probes) {
+		int h = 0;
+		if (op.equals("insert")) {
+			for (String key : keys) {
+				set.insert(key, null);
+			}
+			h = set.size();
+			sink += h;
+			return keys.length;
+		}
+		else if (op.equals("min") || op.equals("max")) {
+			boolean min = op.equals("min");
+			for (int i = 0; i < probes.length; i++) {
+				h += System.identityHashCode(min ? set.minimum() : set.maximum());
+			}
+			sink += h;
+			return probes.length;
+		}
+		for (String key : probes) {
+			if (op.equals("search") || op.equals("miss")) {
+				h += System.identityHashCode(set.search(key));
+			}
+			else if (op.equals("pred")) {
+				h += System.identityHashCode(set.predecessor(key));
+			}
+			else if (op.equals("succ")) {
+				h += System.identityHashCode(set.successor(key));
+			}
+			else if (op.equals("delete")) {
+				set.delete(key);
+			}
+			else {
+				throw new IllegalArgumentException("Unknown operation: " + op);
+			}
+		}
+		sink += h;
+		return probes.length;
+	}
+	
+	/**
+	 * Runs one batch of an operation on a long-keyed structure.  The
+	 * successor of the maximum and the predecessor of the minimum are
+	 * skipped, since asking for them throws.
+	 *
+	 * @param set The structure
+	 * @param op The operation
+	 * @param keys The keys, in input order
+	 * @param probes The keys to look up
+	 * @return The number of operations run
+	 */
+	static int batch(LongDynamicSet set, String op, long[] keys, long[] probes) {
+		long h = 0;
+		if (op.equals("insert")) {
+			for (long key : keys) {
+				set.insert(key);
+			}
+			sink += set.size();
+			return keys.length;
+		}
+		else if (op.equals("min") || op.equals("max")) {
+			boolean min = op.equals("min");
+			for (int i = 0; i < probes.length; i++) {
+				h += min ? set.minimum() : set.maximum();
+			}
+			sink += (int) h;
+			return probes.length;
+		}
+		long minimum = (set.size() == 0) ? 0 : set.minimum();
+		long maximum = (set.size() == 0) ? 0 : set.maximum();
+		for (long key : probes) {
+			if (op.equals("search")) {
+				h += set.search(key) ? 1 : 0;
+			}
+			else if (op.equals("pred")) {
+				h += (key > minimum) ? set.predecessor(key) : 0;
+			}
+			else if (op.equals("succ")) {
+				h += (key < maximum) ? set.successor(key) : 0;
+			}
+			else if (op.equals("delete")) {
+				set.delete(key);
+			}
+			else {
+				throw new IllegalArgumentException("Unknown operation: " + op);
+			}
+		}
+		sink += (int) h;
+		return probes.length;
+	}
+	
+	/**
+	 * Makes distinct keys.
+	 *
+	 * @param n The number of keys
+	 * @param dist uniform for random words, sequential for numbered words,
+	 *        or clustered for random words grouped under a few shared prefixes
+	 * @param sorted True to return them in order instead of shuffled
+	 * @return The keys
+	 */
+	static String[] keys(int n, String dist, boolean sorted) {
+		Random random = new Random(SEED);
+		HashSet<String> seen = new HashSet<String>();
+		String[] keys = new String[n];
+		int clusters = Math.max(1, n / 1000);
+		for (int i = 0; i < n; ) {
+			String key;
+			if (dist.equals("sequential")) {
+				key = String.format("w%09d", i);
+			}
+			else if (dist.equals("clustered")) {
+				key = word(new Random(SEED + random.nextInt(clusters)), 8) + word(random, 4);
+			}
+			else if (dist.equals("uniform")) {
+				key = word(random, 4 + random.nextInt(9));
+			}
+			else {
+				throw new IllegalArgumentException("Unknown distribution: " + dist);
+			}
+			if (seen.add(key)) {
+				keys[i++] = key;
+			}
+		}
+		if (sorted) {
+			Arrays.sort(keys);
+		}
+		else {
+			Collections.shuffle(Arrays.asList(keys), random);
+		}
+		return keys;
+	}
+	
+	/**
+	 * Makes distinct numeric keys, the long-keyed counterpart of keys.
+	 *
+	 * @param n The number of keys
+	 * @param dist uniform for random longs, sequential for 0 to n - 1, or
+	 *        clustered for runs of nearby numbers under a few random bases
+	 * @param sorted True to return them in order instead of shuffled
+	 * @return The keys
+	 */
+	static long[] longKeys(int n, String dist, boolean sorted) {
+		Random random = new Random(SEED);
+		HashSet<Long> seen = new HashSet<Long>();
+		long[] keys = new long[n];
+		int clusters = Math.max(1, n / 1000);
+		for (int i = 0; i < n; ) {
+			long key;
+			if (dist.equals("sequential")) {
+				key = i;
+			}
+			else if (dist.equals("clustered")) {
+				key = new Random(SEED + random.nextInt(clusters)).nextLong() + random.nextInt(1 << 20);
+			}
+			else if (dist.equals("uniform")) {
+				key = random.nextLong();
+			}
+			else {
+				throw new IllegalArgumentException("Unknown distribution: " + dist);
+			}
+			if (seen.add(key)) {
+				keys[i++] = key;
+			}
+		}
+		if (sorted) {
+			Arrays.sort(keys);
+		}
+		else {
+			for (int i = n - 1; i > 0; i--) {
+				int j = random.nextInt(i + 1);
+				long swap = keys[i];
+				keys[i] = keys[j];
+				keys[j] = swap;
+			}
+		}
+		return keys;
+	}
+	
+	/**
+	 * Makes a random lower case word.
+	 *
+	 * @param random The source of letters
+	 * @param length The length
+	 * @return The word
+	 */
+	static String word(Random random, int length) {
+		char[] letters = new char[length];
+		for (int i = 0; i < length; i++) {
+			letters[i] = (char) ('a' + random.nextInt(26));
+		}
+		return new String(letters);
+	}
+	
+	/**
+	 * Picks the keys to look up, in an order unrelated to the input order.
+	 *
+	 * @param keys The keys
+	 * @param sorted True to look them up in key order, each one near the last
+	 * @return Up to MAX_PROBES of the keys
+	 */
+	static String[] probes(String[] keys, boolean sorted) {
+		String[] probes = Arrays.copyOf(keys, keys.length);
+		Collections.shuffle(Arrays.asList(probes), new Random(SEED + 1));
+		if (probes.length > MAX_PROBES) {
+			probes = Arrays.copyOf(probes, MAX_PROBES);
+		}
+		if (sorted) {
+			Arrays.sort(probes);
+		}
+		return probes;
+	}
+	
+	/**
+	 * Makes keys that are not in the set, one per probe, by putting a
+	 * capital letter, which no generated key has, after each probe.  Each
+	 * sorts just after its probe, so a search for it goes as deep as a
+	 * search for a key that is there.
+	 *
+	 * @param probes The keys to look up
+	 * @return The missing keys
+	 */
+	static String[] misses(String[] probes) {
+		String[] misses = new String[probes.length];
+		for (int i = 0; i < probes.length; i++) {
+			misses[i] = probes[i] + (char) ('A' + i % 26);
+		}
+		return misses;
+	}
+	
+	/**
+	 * Picks the numeric keys to look up, the same way as for words.
+	 *
+	 * @param keys The keys
+	 * @param sorted True to look them up in key order
+	 * @return Up to MAX_PROBES of the keys
+	 */
+	static long[] probes(long[] keys, boolean sorted) {
+		long[] probes = Arrays.copyOf(keys, keys.length);
+		Random random = new Random(SEED + 1);
+		for (int i = probes.length - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			long swap = probes[i];
+			probes[i] = probes[j];
+			probes[j] = swap;
+		}
+		if (probes.length > MAX_PROBES) {
+			probes = Arrays.copyOf(probes, MAX_PROBES);
+		}
+		if (sorted) {
+			Arrays.sort(probes);
+		}
+		return probes;
+	}
+}
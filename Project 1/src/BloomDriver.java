@@ -0,0 +1,118 @@
+
+
+/*
+ * Copyright (c) 2013, Erika Nana
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Project 1 nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY Erika Nana ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL Erika Nana BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+/**
+ * Checks a BloomFilteredSet in front of a set that compares folded keys.
+ * The filter must hash the same folded form the set compares, so a key
+ * inserted in one case is found and deleted in any other, both before and
+ * after the filter is rebuilt from the set.
+ *
+ * Usage:  java BloomDriver [keys]
+ *
+ * @author Erika Nana
+ */
+public class BloomDriver {
+	
+	/** The number of keys by default. */
+	static final int DEFAULT_KEYS = 20000;
+	
+	/**
+	 * Runs the checks, and exits with status 1 if any failed.
+	 *
+	 * @param args The number of keys
+	 */
+	public static void main(String[] args) {
+		int keys = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_KEYS;
+		int failed = 0;
+		
+		BTree<String> tree = new BTree<String>(null, Utils.FOLD_CASE);
+		BloomFilteredSet<String> set = new BloomFilteredSet<String>(tree, Utils.FOLD_CASE);
+		set.insert("Apple", null);
+		failed += check(found(set.search("apple"), "Apple"), "search(\"apple\") finds \"Apple\"");
+		failed += check(found(set.search("APPLE"), "Apple"), "search(\"APPLE\") finds \"Apple\"");
+		set.delete("apple");
+		failed += check(tree.size() == 0 && tree.search("Apple") == null, "delete(\"apple\") removes \"Apple\"");
+		
+		//mixed case on the way in, the other case on the way out, across rebuilds
+		for (int i = 0; i < keys; i++) {
+			set.insert(key(i, i % 2 == 0), null);
+		}
+		int missing = 0;
+		for (int i = 0; i < keys; i++) {
+			if (!found(set.search(key(i, i % 2 != 0)), key(i, i % 2 == 0))) {
+				missing++;
+			}
+		}
+		failed += check(missing == 0, "every key found in the other case, " + missing + " of " + keys + " missing");
+		for (int i = 0; i < keys; i += 2) {
+			set.delete(key(i, false));
+		}
+		failed += check(tree.size() == keys / 2, "deletes in the other case remove half the keys, " + tree.size() + " left");
+		failed += check(set.getRebuilds() > 1, "the filter was rebuilt along the way");
+		
+		System.out.println((failed == 0) ? "all checks passed" : failed + " checks failed");
+		if (failed > 0) {
+			System.exit(1);
+		}
+	}
+	
+	/**
+	 * Makes the key for a number in upper or lower case.
+	 *
+	 * @param i The number
+	 * @param upper True for upper case
+	 * @return The key
+	 */
+	static String key(int i, boolean upper) {
+		return String.format(upper ? "KEY%07d" : "key%07d", i);
+	}
+	
+	/**
+	 * Checks that a search found a node holding a key as it was inserted.
+	 *
+	 * @param result What search returned
+	 * @param key The key as inserted
+	 * @return True, if the result is that key's node
+	 */
+	static boolean found(Object result, String key) {
+		return result != null && key.equals(((BNode<?>) result).getKey());
+	}
+	
+	/**
+	 * Prints a check that failed.
+	 *
+	 * @param ok Whether the check passed
+	 * @param what What was checked
+	 * @return 0 if it passed, 1 if not
+	 */
+	static int check(boolean ok, String what) {
+		if (!ok) {
+			System.out.println("failed: " + what);
+		}
+		return ok ? 0 : 1;
+	}
+}
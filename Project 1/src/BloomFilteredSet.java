@@ -0,0 +1,465 @@
+
+
+/*
+ * Copyright (c) 2013, Erika Nana
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Project 1 nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY Erika Nana ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL Erika Nana BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.UnaryOperator;
+
+/**
+ * Puts a bloom filter in front of any DynamicSet, so a search for a key
+ * that is not in the set usually costs a few memory reads instead of a
+ * walk down the structure.  A "no" from the filter is certain and search
+ * returns null at once; a "maybe" goes on to the set.
+ *
+ * The filter is blocked: each key hashes to one block of 512 bits, a
+ * cache line, and sets or tests all of its bits inside that block, so a
+ * lookup touches one line of memory however many bits it checks.  This
+ * costs a little accuracy over a plain bloom filter for the same size.
+ *
+ * Bits cannot be taken out of a bloom filter, so a deleted key stays in it
+ * and its searches fall through to the set as false positives.  Once the
+ * deletes since the last rebuild pass a quarter of the keys, or the keys
+ * added pass what the filter was sized for, the filter is rebuilt from the
+ * set's cursor.
+ *
+ * The counters tell how well the filter is sized: misses the filter
+ * answered, hits the set answered, and false positives, the searches the
+ * filter let through for keys the set did not have.
+ *
+ * Keys the set calls equal must hash alike, or the filter would answer a
+ * certain "no" for a key the set has.  String keys under either string
+ * order do.  A set that compares folded keys, such as a BTree built with
+ * Utils.FOLD_CASE, calls "Apple" and "apple" equal though their hash codes
+ * differ, so give the filter the same fold: it then hashes each key's
+ * folded form, e.g. new BloomFilteredSet<String>(tree, Utils.FOLD_CASE).
+ *
+ * @author Erika Nana
+ * @param <Type> the generic type
+ */
+public class BloomFilteredSet<Type> implements DynamicSet<Type> {
+	
+	/** The false positive rate the filter is sized for by default. */
+	public static final double DEFAULT_FALSE_POSITIVE_RATE = 0.01;
+	
+	/** The fewest keys the filter is sized for. */
+	private static final int MIN_KEYS = 1024;
+	
+	/** The longs in a block; 8 longs are 512 bits, one cache line. */
+	private static final int BLOCK_LONGS = 8;
+	
+	/** The set behind the filter. */
+	private final DynamicSet<Type> set;
+	
+	/** The fold the set applies before it compares keys, or null for none. */
+	private final UnaryOperator<Type> fold;
+	
+	/** The false positive rate the filter is sized for. */
+	private final double falsePositiveRate;
+	
+	/** The bits, BLOCK_LONGS longs per block. */
+	private long[] bits;
+	
+	/** The number of blocks minus one; the number of blocks is a power of two. */
+	private int blockMask;
+	
+	/** The number of bits each key sets in its block. */
+	private int hashes;
+	
+	/** The number of keys the filter was sized for. */
+	private int capacity;
+	
+	/** The number of keys added since the last rebuild. */
+	private int added;
+	
+	/** The number of keys deleted since the last rebuild. */
+	private int deleted;
+	
+	/** The searches the set answered with its key. */
+	private long hits = 0;
+	
+	/** The searches the filter answered. */
+	private long misses = 0;
+	
+	/** The searches the filter let through for keys the set did not have. */
+	private long falsePositives = 0;
+	
+	/** The number of times the filter has been rebuilt. */
+	private long rebuilds = 0;
+	
+	/**
+	 * Puts a filter sized for the default false positive rate in front of a set.
+	 *
+	 * @param set The set; its keys are added to the filter
+	 */
+	public BloomFilteredSet(DynamicSet<Type> set) {
+		this(set, DEFAULT_FALSE_POSITIVE_RATE, null);
+	}
+	
+	/**
+	 * Puts a filter sized for the default false positive rate in front of a
+	 * set that compares folded keys.
+	 *
+	 * @param set The set; its keys are added to the filter
+	 * @param fold The fold the set was built with, or null for none
+	 */
+	public BloomFilteredSet(DynamicSet<Type> set, UnaryOperator<Type> fold) {
+		this(set, DEFAULT_FALSE_POSITIVE_RATE, fold);
+	}
+	
+	/**
+	 * Puts a filter in front of a set.
+	 *
+	 * @param set The set; its keys are added to the filter
+	 * @param falsePositiveRate The share of searches for missing keys the
+	 *        filter may let through, between 0 and 1
+	 */
+	public BloomFilteredSet(DynamicSet<Type> set, double falsePositiveRate) {
+		this(set, falsePositiveRate, null);
+	}
+	
+	/**
+	 * Puts a filter in front of a set that compares folded keys.
+	 *
+	 * @param set The set; its keys are added to the filter
+	 * @param falsePositiveRate The share of searches for missing keys the
+	 *        filter may let through, between 0 and 1
+	 * @param fold The fold the set was built with, or null for none
+	 */
+	public BloomFilteredSet(DynamicSet<Type> set, double falsePositiveRate, UnaryOperator<Type> fold) {
+		if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+			throw new IllegalArgumentException("The false positive rate must be between 0 and 1");
+		}
+		this.set = set;
+		this.falsePositiveRate = falsePositiveRate;
+		this.fold = fold;
+		rebuild();
+	}
+	
+	/**
+	 * Sizes a new filter for twice the keys in the set and adds them all.
+	 */
+	public void rebuild() {
+		capacity = Math.max(MIN_KEYS, 2 * set.size());
+		double bitsPerKey = -Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+		hashes = Math.max(1, (int) Math.round(bitsPerKey * Math.log(2)));
+		long blocks = Long.highestOneBit((long) Math.ceil(capacity * bitsPerKey / 512) * 2 - 1);
+		bits = new long[(int) blocks * BLOCK_LONGS];
+		blockMask = (int) blocks - 1;
+		added = 0;
+		deleted = 0;
+		Cursor<Type> cursor = set.cursor(null, null);
+		while (cursor.next()) {
+			add(cursor.key());
+		}
+		rebuilds++;
+	}
+	
+	/**
+	 * Spreads a hash code over all 64 bits; the finalizer of MurmurHash3.
+	 *
+	 * @param h The hash code
+	 * @return The mixed hash
+	 */
+	private static long mix(long h) {
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+	
+	/**
+	 * Hashes a key in the form the set compares, so keys the set calls
+	 * equal land on the same bits.
+	 *
+	 * @param key The key
+	 * @return The mixed hash of the key, folded if the set folds
+	 */
+	private long hash(Type key) {
+		return mix(((fold == null) ? key : fold.apply(key)).hashCode());
+	}
+	
+	/**
+	 * Sets the bits of a key.
+	 *
+	 * @param key The key
+	 */
+	private void add(Type key) {
+		long h = hash(key);
+		int block = ((int) (h >>> 32) & blockMask) * BLOCK_LONGS;
+		int a = (int) h;
+		int b = (int) (h >>> 17) | 1;
+		for (int i = 0; i < hashes; i++) {
+			int bit = (a + i * b) & 511;
+			bits[block + (bit >>> 6)] |= 1L << bit;
+		}
+		added++;
+	}
+	
+	/**
+	 * Tests the bits of a key.
+	 *
+	 * @param key The key
+	 * @return False if the key is certainly not in the set; true if it may be
+	 */
+	public boolean mightContain(Type key) {
+		long h = hash(key);
+		int block = ((int) (h >>> 32) & blockMask) * BLOCK_LONGS;
+		int a = (int) h;
+		int b = (int) (h >>> 17) | 1;
+		for (int i = 0; i < hashes; i++) {
+			int bit = (a + i * b) & 511;
+			if ((bits[block + (bit >>> 6)] & (1L << bit)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Checks if what the set's search returned holds the key.  SkipList
+	 * returns the entry at or before the key rather than null, so its
+	 * entry's key is compared; every other set returns null for a missing key.
+	 *
+	 * @param result What search returned
+	 * @param key The key searched for
+	 * @return True, if the key was found
+	 */
+	@SuppressWarnings("unchecked")
+	private boolean found(Object result, Type key) {
+		if (result instanceof SkipListEntry) {
+			SkipListEntry<Type> entry = (SkipListEntry<Type>) result;
+			return entry.key != SkipListEntry.negInf && set.getComparator().compare(entry.key, key) == 0;
+		}
+		return result != null;
+	}
+	
+	/**
+	 * Gets the number of searches the set answered with its key.
+	 *
+	 * @return The hits
+	 */
+	public long getHits() {
+		return hits;
+	}
+	
+	/**
+	 * Gets the number of searches the filter answered on its own.
+	 *
+	 * @return The misses
+	 */
+	public long getMisses() {
+		return misses;
+	}
+	
+	/**
+	 * Gets the number of searches the filter let through for keys the set
+	 * did not have, deleted keys included.
+	 *
+	 * @return The false positives
+	 */
+	public long getFalsePositives() {
+		return falsePositives;
+	}
+	
+	/**
+	 * Gets the share of searches for missing keys that got past the filter;
+	 * well above the rate it was sized for means it needs rebuilding.
+	 *
+	 * @return The observed false positive rate, or 0 before any such search
+	 */
+	public double getFalsePositiveRate() {
+		long absent = misses + falsePositives;
+		return (absent == 0) ? 0 : (double) falsePositives / absent;
+	}
+	
+	/**
+	 * Gets the number of times the filter has been built.
+	 *
+	 * @return The rebuilds, the first build included
+	 */
+	public long getRebuilds() {
+		return rebuilds;
+	}
+	
+	/**
+	 * Gets the size of the filter.
+	 *
+	 * @return The bytes of bits
+	 */
+	public long getFilterBytes() {
+		return (long) bits.length * 8;
+	}
+	
+	/**
+	 * Sets the hit, miss and false positive counters back to zero.
+	 */
+	public void resetCounters() {
+		hits = 0;
+		misses = 0;
+		falsePositives = 0;
+	}
+	
+	/**
+	 * Gets the set behind the filter.
+	 *
+	 * @return The set
+	 */
+	public DynamicSet<Type> getSet() {
+		return set;
+	}
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#size()
+	 */
+	
+	public int size() {
+		return set.size();
+	}
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#getComparator()
+	 */
+	
+	public Comparator<? super Type> getComparator() {
+		return set.getComparator();
+	}
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#insert(java.lang.Object, java.lang.Object)
+	 */
+	
+	public void insert(Type key, Object e) {
+		set.insert(key, e);
+		if (added >= capacity) {
+			rebuild(); //the set holds the key by now
+		}
+		else {
+			add(key);
+		}
+	}
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#bulkLoad(java.lang.Object[], boolean)
+	 */
+	
+	public void bulkLoad(Type[] keys, boolean presorted) {
+		set.bulkLoad(keys, presorted);
+		rebuild();
+	}
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#delete(java.lang.Object)
+	 */
+	
+	public void delete(Type key) {
+		if (!mightContain(key)) {
+			return; //not in the set, so nothing to take out
+		}
+		int before = set.size();
+		set.delete(key);
+		if (set.size() == before) {
+			return; //a false positive; the filter holds no stale bits for it
+		}
+		deleted++;
+		if (deleted > set.size() / 4 && deleted > MIN_KEYS / 4) {
+			rebuild();
+		}
+	}
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#search(java.lang.Object)
+	 *
+	 * Returns null at once when the filter rules the key out, even from a
+	 * SkipList, whose own search would return the entry before the key.
+	 */
+	
+	public Object search(Type key) {
+		if (!mightContain(key)) {
+			misses++;
+			return null;
+		}
+		Object result = set.search(key);
+		if (found(result, key)) {
+			hits++;
+		}
+		else {
+			falsePositives++;
+		}
+		return result;
+	}
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#minimum()
+	 */
+	
+	public Object minimum() {
+		return set.minimum();
+	}
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#maximum()
+	 */
+	
+	public Object maximum() {
+		return set.maximum();
+	}
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#successor(java.lang.Object)
+	 */
+	
+	public Object successor(Type key) {
+		return set.successor(key);
+	}
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#predecessor(java.lang.Object)
+	 */
+	
+	public Object predecessor(Type key) {
+		return set.predecessor(key);
+	}
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#cursor(java.lang.Object, java.lang.Object)
+	 */
+	
+	public Cursor<Type> cursor(Type fromKey, Type toKey) {
+		return set.cursor(fromKey, toKey);
+	}
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#spliterator()
+	 */
+	
+	public Spliterator<Type> spliterator() {
+		return set.spliterator();
+	}
+}
@@ -0,0 +1,334 @@
+
+
+/*
+ * Copyright (c) 2013, Erika Nana
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Project 1 nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY Erika Nana ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL Erika Nana BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stress tests the ConcurrentSkipList from many threads and measures its
+ * read throughput against a SkipList behind one global lock, and that of
+ * the StampedBTree against a BTree behind one global lock.
+ *
+ * Usage:  java ConcurrentDriver [stress | bench] [keys] [seconds]
+ *
+ * @author Erika Nana
+ */
+public class ConcurrentDriver {
+	
+	/** The number of keys used by default. */
+	static final int DEFAULT_KEYS = 100000;
+	
+	/** How long each benchmark run lasts, in seconds, by default. */
+	static final int DEFAULT_SECONDS = 2;
+	
+	/**
+	 * Runs the stress test, the benchmark, or both.
+	 *
+	 * @param args The mode, the number of keys and the seconds per benchmark run
+	 * @throws InterruptedException if interrupted while waiting for the workers
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		String mode = (args.length > 0) ? args[0] : "all";
+		int keys = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_KEYS;
+		int seconds = (args.length > 2) ? Integer.parseInt(args[2]) : DEFAULT_SECONDS;
+		
+		if (!mode.equals("bench")) {
+			stress(keys);
+		}
+		if (!mode.equals("stress")) {
+			benchmark(keys, seconds);
+		}
+	}
+	
+	/**
+	 * Makes the key for a number; zero padded so string order matches number order.
+	 *
+	 * @param i The number
+	 * @return The key
+	 */
+	static String key(int i) {
+		return String.format("w%09d", i);
+	}
+	
+	/**
+	 * Hammers one list from every core and checks that it ends up consistent.
+	 * Each writer owns a slice of the keys: it inserts them all, deletes the
+	 * odd ones, and re-inserts a few, while readers search the whole range.
+	 *
+	 * @param keys The number of keys
+	 * @throws InterruptedException if interrupted while waiting for the workers
+	 */
+	static void stress(final int keys) throws InterruptedException {
+		final ConcurrentSkipList<String> list = new ConcurrentSkipList<String>();
+		final int writers = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+		final int readers = writers;
+		final AtomicBoolean done = new AtomicBoolean(false);
+		final AtomicLong failures = new AtomicLong();
+		final CountDownLatch start = new CountDownLatch(1);
+		List<Thread> writerThreads = new ArrayList<Thread>();
+		List<Thread> readerThreads = new ArrayList<Thread>();
+		
+		for (int w = 0; w < writers; w++) {
+			final int id = w;
+			writerThreads.add(new Thread() {
+				public void run() {
+					await(start);
+					for (int i = id; i < keys; i += writers) {
+						list.insert(key(i), null);
+					}
+					for (int i = id; i < keys; i += writers) {
+						if (i % 2 == 1) {
+							list.delete(key(i));
+						}
+					}
+					for (int i = id; i < keys; i += writers) {
+						if (i % 10 == 1) {
+							list.insert(key(i), null);
+						}
+					}
+				}
+			});
+		}
+		for (int r = 0; r < readers; r++) {
+			readerThreads.add(new Thread() {
+				public void run() {
+					await(start);
+					ThreadLocalRandom random = ThreadLocalRandom.current();
+					while (!done.get()) {
+						String k = key(random.nextInt(keys));
+						Object node = list.search(k);
+						//anything a search hands back must carry the key asked for
+						if (node != null && !((ConcurrentSkipListNode<?>) node).getKey().equals(k)) {
+							failures.incrementAndGet();
+						}
+						Object next = list.successor(k);
+						if (next != null && ((String) ((ConcurrentSkipListNode<?>) next).getKey()).compareTo(k) <= 0) {
+							failures.incrementAndGet();
+						}
+					}
+				}
+			});
+		}
+		long begin = System.nanoTime();
+		startAll(writerThreads);
+		startAll(readerThreads);
+		start.countDown();
+		joinAll(writerThreads);
+		done.set(true);
+		joinAll(readerThreads);
+		
+		//even keys survive, and odd keys come back only where i % 10 == 1
+		int expected = 0;
+		for (int i = 0; i < keys; i++) {
+			boolean present = (i % 2 == 0) || (i % 10 == 1);
+			if (present) {
+				expected++;
+			}
+			if ((list.search(key(i)) != null) != present) {
+				failures.incrementAndGet();
+			}
+		}
+		//the bottom level must be strictly increasing and as long as size says
+		int walked = 0;
+		String previous = null;
+		Object node = list.minimum();
+		while (node != null) {
+			String k = (String) ((ConcurrentSkipListNode<?>) node).getKey();
+			if (previous != null && previous.compareTo(k) >= 0) {
+				failures.incrementAndGet();
+			}
+			previous = k;
+			walked++;
+			node = list.successor(k);
+		}
+		if (walked != expected || list.size() != expected) {
+			failures.incrementAndGet();
+		}
+		System.out.printf("stress:  %d writers, %d readers, %d keys, %.1f ms, %s\n", writers, readers, keys,
+				(System.nanoTime() - begin) / 1e6, failures.get() == 0 ? "OK" : failures.get() + " FAILURES");
+		if (failures.get() != 0) {
+			System.exit(1);
+		}
+	}
+	
+	/**
+	 * Measures read throughput with one writer and a growing number of readers.
+	 *
+	 * @param keys The number of keys loaded before the clock starts
+	 * @param seconds How long each run lasts
+	 * @throws InterruptedException if interrupted while waiting for the workers
+	 */
+	static void benchmark(int keys, int seconds) throws InterruptedException {
+		int cores = Runtime.getRuntime().availableProcessors();
+		System.out.printf("benchmark:  %d keys, 1 writer, %d s per run, %d cores\n", keys, seconds, cores);
+		System.out.println("readers | locked SkipList (reads/s) | ConcurrentSkipList (reads/s)");
+		for (int readers = 1; readers <= cores; readers *= 2) {
+			double locked = run(new LockedSet<String>(new SkipList<String>()), keys, readers, seconds);
+			double lockFree = run(new ConcurrentSkipList<String>(), keys, readers, seconds);
+			System.out.printf("%7d | %25.3e | %28.3e\n", readers, locked, lockFree);
+		}
+		System.out.println("readers | locked BTree (reads/s)    | StampedBTree (reads/s)");
+		for (int readers = 1; readers <= cores; readers *= 2) {
+			double locked = run(new LockedSet<String>(new BTree<String>()), keys, readers, seconds);
+			double stamped = run(new StampedBTree<String>(), keys, readers, seconds);
+			System.out.printf("%7d | %25.3e | %22.3e\n", readers, locked, stamped);
+		}
+	}
+	
+	/**
+	 * Runs readers against a set while one writer keeps inserting and deleting.
+	 *
+	 * @param set The set, empty
+	 * @param keys The number of keys
+	 * @param readers The number of reader threads
+	 * @param seconds How long the run lasts
+	 * @return The searches per second across all readers
+	 * @throws InterruptedException if interrupted while waiting for the workers
+	 */
+	static double run(final DynamicSet<String> set, final int keys, int readers, int seconds)
+			throws InterruptedException {
+		//load every even key, balanced; the writer churns the odd ones
+		String[] even = new String[(keys + 1) / 2];
+		for (int i = 0; i < even.length; i++) {
+			even[i] = key(2 * i);
+		}
+		set.bulkLoad(even, true);
+		final AtomicBoolean done = new AtomicBoolean(false);
+		final AtomicLong reads = new AtomicLong();
+		final CountDownLatch start = new CountDownLatch(1);
+		List<Thread> threads = new ArrayList<Thread>();
+		
+		threads.add(new Thread() {
+			public void run() {
+				await(start);
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				while (!done.get()) {
+					String k = key(random.nextInt(keys / 2) * 2 + 1);
+					set.insert(k, null);
+					set.delete(k);
+				}
+			}
+		});
+		for (int r = 0; r < readers; r++) {
+			threads.add(new Thread() {
+				public void run() {
+					await(start);
+					ThreadLocalRandom random = ThreadLocalRandom.current();
+					long count = 0;
+					while (!done.get()) {
+						set.search(key(random.nextInt(keys)));
+						count++;
+					}
+					reads.addAndGet(count);
+				}
+			});
+		}
+		startAll(threads);
+		long begin = System.nanoTime();
+		start.countDown();
+		Thread.sleep(seconds * 1000L);
+		done.set(true);
+		joinAll(threads);
+		return reads.get() / ((System.nanoTime() - begin) / 1e9);
+	}
+	
+	/**
+	 * Waits for the start signal.
+	 *
+	 * @param start The latch to wait on
+	 */
+	static void await(CountDownLatch start) {
+		try {
+			start.await();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	/**
+	 * Starts every thread in the list.
+	 *
+	 * @param threads The threads
+	 */
+	static void startAll(List<Thread> threads) {
+		for (Thread t : threads) {
+			t.start();
+		}
+	}
+	
+	/**
+	 * Waits for every thread in the list to finish.
+	 *
+	 * @param threads The threads
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	static void joinAll(List<Thread> threads) throws InterruptedException {
+		for (Thread t : threads) {
+			t.join();
+		}
+	}
+	
+	/**
+	 * Guards every operation of a set with one lock, the way the service
+	 * shares a SkipList today.
+	 *
+	 * @param <Type> the generic type
+	 */
+	static class LockedSet<Type> implements DynamicSet<Type> {
+		
+		/** The set being guarded. */
+		private final DynamicSet<Type> set;
+		
+		/**
+		 * Instantiates a new locked set.
+		 *
+		 * @param set The set to guard
+		 */
+		LockedSet(DynamicSet<Type> set) {
+			this.set = set;
+		}
+		
+		public synchronized int size() { return set.size(); }
+		public Comparator<? super Type> getComparator() { return set.getComparator(); }
+		public synchronized void insert(Type key, Object e) { set.insert(key, e); }
+		public synchronized void bulkLoad(Type[] keys, boolean presorted) { set.bulkLoad(keys, presorted); }
+		public synchronized void delete(Type key) { set.delete(key); }
+		public synchronized Object search(Type key) { return set.search(key); }
+		public synchronized Object minimum() { return set.minimum(); }
+		public synchronized Object maximum() { return set.maximum(); }
+		public synchronized Object successor(Type key) { return set.successor(key); }
+		public synchronized Object predecessor(Type key) { return set.predecessor(key); }
+		public synchronized Cursor<Type> cursor(Type fromKey, Type toKey) { return set.cursor(fromKey, toKey); }
+	}
+}
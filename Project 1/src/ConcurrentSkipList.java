@@ -0,0 +1,427 @@
+
+
+/*
+ * Copyright (c) 2013, Erika Nana
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Project 1 nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY Erika Nana ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL Erika Nana BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+import java.util.Comparator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A skip list that many threads can read and update at once without locks.
+ * Links are changed with compare-and-set, and a node is deleted by first
+ * marking its links and then unlinking it.  Searches never write and never
+ * retry, so they are wait-free; insert and delete retry only when another
+ * thread changed the same links, so they are lock-free.
+ * Based on the LockFreeSkipList in The Art of Multiprocessor Programming
+ * by Herlihy and Shavit.
+ *
+ * @author Erika Nana
+ * @param <Type> the generic type
+ */
+public class ConcurrentSkipList<Type> implements DynamicSet<Type> {
+	
+	/** The highest level a tower can reach. */
+	public static final int MAX_LEVEL = 31;
+	
+	/** The first node of every level. */
+	private final ConcurrentSkipListNode<Type> head;
+	
+	/** The last node of every level. */
+	private final ConcurrentSkipListNode<Type> tail;
+	
+	/** The number of entries in the skip list. */
+	private final AtomicInteger size = new AtomicInteger();
+	
+	/** The order of the keys. */
+	private final Comparator<? super Type> comparator;
+	
+	/**
+	 * Instantiates a new concurrent skip list ordered by the keys' natural order.
+	 */
+	public ConcurrentSkipList() {
+		this(null);
+	}
+	
+	/**
+	 * Instantiates a new concurrent skip list.
+	 *
+	 * @param comparator The order of the keys, or null for their natural order
+	 */
+	public ConcurrentSkipList(Comparator<? super Type> comparator) {
+		this.comparator = Utils.orNatural(comparator);
+		head = new ConcurrentSkipListNode<Type>(null, MAX_LEVEL);
+		tail = new ConcurrentSkipListNode<Type>(null, MAX_LEVEL);
+		for (int i = 0; i <= MAX_LEVEL; i++) {
+			head.next[i].set(tail, false);
+		}
+	}
+	
+	/**
+	 * Returns whether or not the list is empty.
+	 *
+	 * @return True, if is empty
+	 */
+	public boolean isEmpty() {
+		return size.get() == 0;
+	}
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#size()
+	 */
+	
+	public int size() {
+		return size.get();
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#getComparator()
+	 */
+	
+	public Comparator<? super Type> getComparator() {
+		return comparator;
+	}
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#insert(java.lang.Object, java.lang.Object)
+	 */
+	
+	public void insert(Type key, Object e) {
+		int topLevel = randomLevel();
+		ConcurrentSkipListNode<Type>[] preds = ConcurrentSkipListNode.newArray(MAX_LEVEL + 1);
+		ConcurrentSkipListNode<Type>[] succs = ConcurrentSkipListNode.newArray(MAX_LEVEL + 1);
+		
+		while (true) {
+			if (find(key, preds, succs)) {
+				return; //already in the set
+			}
+			ConcurrentSkipListNode<Type> node = new ConcurrentSkipListNode<Type>(key, topLevel);
+			for (int level = 0; level <= topLevel; level++) {
+				node.next[level].set(succs[level], false);
+			}
+			//the node is in the set once it is linked at the bottom level
+			if (!preds[0].next[0].compareAndSet(succs[0], node, false, false)) {
+				continue;
+			}
+			size.incrementAndGet();
+			for (int level = 1; level <= topLevel; level++) {
+				while (true) {
+					boolean[] marked = {false};
+					ConcurrentSkipListNode<Type> current = node.next[level].get(marked);
+					if (marked[0]) {
+						return; //a delete got to the node first; stop building the tower
+					}
+					if (current != succs[level] && 
+							!node.next[level].compareAndSet(current, succs[level], false, false)) {
+						return;
+					}
+					if (preds[level].next[level].compareAndSet(succs[level], node, false, false)) {
+						break;
+					}
+					find(key, preds, succs);
+				}
+			}
+			return;
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#bulkLoad(java.lang.Object[], boolean)
+	 *
+	 * Unlike the other operations, a bulk load must not run while other
+	 * threads are using the list.
+	 */
+	
+	public void bulkLoad(Type[] keys, boolean presorted) {
+		Type[] sorted = Utils.sortedKeys(keys, presorted, comparator);
+		ConcurrentSkipListNode<Type>[] last = ConcurrentSkipListNode.newArray(MAX_LEVEL + 1);
+		for (int level = 0; level <= MAX_LEVEL; level++) {
+			last[level] = head;
+		}
+		//the i-th key (from 1) gets one level per trailing zero bit of i
+		for (int i = 0; i < sorted.length; i++) {
+			int topLevel = Math.min(Integer.numberOfTrailingZeros(i + 1), MAX_LEVEL);
+			ConcurrentSkipListNode<Type> node = new ConcurrentSkipListNode<Type>(sorted[i], topLevel);
+			for (int level = 0; level <= topLevel; level++) {
+				last[level].next[level].set(node, false);
+				last[level] = node;
+			}
+		}
+		for (int level = 0; level <= MAX_LEVEL; level++) {
+			last[level].next[level].set(tail, false);
+		}
+		size.set(sorted.length);
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#delete(java.lang.Object)
+	 */
+	
+	public void delete(Type key) {
+		ConcurrentSkipListNode<Type>[] preds = ConcurrentSkipListNode.newArray(MAX_LEVEL + 1);
+		ConcurrentSkipListNode<Type>[] succs = ConcurrentSkipListNode.newArray(MAX_LEVEL + 1);
+		boolean[] marked = {false};
+		
+		if (!find(key, preds, succs)) {
+			return;
+		}
+		ConcurrentSkipListNode<Type> node = succs[0];
+		//mark the upper levels top-down so no new links are built on top of the node
+		for (int level = node.topLevel; level >= 1; level--) {
+			ConcurrentSkipListNode<Type> succ = node.next[level].get(marked);
+			while (!marked[0]) {
+				node.next[level].compareAndSet(succ, succ, false, true);
+				succ = node.next[level].get(marked);
+			}
+		}
+		//whoever marks the bottom link is the one that deleted the key
+		ConcurrentSkipListNode<Type> succ = node.next[0].get(marked);
+		while (true) {
+			boolean iMarkedIt = node.next[0].compareAndSet(succ, succ, false, true);
+			succ = node.next[0].get(marked);
+			if (iMarkedIt) {
+				size.decrementAndGet();
+				find(key, preds, succs); //unlinks the node
+				return;
+			}
+			else if (marked[0]) {
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * Finds the nodes on either side of the key at every level, unlinking
+	 * any marked nodes along the way.
+	 *
+	 * @param key The key
+	 * @param preds Filled with the last node before the key at each level
+	 * @param succs Filled with the first node at or after the key at each level
+	 * @return True, if the key is in the list
+	 */
+	private boolean find(Type key, ConcurrentSkipListNode<Type>[] preds, ConcurrentSkipListNode<Type>[] succs) {
+		boolean[] marked = {false};
+		retry:
+		while (true) {
+			ConcurrentSkipListNode<Type> pred = head;
+			ConcurrentSkipListNode<Type> curr = null;
+			for (int level = MAX_LEVEL; level >= 0; level--) {
+				curr = pred.next[level].getReference();
+				while (true) {
+					if (curr == tail) {
+						break;
+					}
+					ConcurrentSkipListNode<Type> succ = curr.next[level].get(marked);
+					while (marked[0]) {
+						if (!pred.next[level].compareAndSet(curr, succ, false, false)) {
+							continue retry;
+						}
+						curr = succ;
+						if (curr == tail) {
+							break;
+						}
+						succ = curr.next[level].get(marked);
+					}
+					if (curr != tail && comparator.compare(curr.key, key) < 0) {
+						pred = curr;
+						curr = succ;
+					}
+					else {
+						break;
+					}
+				}
+				preds[level] = pred;
+				succs[level] = curr;
+			}
+			return curr != tail && comparator.compare(curr.key, key) == 0;
+		}
+	}
+	
+	/**
+	 * Finds the last unmarked node at the bottom level whose key is less than
+	 * the key.  Marked nodes are stepped over, never unlinked, so the walk
+	 * does not write and never restarts.
+	 *
+	 * @param key The key, or null to find the last node in the list
+	 * @return The node, or head if there is none
+	 */
+	private ConcurrentSkipListNode<Type> lowerNode(Type key) {
+		boolean[] marked = {false};
+		ConcurrentSkipListNode<Type> pred = head;
+		for (int level = MAX_LEVEL; level >= 0; level--) {
+			ConcurrentSkipListNode<Type> curr = pred.next[level].getReference();
+			while (curr != tail) {
+				ConcurrentSkipListNode<Type> succ = curr.next[level].get(marked);
+				if (marked[0]) {
+					curr = succ;
+				}
+				else if (key == null || comparator.compare(curr.key, key) < 0) {
+					pred = curr;
+					curr = succ;
+				}
+				else {
+					break;
+				}
+			}
+		}
+		return pred;
+	}
+	
+	/**
+	 * Gets the first unmarked node after a node at the bottom level.
+	 *
+	 * @param node The node
+	 * @return The next live node, or tail
+	 */
+	private ConcurrentSkipListNode<Type> nextLive(ConcurrentSkipListNode<Type> node) {
+		ConcurrentSkipListNode<Type> next = node.next[0].getReference();
+		while (next != tail && next.isMarked()) {
+			next = next.next[0].getReference();
+		}
+		return next;
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#search(java.lang.Object)
+	 */
+	
+	public Object search(Type key) {
+		ConcurrentSkipListNode<Type> node = nextLive(lowerNode(key));
+		if (node != tail && comparator.compare(node.key, key) == 0) {
+			return node;
+		}
+		return null;
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#minimum()
+	 */
+	
+	public Object minimum() {
+		ConcurrentSkipListNode<Type> node = nextLive(head);
+		return (node == tail) ? null : node;
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#maximum()
+	 */
+	
+	public Object maximum() {
+		ConcurrentSkipListNode<Type> node = lowerNode(null);
+		return (node == head) ? null : node;
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#successor(java.lang.Object)
+	 */
+	
+	public Object successor(Type key) {
+		ConcurrentSkipListNode<Type> node = nextLive(lowerNode(key));
+		if (node == tail || comparator.compare(node.key, key) != 0) {
+			return null;
+		}
+		node = nextLive(node);
+		return (node == tail) ? null : node;
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#predecessor(java.lang.Object)
+	 */
+	
+	public Object predecessor(Type key) {
+		ConcurrentSkipListNode<Type> pred = lowerNode(key);
+		ConcurrentSkipListNode<Type> node = nextLive(pred);
+		if (node == tail || comparator.compare(node.key, key) != 0) {
+			return null;
+		}
+		return (pred == head) ? null : pred;
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#cursor(java.lang.Object, java.lang.Object)
+	 *
+	 * The cursor is weakly consistent: it never fails because of other
+	 * threads, skips keys deleted before it reaches them, and may or may not
+	 * see keys inserted after it was opened.
+	 */
+	
+	public Cursor<Type> cursor(Type fromKey, Type toKey) {
+		LevelCursor cursor = new LevelCursor();
+		cursor.reset(fromKey, toKey);
+		return cursor;
+	}
+	
+	/**
+	 * Picks the height of a new tower: each extra level is kept with
+	 * probability 1/2, read off the trailing zero bits of one random int.
+	 *
+	 * @return The top level, between 0 and MAX_LEVEL
+	 */
+	private int randomLevel() {
+		int level = Integer.numberOfTrailingZeros(ThreadLocalRandom.current().nextInt());
+		return Math.min(level, MAX_LEVEL);
+	}
+	
+	/**
+	 * Walks the bottom level of the list, stepping over marked nodes.
+	 */
+	private class LevelCursor implements Cursor<Type> {
+		
+		/** The node the cursor is on. */
+		private ConcurrentSkipListNode<Type> current = null;
+		
+		/** The node the cursor moves to next. */
+		private ConcurrentSkipListNode<Type> next = null;
+		
+		/** The key to stop before. */
+		private Type toKey = null;
+		
+		public boolean next() {
+			if (next == tail || (toKey != null && comparator.compare(next.key, toKey) >= 0)) {
+				current = null;
+				next = tail;
+				return false;
+			}
+			current = next;
+			next = nextLive(current);
+			return true;
+		}
+		
+		public Type key() {
+			if (current == null) {
+				throw new NoSuchElementException();
+			}
+			return current.key;
+		}
+		
+		public void reset(Type fromKey, Type toKey) {
+			this.toKey = toKey;
+			current = null;
+			next = nextLive((fromKey == null) ? head : lowerNode(fromKey));
+		}
+	}
+}
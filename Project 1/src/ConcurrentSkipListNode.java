@@ -0,0 +1,116 @@
+
+
+/*
+ * Copyright (c) 2013, Erika Nana
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Project 1 nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY Erika Nana ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL Erika Nana BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+import java.util.concurrent.atomic.AtomicMarkableReference;
+
+/**
+ * Creates a node for the lock-free skip list.  A key is stored once, with one
+ * forward link per level of its tower.  Each link carries a mark bit; marking
+ * the links of a node logically deletes it before it is unlinked.
+ *
+ * @author Erika Nana
+ * @param <Type> the generic type
+ */
+public class ConcurrentSkipListNode<Type> {
+	
+	/** The key; null for the head and tail sentinels. */
+	public final Type key;
+	
+	/** The forward links, one per level from 0 up to the top level. */
+	public final AtomicMarkableReference<ConcurrentSkipListNode<Type>>[] next;
+	
+	/** The highest level the node is linked into. */
+	public final int topLevel;
+	
+	/**
+	 * Instantiates a new node.
+	 *
+	 * @param key The key
+	 * @param topLevel The highest level of the node
+	 */
+	public ConcurrentSkipListNode(Type key, int topLevel) {
+		this.key = key;
+		this.topLevel = topLevel;
+		next = newLinks(topLevel + 1);
+		for (int i = 0; i <= topLevel; i++) {
+			next[i] = new AtomicMarkableReference<ConcurrentSkipListNode<Type>>(null, false);
+		}
+	}
+	
+	/**
+	 * Makes an array of forward links.  Java cannot make an array of a
+	 * generic type directly, so this makes one of unknown type and casts it
+	 * once here.
+	 *
+	 * @param <Type> the generic type
+	 * @param length The length of the array
+	 * @return The array, filled with null
+	 */
+	@SuppressWarnings("unchecked")
+	private static <Type> AtomicMarkableReference<ConcurrentSkipListNode<Type>>[] newLinks(int length) {
+		return (AtomicMarkableReference<ConcurrentSkipListNode<Type>>[]) new AtomicMarkableReference<?>[length];
+	}
+	
+	/**
+	 * Makes an array of nodes, for the predecessors and successors a search
+	 * collects.
+	 *
+	 * @param <Type> the generic type
+	 * @param length The length of the array
+	 * @return The array, filled with null
+	 */
+	@SuppressWarnings("unchecked")
+	public static <Type> ConcurrentSkipListNode<Type>[] newArray(int length) {
+		return (ConcurrentSkipListNode<Type>[]) new ConcurrentSkipListNode<?>[length];
+	}
+	
+	/**
+	 * Gets the key.
+	 *
+	 * @return The key
+	 */
+	public Type getKey() {
+		return key;
+	}
+	
+	/**
+	 * Checks if the node has been logically deleted.
+	 *
+	 * @return True, if the bottom link is marked
+	 */
+	public boolean isMarked() {
+		return next[0].isMarked();
+	}
+	
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		return String.valueOf(key);
+	}
+}
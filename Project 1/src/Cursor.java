@@ -0,0 +1,71 @@
+
+
+/*
+ * Copyright (c) 2013, Erika Nana
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Project 1 nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY Erika Nana ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL Erika Nana BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+/**
+ * Walks the keys of a DynamicSet in order over a range.  A cursor holds its
+ * place in the structure, so each step is a move to the next node rather
+ * than a new search from the top, and no objects are created per key.
+ * A cursor can be reset to a new range and used again.
+ *
+ * Typical use:
+ * <pre>
+ * Cursor&lt;String&gt; c = set.cursor("ab", "ac");
+ * while (c.next()) {
+ *     System.out.println(c.key());
+ * }
+ * </pre>
+ * The result of a scan is undefined if the set is changed while the scan
+ * is under way, unless the set says otherwise.
+ *
+ * @author Erika Nana
+ * @param <Type> the generic type
+ */
+public interface Cursor<Type> {
+	
+	/**
+	 * Moves to the next key in the range.
+	 *
+	 * @return True, if there was another key; false once the range is used up
+	 */
+	public boolean next();
+	
+	/**
+	 * Gets the key the cursor is on.
+	 *
+	 * @return The current key
+	 */
+	public Type key();
+	
+	/**
+	 * Moves the cursor to just before the first key of a new range.
+	 *
+	 * @param fromKey The smallest key to visit, or null to start at the minimum
+	 * @param toKey The key to stop before, or null to run to the maximum
+	 */
+	public void reset(Type fromKey, Type toKey);
+}
@@ -1,242 +1,515 @@
-/*
- * Copyright (c) 2013, Erika Nana
- * All rights reserved.
- *
- * Redistribution and use in source and binary forms, with or without
- * modification, are permitted provided that the following conditions are met:
- *     * Redistributions of source code must retain the above copyright
- *       notice, this list of conditions and the following disclaimer.
- *     * Redistributions in binary form must reproduce the above copyright
- *       notice, this list of conditions and the following disclaimer in the
- *       documentation and/or other materials provided with the distribution.
- *     * Neither the name of Project 1 nor the
- *       names of its contributors may be used to endorse or promote products
- *       derived from this software without specific prior written permission.
- *
- * THIS SOFTWARE IS PROVIDED BY Erika Nana ''AS IS'' AND ANY
- * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
- * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
- * DISCLAIMED. IN NO EVENT SHALL Erika Nana BE LIABLE FOR ANY
- * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
- * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
- * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
- * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
- * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
- * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
- */
-/** 
- * Allows the user to run tests on the three data structures at one time.
- * Also supports individual operations on the data structures.
- * 
- * @author Erika Nana
- */
-/**
- * Constructs a sorted doubly-linked list. 
- *
- * @author Erika Nana
- * @param <Type> the generic type
- */
-public class DLinkedList<Type> implements DynamicSet<Type> {
-	
-	/** The head. */
-	private DNode<Type> head = null;
-	
-	/** The tail.  */
-	private DNode<Type> tail = null;
-	
-	/** The size. */
-	private int size = 0;
-	
-	/** The empty node, used to handle null pointer exceptions. */
-	private DNode<Type> empty = null; 
-	
-	/**
-	 * Instantiates a new doubly linked list.
-	 */
-	public DLinkedList(){
-		empty = new DNode<Type>(); //for null pointer
-	}
-
-	/**
-	 * Checks if is empty.
-	 *
-	 * @return True, if is empty
-	 */
-	public boolean isEmpty() {
-		return head == null;
-	}
-	/* Provides a String representation of the list*/
-	public String toString() {
-		DNode<Type> temp = head;
-		String answer = "";
-		while(temp != null) {
-			answer = answer + temp.getValue() + "\n";
-			temp = temp.getNext();
-		}
-		return answer;
-	}
-	
-	/* (non-Javadoc)
-	 * @see main.DynamicSet#size()
-	 */
-	
-	public int size() {
-		return size;
-	}
-	
-	/* (non-Javadoc)
-	 * @see main.DynamicSet#insert(java.lang.Object, java.lang.Object)
-	 */
-	
-	public void insert(Type value, Object e) {
-		DNode<Type> temp = head;
-		DNode<Type> newNode = new DNode<Type>(value);
-		newNode.setValue(value);
-		boolean insert = false; //check to see if inserted
-		
-		if (size == 0) {
-			head = newNode;
-			tail = newNode;
-		}
-		if (size == 1) {
-			int compare = Utils.compareValue((String)value, (String) head.getValue());
-			if (compare == Utils.GREATER || compare == Utils.EQUAL) {
-				//add the thing after
-				head.connectNext(newNode);
-				tail = newNode;
-			}
-			else { //add the thing before
-				head = newNode;
-				head.connectNext(temp);
-				tail = temp;
-				
-			}
-		}
-		else {
-			//compare the values
-			if (size  > 1) {
-				while (temp.getNext()!= null) {
-					int compare = Utils.compareValue((String)value, (String) temp.getValue());
-					if (compare == Utils.LESSER) {
-						//special case if the head
-						if (temp == head) {
-							head = newNode;
-							head.connectNext(temp);
-							temp.connectPrev(head);
-						}
-						else { //connect it before the node
-							temp.getPrev().connectNext(newNode);
-							temp.connectPrev(newNode);
-							newNode.connectNext(temp);
-						}
-						insert = true;
-						break;	
-					}
-					temp = temp.getNext();
-				}
-				//reached the end of the list
-				if (!insert) {
-					//check the last node
-					if (Utils.compareValue((String) value, (String) temp.getValue()) == Utils.LESSER) {
-						temp.getPrev().connectNext(newNode);
-						temp.connectPrev(newNode);
-						newNode.connectNext(temp);
-					}
-					else {
-						temp.connectNext(newNode);
-						tail = newNode;
-					}	
-				}
-			}
-		}
-		size++;
-	}
-	
-	/* (non-Javadoc)
-	 * @see main.DynamicSet#delete(java.lang.Object)
-	 */
-	
-	public void delete(Type key) {
-		DNode<Type> temp = head;
-		while (temp != null) {
-			if (temp.getValue().equals(key)) {
-				//adjust the pointers
-				if (temp == head) {//deleting the head
-					head = head.getNext();
-					size--;
-					break;
-				}
-				if (temp == tail) {
-					tail = temp.getPrev();
-				}
-				temp.getPrev().connectNext(temp.getNext());
-				size--;
-				break;
-			}
-			temp = temp.getNext();
-		}
-	}
-	
-	/* (non-Javadoc)
-	 * @see main.DynamicSet#search(java.lang.Object)
-	 */
-	
-	public Object search(Type key) {
-		DNode<Type> temp = head;
-		while (temp != null) {
-			//find the node
-			if (temp.getValue().equals(key)) {
-				return temp;
-			}
-			temp = temp.getNext();
-		}
-		return null;
-	}
-	
-	/* (non-Javadoc)
-	 * @see main.DynamicSet#minimum()
-	 */
-	
-	public Object minimum() {
-		return head;
-	}
-	
-	/* (non-Javadoc)
-	 * @see main.DynamicSet#maximum()
-	 */
-	
-	public Object maximum() {
-		return tail;
-	}
-	
-	/* (non-Javadoc)
-	 * @see main.DynamicSet#successor(java.lang.Object)
-	 */
-	
-	public Object successor(Type key) {
-		@SuppressWarnings("unchecked")
-		DNode<Type>temp = (DNode<Type>) search(key);
-		//handle null pointer exceptions
-		if (temp.getNext() == null) {
-			return empty;
-		}
-		return temp.getNext();
-	}
-	
-	/* (non-Javadoc)
-	 * @see main.DynamicSet#predecessor(java.lang.Object)
-	 */
-	
-	public Object predecessor(Type key) {
-		@SuppressWarnings("unchecked")
-		DNode<Type>temp = (DNode<Type>) search(key);
-		//handle null pointer exceptions
-		if (temp.getPrev() == null) {
-			return empty;
-		}
-		else {
-			return temp.getPrev();
-		}
-	}
-	
-}
+/*
+ * Copyright (c) 2013, Erika Nana
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Project 1 nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY Erika Nana ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL Erika Nana BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+import java.util.AbstractMap;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/** 
+ * Allows the user to run tests on the three data structures at one time.
+ * Also supports individual operations on the data structures.
+ * 
+ * @author Erika Nana
+ */
+/**
+ * Constructs a sorted doubly-linked list. 
+ *
+ * A list built with a fold, e.g. Utils.FOLD_CASE, folds each value once as
+ * it is inserted and keeps the folded form in the node next to the value;
+ * lookups fold the probe once and compare folded forms from there on.
+ *
+ * @author Erika Nana
+ * @param <Type> the generic type
+ */
+public class DLinkedList<Type> implements DynamicMap<Type> {
+	
+	/** The head. */
+	private DNode<Type> head = null;
+	
+	/** The tail.  */
+	private DNode<Type> tail = null;
+	
+	/** The size. */
+	private int size = 0;
+	
+	/** The empty node, used to handle null pointer exceptions. */
+	private DNode<Type> empty = null; 
+	
+	/** The order of the folded keys. */
+	private final Comparator<? super Type> comparator;
+	
+	/** The fold applied to each key before it is compared, or null for none. */
+	private final UnaryOperator<Type> fold;
+	
+	/** The order of the keys as they were inserted. */
+	private final Comparator<? super Type> order;
+	
+	/**
+	 * Instantiates a new doubly linked list ordered by the keys' natural order.
+	 */
+	public DLinkedList(){
+		this(null);
+	}
+	
+	/**
+	 * Instantiates a new doubly linked list.
+	 *
+	 * @param comparator The order of the keys, or null for their natural order
+	 */
+	public DLinkedList(Comparator<? super Type> comparator){
+		this(comparator, null);
+	}
+	
+	/**
+	 * Instantiates a new doubly linked list that compares folded keys.
+	 *
+	 * @param comparator The order of the folded keys, or null for their natural order
+	 * @param fold The fold applied to each key before it is compared, or null for none
+	 */
+	public DLinkedList(Comparator<? super Type> comparator, UnaryOperator<Type> fold){
+		this.comparator = Utils.orNatural(comparator);
+		this.fold = fold;
+		this.order = Utils.foldedOrder(this.comparator, fold);
+		empty = new DNode<Type>(); //for null pointer
+	}
+	
+	/**
+	 * Folds a key into the form the list compares.
+	 *
+	 * @param key The key, or null
+	 * @return The folded key, or the key itself if the list does not fold
+	 */
+	private Type fold(Type key) {
+		return (fold == null || key == null) ? key : fold.apply(key);
+	}
+
+	/**
+	 * Checks if is empty.
+	 *
+	 * @return True, if is empty
+	 */
+	public boolean isEmpty() {
+		return head == null;
+	}
+	/* Provides a String representation of the list*/
+	public String toString() {
+		DNode<Type> temp = head;
+		StringBuilder answer = new StringBuilder();
+		while(temp != null) {
+			answer.append(temp.getValue()).append('\n');
+			temp = temp.getNext();
+		}
+		return answer.toString();
+	}
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#size()
+	 */
+	
+	public int size() {
+		return size;
+	}
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#getComparator()
+	 */
+	
+	public Comparator<? super Type> getComparator() {
+		return order;
+	}
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#insert(java.lang.Object, java.lang.Object)
+	 */
+	
+	public void insert(Type value, Object e) {
+		put(value, e);
+	}
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicMap#put(java.lang.Object, java.lang.Object)
+	 */
+	
+	public Object put(Type value, Object e) {
+		DNode<Type> temp = head;
+		Type folded = fold(value);
+		//find the first node that is not smaller
+		while (temp != null) {
+			int compare = comparator.compare(folded, temp.getFolded());
+			if (compare == 0) {
+				//already in the list, so only the element changes
+				Object old = temp.getElement();
+				temp.setElement(e);
+				return old;
+			}
+			if (compare < 0) {
+				break;
+			}
+			temp = temp.getNext();
+		}
+		DNode<Type> newNode = new DNode<Type>(value, folded);
+		newNode.setElement(e);
+		
+		if (temp == null) { //goes after the tail
+			if (tail == null) {
+				head = newNode;
+			}
+			else {
+				tail.connectNext(newNode);
+			}
+			tail = newNode;
+		}
+		else if (temp == head) { //special case if the head
+			newNode.connectNext(head);
+			head = newNode;
+		}
+		else { //connect it before the node
+			temp.getPrev().connectNext(newNode);
+			newNode.connectNext(temp);
+		}
+		size++;
+		return null;
+	}
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicMap#get(java.lang.Object)
+	 */
+	
+	public Object get(Type key) {
+		@SuppressWarnings("unchecked")
+		DNode<Type> temp = (DNode<Type>) search(key);
+		return (temp == null) ? null : temp.getElement();
+	}
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicMap#remove(java.lang.Object)
+	 */
+	
+	public Object remove(Type key) {
+		@SuppressWarnings("unchecked")
+		DNode<Type> temp = (DNode<Type>) search(key);
+		if (temp == null) {
+			return null;
+		}
+		unlink(temp);
+		return temp.getElement();
+	}
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicMap#floorEntry(java.lang.Object)
+	 */
+	
+	public Map.Entry<Type, Object> floorEntry(Type key) {
+		DNode<Type> temp = head;
+		DNode<Type> floor = null;
+		Type folded = fold(key);
+		while (temp != null && comparator.compare(temp.getFolded(), folded) <= 0) {
+			floor = temp;
+			temp = temp.getNext();
+		}
+		return entry(floor);
+	}
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicMap#ceilingEntry(java.lang.Object)
+	 */
+	
+	public Map.Entry<Type, Object> ceilingEntry(Type key) {
+		DNode<Type> temp = head;
+		Type folded = fold(key);
+		while (temp != null && comparator.compare(temp.getFolded(), folded) < 0) {
+			temp = temp.getNext();
+		}
+		return entry(temp);
+	}
+	
+	/**
+	 * Pairs the value of a node with its element.
+	 *
+	 * @param node The node, or null
+	 * @return The value and element, or null if node is null
+	 */
+	private Map.Entry<Type, Object> entry(DNode<Type> node) {
+		if (node == null) {
+			return null;
+		}
+		return new AbstractMap.SimpleImmutableEntry<Type, Object>(node.getValue(), node.getElement());
+	}
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#bulkLoad(java.lang.Object[], boolean)
+	 */
+	
+	public void bulkLoad(Type[] keys, boolean presorted) {
+		Type[][] sorted = Utils.sortedKeys(keys, presorted, comparator, fold);
+		head = null;
+		tail = null;
+		for (int i = 0; i < sorted[0].length; i++) {
+			DNode<Type> node = new DNode<Type>(sorted[0][i], sorted[1][i]);
+			if (tail == null) {
+				head = node;
+			}
+			else {
+				tail.connectNext(node);
+			}
+			tail = node;
+		}
+		size = sorted[0].length;
+	}
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#delete(java.lang.Object)
+	 */
+	
+	public void delete(Type key) {
+		@SuppressWarnings("unchecked")
+		DNode<Type> temp = (DNode<Type>) search(key);
+		if (temp == null) {
+			return;
+		}
+		unlink(temp);
+	}
+	
+	/**
+	 * Takes a node out of the list.
+	 *
+	 * @param temp The node to take out
+	 */
+	private void unlink(DNode<Type> temp) {
+		//adjust the pointers
+		if (temp == head) {//deleting the head
+			head = head.getNext();
+			if (head == null) {
+				tail = null;
+			}
+			else {
+				head.setPrev(null);
+			}
+		}
+		else {
+			if (temp == tail) {
+				tail = temp.getPrev();
+			}
+			temp.getPrev().connectNext(temp.getNext());
+		}
+		size--;
+	}
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#search(java.lang.Object)
+	 */
+	
+	public Object search(Type key) {
+		DNode<Type> temp = head;
+		Type folded = fold(key);
+		while (temp != null) {
+			//find the node; the list is sorted, so stop once past the key
+			int compare = comparator.compare(folded, temp.getFolded());
+			if (compare == 0) {
+				return temp;
+			}
+			if (compare < 0) {
+				return null;
+			}
+			temp = temp.getNext();
+		}
+		return null;
+	}
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#minimum()
+	 */
+	
+	public Object minimum() {
+		return head;
+	}
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#maximum()
+	 */
+	
+	public Object maximum() {
+		return tail;
+	}
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#successor(java.lang.Object)
+	 */
+	
+	public Object successor(Type key) {
+		@SuppressWarnings("unchecked")
+		DNode<Type>temp = (DNode<Type>) search(key);
+		//handle null pointer exceptions
+		if (temp.getNext() == null) {
+			return empty;
+		}
+		return temp.getNext();
+	}
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#predecessor(java.lang.Object)
+	 */
+	
+	public Object predecessor(Type key) {
+		@SuppressWarnings("unchecked")
+		DNode<Type>temp = (DNode<Type>) search(key);
+		//handle null pointer exceptions
+		if (temp.getPrev() == null) {
+			return empty;
+		}
+		else {
+			return temp.getPrev();
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#cursor(java.lang.Object, java.lang.Object)
+	 */
+	
+	public Cursor<Type> cursor(Type fromKey, Type toKey) {
+		ListCursor cursor = new ListCursor();
+		cursor.reset(fromKey, toKey);
+		return cursor;
+	}
+	
+	/**
+	 * Opens a spliterator that splits at the midpoint of what is left.  The
+	 * list knows its size, so both halves know theirs, but finding the
+	 * midpoint means walking to it, so a split costs half of the run.
+	 *
+	 * @see main.DynamicSet#spliterator()
+	 */
+	public Spliterator<Type> spliterator() {
+		return new ListSpliterator(head, size);
+	}
+	
+	/**
+	 * Walks a run of nodes, and splits it at its midpoint.
+	 */
+	private class ListSpliterator extends KeySpliterator<Type> {
+		
+		/** The next node. */
+		private DNode<Type> next;
+		
+		/** The number of nodes left in the run. */
+		private int remaining;
+		
+		/**
+		 * Instantiates a new list spliterator.
+		 *
+		 * @param next The first node of the run
+		 * @param remaining The length of the run
+		 */
+		private ListSpliterator(DNode<Type> next, int remaining) {
+			super(DLinkedList.this.order);
+			this.next = next;
+			this.remaining = remaining;
+		}
+		
+		public boolean tryAdvance(Consumer<? super Type> action) {
+			if (remaining <= 0) {
+				return false;
+			}
+			DNode<Type> node = next;
+			next = node.getNext();
+			remaining--;
+			action.accept(node.getValue());
+			return true;
+		}
+		
+		public void forEachRemaining(Consumer<? super Type> action) {
+			DNode<Type> node = next;
+			for (; remaining > 0; remaining--) {
+				action.accept(node.getValue());
+				node = node.getNext();
+			}
+			next = node;
+		}
+		
+		public Spliterator<Type> trySplit() {
+			int half = remaining >>> 1;
+			if (half == 0) {
+				return null;
+			}
+			DNode<Type> first = next;
+			for (int i = 0; i < half; i++) {
+				next = next.getNext();
+			}
+			remaining -= half;
+			return new ListSpliterator(first, half);
+		}
+		
+		public long estimateSize() {
+			return remaining;
+		}
+	}
+	
+	/**
+	 * Walks the list from node to node.
+	 */
+	private class ListCursor implements Cursor<Type> {
+		
+		/** The node the cursor is on. */
+		private DNode<Type> current = null;
+		
+		/** The node the cursor moves to next. */
+		private DNode<Type> next = null;
+		
+		/** The folded key to stop before. */
+		private Type toKey = null;
+		
+		public boolean next() {
+			if (next == null || (toKey != null && comparator.compare(next.getFolded(), toKey) >= 0)) {
+				current = next = null;
+				return false;
+			}
+			current = next;
+			next = current.getNext();
+			return true;
+		}
+		
+		public Type key() {
+			if (current == null) {
+				throw new NoSuchElementException();
+			}
+			return current.getValue();
+		}
+		
+		public void reset(Type fromKey, Type toKey) {
+			this.toKey = fold(toKey);
+			current = null;
+			next = head;
+			Type folded = fold(fromKey);
+			while (folded != null && next != null && comparator.compare(next.getFolded(), folded) < 0) {
+				next = next.getNext();
+			}
+		}
+	}
+}
@@ -0,0 +1,212 @@
+
+
+/*
+ * Copyright (c) 2013, Erika Nana
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Project 1 nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY Erika Nana ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL Erika Nana BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stress tests closing a DurableDynamicSet while another thread is still
+ * inserting.  Each run starts a writer that inserts numbered keys as fast as
+ * it can, closes the set after a random moment, and reopens the directory:
+ * every key whose insert returned before the close refused the writer must
+ * be recovered, and the close itself must not fail.
+ *
+ * First it checks that a set that folds case recovers each key with the
+ * spelling the live set held, when a key is deleted and inserted again in
+ * another case, or inserted again without a delete.
+ *
+ * Usage:  java DurableDriver [runs] [commitMillis]
+ *
+ * @author Erika Nana
+ */
+public class DurableDriver {
+	
+	/** The number of runs by default. */
+	static final int DEFAULT_RUNS = 300;
+	
+	/** The commit interval by default; short, so closes often land mid-commit. */
+	static final int DEFAULT_COMMIT_MILLIS = 1;
+	
+	/**
+	 * Runs the stress test, and exits with status 1 if any run lost a key or
+	 * failed to close.
+	 *
+	 * @param args The number of runs and the commit interval in milliseconds
+	 * @throws IOException if a directory cannot be made or read
+	 * @throws InterruptedException if interrupted while waiting for a writer
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		int runs = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_RUNS;
+		int commitMillis = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_COMMIT_MILLIS;
+		int failed = 0;
+		if (!spelling()) {
+			failed++;
+		}
+		for (int run = 0; run < runs; run++) {
+			if (!stress(commitMillis)) {
+				failed++;
+			}
+		}
+		System.out.println(runs + " runs, " + failed + " failed");
+		if (failed > 0) {
+			System.exit(1);
+		}
+	}
+	
+	/**
+	 * Changes a set that folds case, from the log alone and from a snapshot
+	 * followed by the log, then checks that reopening it brings back the
+	 * spelling the live set held for each key.
+	 *
+	 * @return True, if every key came back as the live set held it
+	 * @throws IOException if the directory cannot be made or read
+	 */
+	static boolean spelling() throws IOException {
+		File directory = Files.createTempDirectory("durable").toFile();
+		try {
+			DurableDynamicSet<String> set = new DurableDynamicSet<String>(new BTree<String>(null, Utils.FOLD_CASE),
+					directory, DurableDynamicSet.STRINGS);
+			//the snapshot holds Banana and Cherry
+			set.bulkLoad(new String[] {"Banana", "Cherry"}, true);
+			set.delete("banana");
+			set.insert("BANANA", null); //replaces the snapshot's spelling
+			set.insert("CHERRY", null); //the live set keeps Cherry
+			//the log alone holds Apple and Date
+			set.insert("Apple", null);
+			set.delete("apple");
+			set.insert("APPLE", null);
+			set.insert("Date", null);
+			set.insert("DATE", null);
+			String[] keys = {"apple", "banana", "cherry", "date"};
+			String[] live = new String[keys.length];
+			for (int i = 0; i < keys.length; i++) {
+				live[i] = ((BNode<?>) set.search(keys[i])).getKey().toString();
+			}
+			set.close();
+			
+			DurableDynamicSet<String> reopened = new DurableDynamicSet<String>(new BTree<String>(null, Utils.FOLD_CASE),
+					directory, DurableDynamicSet.STRINGS);
+			boolean ok = reopened.size() == keys.length;
+			for (int i = 0; i < keys.length; i++) {
+				BNode<?> node = (BNode<?>) reopened.search(keys[i]);
+				String recovered = (node == null) ? null : node.getKey().toString();
+				if (!live[i].equals(recovered)) {
+					System.out.println("recovered " + recovered + " for " + keys[i] + ", but the live set held " + live[i]);
+					ok = false;
+				}
+			}
+			reopened.close();
+			return ok;
+		}
+		finally {
+			for (File file : directory.listFiles()) {
+				file.delete();
+			}
+			directory.delete();
+		}
+	}
+	
+	/**
+	 * Makes the key for a number; zero padded so string order matches number order.
+	 *
+	 * @param i The number
+	 * @return The key
+	 */
+	static String key(int i) {
+		return String.format("w%09d", i);
+	}
+	
+	/**
+	 * Inserts from one thread while closing from this one, then checks the
+	 * recovered set.
+	 *
+	 * @param commitMillis The commit interval
+	 * @return True, if the close succeeded and every acknowledged key came back
+	 * @throws IOException if the directory cannot be made or read
+	 * @throws InterruptedException if interrupted while waiting for the writer
+	 */
+	static boolean stress(int commitMillis) throws IOException, InterruptedException {
+		File directory = Files.createTempDirectory("durable").toFile();
+		try {
+			final DurableDynamicSet<String> set = new DurableDynamicSet<String>(new SkipList<String>(),
+					directory, DurableDynamicSet.STRINGS, commitMillis, DurableDynamicSet.DEFAULT_SNAPSHOT_BYTES);
+			//the number of keys whose insert returned; keys are inserted in order
+			final AtomicInteger acknowledged = new AtomicInteger();
+			Thread writer = new Thread() {
+				public void run() {
+					try {
+						for (int i = 0; ; i++) {
+							set.insert(key(i), null);
+							acknowledged.set(i + 1);
+						}
+					}
+					catch (IllegalStateException e) {
+						//closed
+					}
+				}
+			};
+			writer.start();
+			Thread.sleep(ThreadLocalRandom.current().nextInt(1, 20));
+			boolean closedCleanly = true;
+			try {
+				set.close();
+			}
+			catch (IOException e) {
+				System.out.println("close failed: " + e);
+				closedCleanly = false;
+			}
+			writer.join();
+			
+			int expected = acknowledged.get();
+			DurableDynamicSet<String> reopened = new DurableDynamicSet<String>(new SkipList<String>(),
+					directory, DurableDynamicSet.STRINGS);
+			int missing = 0;
+			for (int i = 0; i < expected; i++) {
+				SkipListEntry<?> entry = (SkipListEntry<?>) reopened.search(key(i));
+				if (entry.key == SkipListEntry.negInf || !entry.key.equals(key(i))) {
+					missing++;
+				}
+			}
+			int recovered = reopened.size();
+			reopened.close();
+			if (missing > 0) {
+				System.out.println("lost " + missing + " of " + expected + " acknowledged keys, recovered " + recovered);
+			}
+			return closedCleanly && missing == 0;
+		}
+		finally {
+			for (File file : directory.listFiles()) {
+				file.delete();
+			}
+			directory.delete();
+		}
+	}
+}
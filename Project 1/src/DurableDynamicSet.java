@@ -0,0 +1,866 @@
+
+
+/*
+ * Copyright (c) 2013, Erika Nana
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Project 1 nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY Erika Nana ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL Erika Nana BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Makes any DynamicSet survive a restart.  Every insert and delete is
+ * appended to a write-ahead log in a directory before it is applied to the
+ * wrapped set, and on startup the set is rebuilt from the last snapshot
+ * plus the log instead of from the source file.
+ *
+ * The log is compact and binary: one byte for the operation, a varint
+ * length and the key's bytes.  Records collect in memory and go to disk
+ * in frames, each with its length and a CRC32, so a crash in the middle of
+ * a write leaves a torn frame that recovery finds and cuts off.  Frames are
+ * written by group commit: a background thread writes everything appended
+ * since the last commit and calls FileChannel.force once for all of it,
+ * every few milliseconds, or sooner when a megabyte has piled up.  One
+ * fsync covers thousands of operations instead of one each, so an
+ * operation is durable once the next commit finishes rather than when its
+ * call returns; sync() waits for that.
+ *
+ * When the log outgrows a limit the whole set is written to a new
+ * snapshot, which is moved over the old one in one step, and the log
+ * starts over.  Replaying the operations twice gives the same set, so a
+ * crash between the two steps is harmless.  Recovery loads the snapshot,
+ * folds the log into one change per key, and builds the set with a single
+ * bulkLoad.
+ *
+ * Only keys are kept; the elements passed to insert are not logged.  Like
+ * the sets it wraps, it should be used by one thread at a time.
+ *
+ * @author Erika Nana
+ * @param <Type> the generic type
+ */
+public class DurableDynamicSet<Type> implements DynamicSet<Type> {
+
+	/**
+	 * Turns keys into bytes for the log and the snapshot, and back.
+	 *
+	 * @param <Type> the generic type
+	 */
+	public interface Codec<Type> {
+
+		/**
+		 * Encodes a key.
+		 *
+		 * @param key The key
+		 * @return The bytes
+		 */
+		public byte[] encode(Type key);
+
+		/**
+		 * Decodes a key.
+		 *
+		 * @param bytes The bytes encode made
+		 * @return The key
+		 */
+		public Type decode(byte[] bytes);
+
+		/**
+		 * Makes an array of keys to bulk load, since a generic one cannot be made.
+		 *
+		 * @param length The length
+		 * @return The array
+		 */
+		public Type[] newArray(int length);
+	}
+
+	/** Stores strings as UTF-8. */
+	public static final Codec<String> STRINGS = new Codec<String>() {
+		public byte[] encode(String key) {
+			return KeyArena.encode(key);
+		}
+
+		public String decode(byte[] bytes) {
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+
+		public String[] newArray(int length) {
+			return new String[length];
+		}
+	};
+
+	/** How often the committer writes and forces the log by default, in milliseconds. */
+	public static final int DEFAULT_COMMIT_MILLIS = 5;
+
+	/** How big the log may grow before a snapshot replaces it by default. */
+	public static final long DEFAULT_SNAPSHOT_BYTES = 64L << 20;
+
+	/** How many bytes of records make an insert or delete commit at once. */
+	private static final int GROUP_BYTES = 1 << 20;
+
+	/** The first int of a snapshot. */
+	public static final int SNAPSHOT_MAGIC = 0x534E5031; // "SNP1"
+
+	/** The name of the log in the directory. */
+	public static final String LOG_NAME = "wal.log";
+
+	/** The name of the snapshot in the directory. */
+	public static final String SNAPSHOT_NAME = "snapshot";
+
+	/** The record of an insert. */
+	private static final byte INSERT = 1;
+
+	/** The record of a delete. */
+	private static final byte DELETE = 2;
+
+	/**
+	 * Never written; marks a key the log inserted again after deleting it,
+	 * whose spelling replaces the snapshot's when the set compares folded keys.
+	 */
+	private static final byte REINSERT = 3;
+
+	/** The length and CRC32 in front of each frame. */
+	private static final int FRAME_HEADER = 8;
+
+	/** The set the operations are applied to. */
+	private final DynamicSet<Type> set;
+
+	/** Turns keys into bytes. */
+	private final Codec<Type> codec;
+
+	/** The directory holding the log and snapshot. */
+	private final File directory;
+
+	/** The log. */
+	private final FileChannel log;
+
+	/** How big the log may grow before a snapshot replaces it. */
+	private final long snapshotBytes;
+
+	/** The records not yet written; guarded by this. */
+	private ByteBuffer pending = ByteBuffer.allocate(1 << 16);
+
+	/** The buffer pending swaps with on each commit; guarded by commitLock. */
+	private ByteBuffer spare = ByteBuffer.allocate(1 << 16);
+
+	/** Held while a frame is written and forced, so frames go out in order. */
+	private final Object commitLock = new Object();
+
+	/** The header of the frame being written; guarded by commitLock. */
+	private final ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER);
+
+	/** Checks the frame being written; guarded by commitLock. */
+	private final CRC32 crc = new CRC32();
+
+	/** The length of the log. */
+	private volatile long logSize = 0;
+
+	/** The number of times the log has been forced. */
+	private volatile long commits = 0;
+
+	/** The error that stopped the log, after which every change fails. */
+	private volatile IOException failure = null;
+
+	/** Whether close has been called. */
+	private volatile boolean closed = false;
+
+	/** Commits in the background, or null if the caller calls sync. */
+	private final Thread committer;
+
+	/**
+	 * Opens a durable set with the default commit interval and snapshot size.
+	 *
+	 * @param set The set to keep; its contents are replaced by the recovered ones
+	 * @param directory The directory for the log and snapshot, made if missing
+	 * @param codec Turns keys into bytes
+	 * @throws IOException if the log or snapshot cannot be read or opened
+	 */
+	public DurableDynamicSet(DynamicSet<Type> set, File directory, Codec<Type> codec) throws IOException {
+		this(set, directory, codec, DEFAULT_COMMIT_MILLIS, DEFAULT_SNAPSHOT_BYTES);
+	}
+
+	/**
+	 * Opens a durable set, recovering what the directory holds.
+	 *
+	 * @param set The set to keep; its contents are replaced by the recovered ones
+	 * @param directory The directory for the log and snapshot, made if missing
+	 * @param codec Turns keys into bytes
+	 * @param commitMillis How often to commit in the background, or 0 to
+	 *        commit only when a megabyte piles up or sync is called
+	 * @param snapshotBytes How big the log may grow before a snapshot replaces it
+	 * @throws IOException if the log or snapshot cannot be read or opened
+	 */
+	public DurableDynamicSet(DynamicSet<Type> set, File directory, Codec<Type> codec, int commitMillis,
+			long snapshotBytes) throws IOException {
+		if (commitMillis < 0 || snapshotBytes < 1) {
+			throw new IllegalArgumentException("The commit interval and snapshot size must be positive");
+		}
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Cannot make the directory " + directory);
+		}
+		this.set = set;
+		this.codec = codec;
+		this.directory = directory;
+		this.snapshotBytes = snapshotBytes;
+		this.log = FileChannel.open(new File(directory, LOG_NAME).toPath(),
+				StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			recover();
+		}
+		catch (IOException e) {
+			log.close();
+			throw e;
+		}
+		if (commitMillis > 0) {
+			committer = new Thread(new Committer(commitMillis), "commit " + directory.getName());
+			committer.setDaemon(true);
+			committer.start();
+		}
+		else {
+			committer = null;
+		}
+	}
+
+	/**
+	 * Rebuilds the set from the snapshot and the log, and cuts a torn frame
+	 * off the end of the log.
+	 *
+	 * @throws IOException if either cannot be read
+	 */
+	private void recover() throws IOException {
+		Type[] snapshot = readSnapshot();
+		Comparator<? super Type> order = set.getComparator();
+		TreeMap<Type, Byte> changes = new TreeMap<Type, Byte>(order);
+		long intact = replay(changes);
+
+		//merge the two sorted runs; the log's last word on a key wins, and
+		//the key keeps the spelling the live set kept: the snapshot's,
+		//unless the log deleted it and inserted it again
+		Type[] keys = codec.newArray(snapshot.length + changes.size());
+		int i = 0;
+		int count = 0;
+		for (Map.Entry<Type, Byte> change : changes.entrySet()) {
+			while (i < snapshot.length && order.compare(snapshot[i], change.getKey()) < 0) {
+				keys[count++] = snapshot[i++];
+			}
+			Type kept = change.getKey();
+			if (i < snapshot.length && order.compare(snapshot[i], change.getKey()) == 0) {
+				if (change.getValue() == INSERT) {
+					kept = snapshot[i];
+				}
+				i++;
+			}
+			if (change.getValue() != DELETE) {
+				keys[count++] = kept;
+			}
+		}
+		while (i < snapshot.length) {
+			keys[count++] = snapshot[i++];
+		}
+		set.bulkLoad(Arrays.copyOf(keys, count), true);
+
+		if (intact < log.size()) {
+			log.truncate(intact);
+			log.force(true);
+		}
+		log.position(intact);
+		logSize = intact;
+	}
+
+	/**
+	 * Reads the snapshot.
+	 *
+	 * @return Its keys, in order, or none if there is no snapshot
+	 * @throws IOException if it cannot be read or is damaged
+	 */
+	private Type[] readSnapshot() throws IOException {
+		File file = new File(directory, SNAPSHOT_NAME);
+		if (!file.exists()) {
+			return codec.newArray(0);
+		}
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			long length = channel.size();
+			if (length < 12 || length > Integer.MAX_VALUE) {
+				throw new IOException("The snapshot " + file + " is damaged");
+			}
+			MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+			int end = (int) length - 8;
+			ByteBuffer body = map.duplicate();
+			body.limit(end + 4);
+			CRC32 check = new CRC32();
+			check.update(body);
+			if (map.getInt(0) != SNAPSHOT_MAGIC || (int) check.getValue() != map.getInt(end + 4)) {
+				throw new IOException("The snapshot " + file + " is damaged");
+			}
+			Type[] keys = codec.newArray(map.getInt(end));
+			map.position(4);
+			for (int i = 0; i < keys.length; i++) {
+				byte[] bytes = new byte[readVarint(map)];
+				map.get(bytes);
+				keys[i] = codec.decode(bytes);
+			}
+			return keys;
+		}
+		finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Reads the log frame by frame, stopping at the first frame that is cut
+	 * short or fails its CRC.
+	 *
+	 * @param changes Filled with the last record of each key: DELETE, INSERT,
+	 *        or REINSERT for an insert after a delete, which brings the
+	 *        newer spelling; other inserts keep the first spelling, as the
+	 *        live set does
+	 * @return The length of the intact frames
+	 * @throws IOException if the log cannot be read
+	 */
+	private long replay(Map<Type, Byte> changes) throws IOException {
+		long length = log.size();
+		if (length == 0) {
+			return 0;
+		}
+		if (length > Integer.MAX_VALUE) {
+			throw new IOException("The log is too long to replay");
+		}
+		MappedByteBuffer map = log.map(FileChannel.MapMode.READ_ONLY, 0, length);
+		CRC32 check = new CRC32();
+		int position = 0;
+		while (position + FRAME_HEADER <= length) {
+			int size = map.getInt(position);
+			if (size < 0 || position + FRAME_HEADER + size > length) {
+				break; //torn
+			}
+			ByteBuffer frame = map.duplicate();
+			frame.limit(position + FRAME_HEADER + size);
+			frame.position(position + FRAME_HEADER);
+			check.reset();
+			check.update(frame.duplicate());
+			if ((int) check.getValue() != map.getInt(position + 4)) {
+				break; //torn or damaged
+			}
+			while (frame.hasRemaining()) {
+				byte op = frame.get();
+				byte[] bytes = new byte[readVarint(frame)];
+				frame.get(bytes);
+				Type key = codec.decode(bytes);
+				Byte last = changes.get(key);
+				if (op == DELETE) {
+					changes.put(key, DELETE);
+				}
+				else if (last == null) {
+					changes.put(key, INSERT);
+				}
+				else if (last == DELETE) {
+					//put would keep the deleted key's spelling, so take it out first
+					changes.remove(key);
+					changes.put(key, REINSERT);
+				}
+			}
+			position += FRAME_HEADER + size;
+		}
+		return position;
+	}
+
+	/**
+	 * Reads an unsigned variable-length int.
+	 *
+	 * @param buffer The buffer, at the int
+	 * @return The value
+	 */
+	private static int readVarint(ByteBuffer buffer) {
+		int value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = buffer.get();
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		} while (b < 0);
+		return value;
+	}
+
+	/**
+	 * Writes an unsigned variable-length int, seven bits per byte.
+	 *
+	 * @param out The stream
+	 * @param value The value
+	 * @throws IOException if the stream fails
+	 */
+	private static void writeVarint(OutputStream out, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+
+	/**
+	 * Adds a record to the ones waiting for the next commit, and commits at
+	 * once if enough have piled up.
+	 *
+	 * @param op INSERT or DELETE
+	 * @param key The key
+	 */
+	private void append(byte op, Type key) {
+		if (failure != null) {
+			throw new UncheckedIOException("The log has failed", failure);
+		}
+		byte[] bytes = codec.encode(key);
+		boolean full;
+		synchronized (this) {
+			//checked under the lock close sets it under, so a record is either refused or in the last commit
+			if (closed) {
+				throw new IllegalStateException("The set is closed");
+			}
+			int needed = 1 + 5 + bytes.length;
+			if (pending.remaining() < needed) {
+				ByteBuffer bigger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + needed));
+				pending.flip();
+				bigger.put(pending);
+				pending = bigger;
+			}
+			pending.put(op);
+			int length = bytes.length;
+			while ((length & ~0x7F) != 0) {
+				pending.put((byte) ((length & 0x7F) | 0x80));
+				length >>>= 7;
+			}
+			pending.put((byte) length);
+			pending.put(bytes);
+			full = pending.position() >= GROUP_BYTES;
+		}
+		if (full) {
+			try {
+				sync();
+			}
+			catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	/**
+	 * Writes a snapshot once the log has grown past its limit.
+	 */
+	private void checkpointIfDue() {
+		if (logSize >= snapshotBytes) {
+			try {
+				checkpoint();
+			}
+			catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	/**
+	 * Writes and forces every record appended so far as one frame.  Returns
+	 * once they are all on disk.
+	 *
+	 * @throws IOException if the log cannot be written; the set then refuses changes
+	 */
+	public void sync() throws IOException {
+		synchronized (commitLock) {
+			ByteBuffer batch;
+			synchronized (this) {
+				if (pending.position() == 0) {
+					return;
+				}
+				batch = pending;
+				pending = spare;
+			}
+			try {
+				batch.flip();
+				crc.reset();
+				crc.update(batch.duplicate());
+				header.clear();
+				header.putInt(batch.remaining()).putInt((int) crc.getValue()).flip();
+				long written = header.remaining() + batch.remaining();
+				ByteBuffer[] frame = { header, batch };
+				while (batch.hasRemaining()) {
+					log.write(frame);
+				}
+				log.force(false);
+				logSize += written;
+				commits++;
+			}
+			catch (IOException e) {
+				failure = e;
+				throw e;
+			}
+			finally {
+				batch.clear();
+				spare = batch;
+			}
+		}
+	}
+
+	/**
+	 * Writes the whole set to a new snapshot and empties the log.
+	 *
+	 * @throws IOException if the snapshot cannot be written
+	 */
+	public void checkpoint() throws IOException {
+		synchronized (commitLock) {
+			sync();
+			File temp = new File(directory, SNAPSHOT_NAME + ".tmp");
+			FileOutputStream file = new FileOutputStream(temp);
+			CRC32 check = new CRC32();
+			DataOutputStream out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(file, 1 << 16), check));
+			try {
+				out.writeInt(SNAPSHOT_MAGIC);
+				int count = 0;
+				Cursor<Type> cursor = set.cursor(null, null);
+				while (cursor.next()) {
+					byte[] bytes = codec.encode(cursor.key());
+					writeVarint(out, bytes.length);
+					out.write(bytes);
+					count++;
+				}
+				out.writeInt(count);
+				out.flush();
+				out.writeInt((int) check.getValue());
+				out.flush();
+				file.getChannel().force(true);
+			}
+			finally {
+				out.close();
+			}
+			Files.move(temp.toPath(), new File(directory, SNAPSHOT_NAME).toPath(),
+					StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			forceDirectory();
+			log.truncate(0);
+			log.force(true);
+			logSize = 0;
+		}
+	}
+
+	/**
+	 * Forces the directory, so the snapshot's new name is on disk before the
+	 * log is emptied.  Not every system can open a directory; there the move
+	 * is trusted as it is.
+	 */
+	private void forceDirectory() {
+		try {
+			FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ);
+			try {
+				channel.force(true);
+			}
+			finally {
+				channel.close();
+			}
+		}
+		catch (IOException e) {
+			//cannot open directories here
+		}
+	}
+
+	/**
+	 * Stops the committer, commits what is left and closes the log.  The
+	 * committer is woken rather than interrupted: an interrupt in the middle
+	 * of a write or force would close the channel under it, and a batch it
+	 * had already taken would be lost without an error.
+	 *
+	 * @throws IOException if the last commit fails
+	 */
+	public void close() throws IOException {
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			notifyAll();
+		}
+		if (committer != null) {
+			boolean interrupted = false;
+			while (committer.isAlive()) {
+				try {
+					committer.join();
+				}
+				catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		try {
+			sync();
+			log.force(true);
+		}
+		finally {
+			log.close();
+		}
+	}
+
+	/**
+	 * Gets the number of times the log has been forced; with group commit
+	 * it is far below the number of changes.
+	 *
+	 * @return The number of commits
+	 */
+	public long getCommits() {
+		return commits;
+	}
+
+	/**
+	 * Gets the length of the log on disk.
+	 *
+	 * @return The bytes
+	 */
+	public long getLogSize() {
+		return logSize;
+	}
+
+	/**
+	 * Gets the set the operations are applied to.
+	 *
+	 * @return The set
+	 */
+	public DynamicSet<Type> getSet() {
+		return set;
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#size()
+	 */
+
+	public int size() {
+		return set.size();
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#getComparator()
+	 */
+
+	public Comparator<? super Type> getComparator() {
+		return set.getComparator();
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#insert(java.lang.Object, java.lang.Object)
+	 */
+
+	public void insert(Type key, Object e) {
+		append(INSERT, key);
+		set.insert(key, e);
+		checkpointIfDue();
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#bulkLoad(java.lang.Object[], boolean)
+	 *
+	 * The new contents go straight to a snapshot rather than to the log.
+	 */
+
+	public void bulkLoad(Type[] keys, boolean presorted) {
+		if (failure != null) {
+			throw new UncheckedIOException("The log has failed", failure);
+		}
+		set.bulkLoad(keys, presorted);
+		synchronized (this) {
+			pending.clear(); //replaced by the snapshot
+		}
+		try {
+			checkpoint();
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#delete(java.lang.Object)
+	 */
+
+	public void delete(Type key) {
+		append(DELETE, key);
+		set.delete(key);
+		checkpointIfDue();
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#search(java.lang.Object)
+	 */
+
+	public Object search(Type key) {
+		return set.search(key);
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#minimum()
+	 */
+
+	public Object minimum() {
+		return set.minimum();
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#maximum()
+	 */
+
+	public Object maximum() {
+		return set.maximum();
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#successor(java.lang.Object)
+	 */
+
+	public Object successor(Type key) {
+		return set.successor(key);
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#predecessor(java.lang.Object)
+	 */
+
+	public Object predecessor(Type key) {
+		return set.predecessor(key);
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#cursor(java.lang.Object, java.lang.Object)
+	 */
+
+	public Cursor<Type> cursor(Type fromKey, Type toKey) {
+		return set.cursor(fromKey, toKey);
+	}
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#spliterator()
+	 */
+	
+	public Spliterator<Type> spliterator() {
+		return set.spliterator();
+	}
+
+	/**
+	 * Commits every few milliseconds until the set is closed.
+	 */
+	private class Committer implements Runnable {
+
+		/** The time between commits. */
+		private final int millis;
+
+		/**
+		 * Instantiates a new committer.
+		 *
+		 * @param millis The time between commits
+		 */
+		Committer(int millis) {
+			this.millis = millis;
+		}
+
+		public void run() {
+			DurableDynamicSet<Type> owner = DurableDynamicSet.this;
+			while (true) {
+				try {
+					synchronized (owner) {
+						if (closed) {
+							return; //close commits what is left once this thread is gone
+						}
+						owner.wait(millis);
+						if (closed) {
+							return;
+						}
+					}
+					sync();
+				}
+				catch (InterruptedException e) {
+					return;
+				}
+				catch (IOException e) {
+					return; //kept in failure; changes now throw
+				}
+			}
+		}
+	}
+
+	/**
+	 * Measures write throughput and recovery time.
+	 * Usage:  java DurableDynamicSet directory [operations]
+	 *
+	 * @param args The directory to keep the set in, and how many random
+	 *        inserts and deletes to run (default 1000000)
+	 * @throws IOException if the directory cannot be used
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.out.println("Usage:  java DurableDynamicSet directory [operations]");
+			return;
+		}
+		File directory = new File(args[0]);
+		int operations = (args.length > 1) ? Integer.parseInt(args[1]) : 1000000;
+
+		long start = System.nanoTime();
+		DurableDynamicSet<String> set = new DurableDynamicSet<String>(new SkipList<String>(Utils.CODE_POINT_ORDER), directory, STRINGS);
+		System.out.printf("Recovered %d keys in %.1f ms%n", set.size(), (System.nanoTime() - start) / 1e6);
+
+		Random random = new Random();
+		start = System.nanoTime();
+		for (int i = 0; i < operations; i++) {
+			String key = Benchmark.word(random, 4 + random.nextInt(5));
+			if (random.nextInt(4) == 0) {
+				set.delete(key);
+			}
+			else {
+				set.insert(key, null);
+			}
+		}
+		set.sync();
+		long elapsed = System.nanoTime() - start;
+		System.out.printf("%d operations in %.1f ms, %.0f per second, %d commits, %d keys, log %d bytes%n",
+				operations, elapsed / 1e6, operations / (elapsed / 1e9), set.getCommits(), set.size(), set.getLogSize());
+		set.close();
+
+		start = System.nanoTime();
+		set = new DurableDynamicSet<String>(new SkipList<String>(Utils.CODE_POINT_ORDER), directory, STRINGS);
+		System.out.printf("Reopened with %d keys in %.1f ms%n", set.size(), (System.nanoTime() - start) / 1e6);
+		set.close();
+	}
+}
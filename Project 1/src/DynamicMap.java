@@ -0,0 +1,83 @@
+
+
+/*
+ * Copyright (c) 2013, Erika Nana
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Project 1 nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY Erika Nana ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL Erika Nana BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+import java.util.Map;
+
+/**
+ * A DynamicSet that also keeps the element inserted with each key, so one
+ * ordered lookup serves a full read instead of a search followed by a
+ * second lookup elsewhere.  Inserting a key that is already present
+ * replaces its element.
+ *
+ * @author Erika Nana
+ * @param <Type> the generic type
+ */
+public interface DynamicMap<Type> extends DynamicSet<Type> {
+
+    /**
+     * Gets the element stored under a key.
+     *
+     * @param key The key to look up
+     * @return The element, or null if the key is not in the map
+     */
+    public Object get(Type key);
+
+    /**
+     * Stores an element under a key, replacing the element already there.
+     *
+     * @param key The key
+     * @param e The element to store
+     * @return The element the key held before, or null if it was not in the map
+     */
+    public Object put(Type key, Object e);
+
+    /**
+     * Removes a key and its element.
+     *
+     * @param key The key to remove
+     * @return The element the key held, or null if it was not in the map
+     */
+    public Object remove(Type key);
+
+    /**
+     * Finds the largest key that is at most the key.
+     *
+     * @param key The key
+     * @return The key and its element, or null if every key is larger
+     */
+    public Map.Entry<Type, Object> floorEntry(Type key);
+
+    /**
+     * Finds the smallest key that is at least the key.
+     *
+     * @param key The key
+     * @return The key and its element, or null if every key is smaller
+     */
+    public Map.Entry<Type, Object> ceilingEntry(Type key);
+
+}
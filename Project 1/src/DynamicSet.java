@@ -24,6 +24,11 @@
  * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
 /**
  * The Interface DynamicSet.  Simulates an ADT.
  *
@@ -37,6 +42,15 @@ public interface DynamicSet<Type> {
   	 */
   	public int size();
 
+    /**
+     * Gets the order of the keys.  Every structure compares keys only through
+     * this comparator, so any key type works, including Integer, Long and
+     * custom records.
+     *
+     * @return The comparator the set is ordered by
+     */
+    public Comparator<? super Type> getComparator();
+
     /**
      * Inserts the element e in the set under key k.
      *
@@ -44,6 +58,17 @@ public interface DynamicSet<Type> {
      * @param e The object to insert.
      */
     public void insert(Type key, Object e); 
+
+    /**
+     * Replaces the contents of the set with the given keys, building the
+     * structure in one pass over the sorted keys instead of inserting them
+     * one at a time.  Duplicate keys are kept once.
+     *
+     * @param keys The keys to load
+     * @param presorted True if the keys are already in order; they are
+     *        checked, and sorted anyway if they turn out not to be
+     */
+    public void bulkLoad(Type[] keys, boolean presorted);
     
     /**
      * Given a key k, removes elements indexed by k from the set.
@@ -98,4 +123,45 @@ public interface DynamicSet<Type> {
      */
     public Object predecessor(Type key); 
 
+    /**
+     * Opens a cursor over the keys from fromKey up to, but not including,
+     * toKey, in order.  Walking k keys costs one search plus k steps,
+     * instead of one search per key with successor.
+     *
+     * @param fromKey The smallest key to visit, or null to start at the minimum
+     * @param toKey The key to stop before, or null to run to the maximum
+     * @return A cursor positioned just before the first key of the range
+     */
+    public Cursor<Type> cursor(Type fromKey, Type toKey);
+
+    /**
+     * Opens a spliterator over every key, in order.  It reports ORDERED,
+     * SORTED, DISTINCT, NONNULL and SIZED.  By default it walks a cursor and
+     * splits off batches of keys; a set that can find its own midpoint
+     * cheaply splits there instead.
+     *
+     * @return The spliterator over the keys
+     */
+    public default Spliterator<Type> spliterator() {
+        return KeySpliterator.over(this);
+    }
+
+    /**
+     * Opens a sequential stream over every key, in order.
+     *
+     * @return The stream of keys
+     */
+    public default Stream<Type> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Opens a parallel stream over every key, split by spliterator().
+     *
+     * @return The stream of keys
+     */
+    public default Stream<Type> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
 }
@@ -0,0 +1,355 @@
+
+
+/*
+ * Copyright (c) 2013, Erika Nana
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Project 1 nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY Erika Nana ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL Erika Nana BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.NoSuchElementException;
+
+/**
+ * A read-only set whose keys sit in one array in Eytzinger order: the
+ * breadth-first order of a perfectly balanced search tree, so the children
+ * of slot k are slots 2k and 2k+1.  A search is a loop of
+ * k = 2k + (tree[k] &lt; key), with no pointers and no data-dependent
+ * branch; the first levels share a few cache lines that stay hot, and the
+ * array is the only memory besides the keys themselves.
+ *
+ * Build one with freeze, from any set, once it is done changing; insert and
+ * delete throw.  Searches return the key itself rather than a node.
+ *
+ * @author Erika Nana
+ * @param <Type> the generic type
+ */
+public class EytzingerSet<Type> implements DynamicSet<Type> {
+	
+	/** The keys in Eytzinger order, from slot 1; slot 0 is unused. */
+	private Object[] tree = new Object[1];
+	
+	/** The number of keys. */
+	private int size = 0;
+	
+	/** The order of the keys. */
+	private final Comparator<? super Type> comparator;
+	
+	/**
+	 * Instantiates a new, empty Eytzinger set; fill it with bulkLoad.
+	 *
+	 * @param comparator The order of the keys, or null for their natural order
+	 */
+	public EytzingerSet(Comparator<? super Type> comparator) {
+		this.comparator = Utils.orNatural(comparator);
+	}
+	
+	/**
+	 * Copies the keys of a set into a new Eytzinger set with the same order.
+	 * Repeated keys are kept once.
+	 *
+	 * @param <Type> the generic type
+	 * @param set The set
+	 * @return The frozen copy
+	 */
+	@SuppressWarnings("unchecked")
+	public static <Type> EytzingerSet<Type> freeze(DynamicSet<Type> set) {
+		EytzingerSet<Type> frozen = new EytzingerSet<Type>(set.getComparator());
+		Object[] keys = new Object[set.size()];
+		int count = 0;
+		Cursor<Type> cursor = set.cursor(null, null);
+		while (cursor.next()) {
+			Type key = cursor.key();
+			if (count > 0 && frozen.comparator.compare((Type) keys[count - 1], key) == 0) {
+				continue;
+			}
+			if (count == keys.length) {
+				keys = Arrays.copyOf(keys, Math.max(16, count * 2));
+			}
+			keys[count++] = key;
+		}
+		frozen.layOut(keys, count);
+		return frozen;
+	}
+	
+	/**
+	 * Fills the tree from sorted, distinct keys.
+	 *
+	 * @param sorted The keys
+	 * @param count The number of keys to use
+	 */
+	private void layOut(Object[] sorted, int count) {
+		tree = new Object[count + 1];
+		size = count;
+		fill(sorted, 0, 1);
+	}
+	
+	/**
+	 * Fills a subtree in order: its left subtree, its own slot, its right subtree.
+	 *
+	 * @param sorted The keys
+	 * @param next The index of the next key to place
+	 * @param k The slot at the root of the subtree
+	 * @return The index of the next key to place after the subtree
+	 */
+	private int fill(Object[] sorted, int next, int k) {
+		if (k <= size) {
+			next = fill(sorted, next, 2 * k);
+			tree[k] = sorted[next++];
+			next = fill(sorted, next, 2 * k + 1);
+		}
+		return next;
+	}
+	
+	/**
+	 * Gets the key in a slot.
+	 *
+	 * @param k The slot
+	 * @return The key
+	 */
+	@SuppressWarnings("unchecked")
+	private Type keyAt(int k) {
+		return (Type) tree[k];
+	}
+	
+	/**
+	 * Finds the slot of the smallest key that is at least the key.  The
+	 * descent goes right past smaller keys until it falls off the tree; the
+	 * slot wanted is where it last went left, which is found by dropping the
+	 * trailing right turns and one left turn from the path.
+	 *
+	 * @param key The key
+	 * @return The slot, or 0 if every key is smaller
+	 */
+	private int lowerBound(Type key) {
+		int k = 1;
+		while (k <= size) {
+			k = 2 * k + (comparator.compare(keyAt(k), key) < 0 ? 1 : 0);
+		}
+		return k >>> (Integer.numberOfTrailingZeros(~k) + 1);
+	}
+	
+	/**
+	 * Gets the slot of the key after a slot in order.
+	 *
+	 * @param k The slot
+	 * @return The slot, or 0 if k holds the maximum
+	 */
+	private int next(int k) {
+		if (2 * k + 1 <= size) {
+			k = 2 * k + 1;
+			while (2 * k <= size) {
+				k = 2 * k;
+			}
+			return k;
+		}
+		return k >>> (Integer.numberOfTrailingZeros(~k) + 1);
+	}
+	
+	/**
+	 * Gets the slot of the key before a slot in order.
+	 *
+	 * @param k The slot
+	 * @return The slot, or 0 if k holds the minimum
+	 */
+	private int previous(int k) {
+		if (2 * k <= size) {
+			k = 2 * k;
+			while (2 * k + 1 <= size) {
+				k = 2 * k + 1;
+			}
+			return k;
+		}
+		return k >>> (Integer.numberOfTrailingZeros(k) + 1);
+	}
+	
+	/**
+	 * Finds the slot of a key.
+	 *
+	 * @param key The key
+	 * @return The slot, or 0 if the key is not in the set
+	 */
+	private int find(Type key) {
+		int k = lowerBound(key);
+		return (k != 0 && comparator.compare(keyAt(k), key) == 0) ? k : 0;
+	}
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#size()
+	 */
+	
+	public int size() {
+		return size;
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#getComparator()
+	 */
+	
+	public Comparator<? super Type> getComparator() {
+		return comparator;
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#insert(java.lang.Object, java.lang.Object)
+	 */
+	
+	public void insert(Type key, Object e) {
+		throw new UnsupportedOperationException("An Eytzinger set is read-only");
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#bulkLoad(java.lang.Object[], boolean)
+	 *
+	 * Replaces every key, the one way to change a frozen set.
+	 */
+	
+	public void bulkLoad(Type[] keys, boolean presorted) {
+		Type[] sorted = Utils.sortedKeys(keys, presorted, comparator);
+		layOut(sorted, sorted.length);
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#delete(java.lang.Object)
+	 */
+	
+	public void delete(Type key) {
+		throw new UnsupportedOperationException("An Eytzinger set is read-only");
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#search(java.lang.Object)
+	 */
+	
+	public Object search(Type key) {
+		return tree[find(key)];
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#minimum()
+	 */
+	
+	public Object minimum() {
+		if (size == 0) {
+			return null;
+		}
+		int k = 1;
+		while (2 * k <= size) {
+			k = 2 * k;
+		}
+		return tree[k];
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#maximum()
+	 */
+	
+	public Object maximum() {
+		if (size == 0) {
+			return null;
+		}
+		int k = 1;
+		while (2 * k + 1 <= size) {
+			k = 2 * k + 1;
+		}
+		return tree[k];
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#successor(java.lang.Object)
+	 */
+	
+	public Object successor(Type key) {
+		int k = find(key);
+		return (k == 0) ? null : tree[next(k)];
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#predecessor(java.lang.Object)
+	 */
+	
+	public Object predecessor(Type key) {
+		int k = find(key);
+		return (k == 0) ? null : tree[previous(k)];
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#cursor(java.lang.Object, java.lang.Object)
+	 */
+	
+	public Cursor<Type> cursor(Type fromKey, Type toKey) {
+		SlotCursor cursor = new SlotCursor();
+		cursor.reset(fromKey, toKey);
+		return cursor;
+	}
+	
+	/**
+	 * Walks the slots in key order.
+	 */
+	private class SlotCursor implements Cursor<Type> {
+		
+		/** The slot the cursor is on, or 0. */
+		private int current = 0;
+		
+		/** The slot the cursor moves to next, or 0. */
+		private int next = 0;
+		
+		/** The key to stop before. */
+		private Type toKey = null;
+		
+		public boolean next() {
+			if (next == 0 || (toKey != null && comparator.compare(keyAt(next), toKey) >= 0)) {
+				current = next = 0;
+				return false;
+			}
+			current = next;
+			next = EytzingerSet.this.next(current);
+			return true;
+		}
+		
+		public Type key() {
+			if (current == 0) {
+				throw new NoSuchElementException();
+			}
+			return keyAt(current);
+		}
+		
+		public void reset(Type fromKey, Type toKey) {
+			this.toKey = toKey;
+			current = 0;
+			if (size == 0) {
+				next = 0;
+			}
+			else if (fromKey == null) {
+				int k = 1;
+				while (2 * k <= size) {
+					k = 2 * k;
+				}
+				next = k;
+			}
+			else {
+				next = lowerBound(fromKey);
+			}
+		}
+	}
+}
@@ -0,0 +1,333 @@
+
+
+/*
+ * Copyright (c) 2013, Erika Nana
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Project 1 nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY Erika Nana ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL Erika Nana BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Stores string keys as UTF-8 in large direct buffers outside the heap.
+ * Each key is a variable-length byte count followed by its bytes, and is
+ * named by a long handle: the chunk number in the high half and the offset
+ * in the low half.  A set that keeps handles instead of Strings has no
+ * per-key objects for the garbage collector to trace.
+ *
+ * The arena only grows; space of keys that are no longer used comes back
+ * when the arena is cleared.
+ *
+ * @author Erika Nana
+ */
+public class KeyArena {
+	
+	/** The size of a chunk used by the default constructor. */
+	public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+	
+	/** The size of each chunk. */
+	private final int chunkSize;
+	
+	/** The chunks; only the last one in use is still being filled. */
+	private ByteBuffer[] chunks = new ByteBuffer[8];
+	
+	/** The number of chunks in use. */
+	private int chunkCount = 0;
+	
+	/** The number of bytes used in the last chunk in use. */
+	private int used = 0;
+	
+	/** The number of bytes used in the full chunks. */
+	private long fullBytes = 0;
+	
+	/**
+	 * Instantiates a new arena with the default chunk size.
+	 */
+	public KeyArena() {
+		this(DEFAULT_CHUNK_SIZE);
+	}
+	
+	/**
+	 * Instantiates a new arena.
+	 *
+	 * @param chunkSize The size of each direct buffer; no key may be longer
+	 */
+	public KeyArena(int chunkSize) {
+		if (chunkSize < 16) {
+			throw new IllegalArgumentException("The chunk size must be at least 16 bytes");
+		}
+		this.chunkSize = chunkSize;
+	}
+	
+	/**
+	 * Encodes a key as UTF-8, the form add and compare take.
+	 *
+	 * @param key The key
+	 * @return The bytes
+	 */
+	public static byte[] encode(String key) {
+		return key.getBytes(StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * Gets the most bytes a key can take as UTF-8, the size of buffer that
+	 * encode(key, buffer) needs.
+	 *
+	 * @param key The key
+	 * @return The number of bytes
+	 */
+	public static int maxEncodedLength(String key) {
+		return key.length() * 3;
+	}
+	
+	/**
+	 * Encodes a key as UTF-8 into a buffer, the same bytes encode(key)
+	 * returns, so a lookup can reuse one buffer instead of making an array.
+	 *
+	 * @param key The key
+	 * @param buffer The buffer, at least maxEncodedLength(key) long
+	 * @return The number of bytes written
+	 */
+	public static int encode(String key, byte[] buffer) {
+		int n = 0;
+		int length = key.length();
+		for (int i = 0; i < length; i++) {
+			char c = key.charAt(i);
+			if (c < 0x80) {
+				buffer[n++] = (byte) c;
+			}
+			else if (c < 0x800) {
+				buffer[n++] = (byte) (0xC0 | (c >> 6));
+				buffer[n++] = (byte) (0x80 | (c & 0x3F));
+			}
+			else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(key.charAt(i + 1))) {
+				int code = Character.toCodePoint(c, key.charAt(++i));
+				buffer[n++] = (byte) (0xF0 | (code >> 18));
+				buffer[n++] = (byte) (0x80 | ((code >> 12) & 0x3F));
+				buffer[n++] = (byte) (0x80 | ((code >> 6) & 0x3F));
+				buffer[n++] = (byte) (0x80 | (code & 0x3F));
+			}
+			else if (Character.isSurrogate(c)) {
+				buffer[n++] = '?'; //an unpaired surrogate, replaced as getBytes does
+			}
+			else {
+				buffer[n++] = (byte) (0xE0 | (c >> 12));
+				buffer[n++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+				buffer[n++] = (byte) (0x80 | (c & 0x3F));
+			}
+		}
+		return n;
+	}
+	
+	/**
+	 * Copies a key into the arena.
+	 *
+	 * @param key The key
+	 * @return The handle of the key
+	 */
+	public long add(String key) {
+		return add(encode(key));
+	}
+	
+	/**
+	 * Copies an encoded key into the arena.
+	 *
+	 * @param key The UTF-8 bytes of the key
+	 * @return The handle of the key
+	 */
+	public long add(byte[] key) {
+		return add(key, key.length);
+	}
+	
+	/**
+	 * Copies the start of a buffer into the arena as a key.
+	 *
+	 * @param key The buffer holding the UTF-8 bytes of the key
+	 * @param length The number of bytes in the key
+	 * @return The handle of the key
+	 */
+	public long add(byte[] key, int length) {
+		int needed = varintSize(length) + length;
+		if (needed > chunkSize) {
+			throw new IllegalArgumentException("The key is longer than a chunk: " + length + " bytes");
+		}
+		if (chunkCount == 0 || used + needed > chunkSize) {
+			nextChunk();
+		}
+		ByteBuffer chunk = chunks[chunkCount - 1];
+		long handle = ((long) (chunkCount - 1) << 32) | used;
+		int value = length;
+		while ((value & ~0x7F) != 0) {
+			chunk.put(used++, (byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		chunk.put(used++, (byte) value);
+		for (int i = 0; i < length; i++) {
+			chunk.put(used + i, key[i]);
+		}
+		used += length;
+		return handle;
+	}
+	
+	/**
+	 * Moves on to a new chunk, reusing one left over from before a clear.
+	 */
+	private void nextChunk() {
+		if (chunkCount > 0) {
+			fullBytes += used;
+		}
+		if (chunkCount == chunks.length) {
+			chunks = Arrays.copyOf(chunks, chunkCount * 2);
+		}
+		if (chunks[chunkCount] == null) {
+			chunks[chunkCount] = ByteBuffer.allocateDirect(chunkSize);
+		}
+		chunkCount++;
+		used = 0;
+	}
+	
+	/**
+	 * Gets the number of bytes a variable-length int takes.
+	 *
+	 * @param value The value
+	 * @return The number of bytes
+	 */
+	private static int varintSize(int value) {
+		int size = 1;
+		while ((value & ~0x7F) != 0) {
+			value >>>= 7;
+			size++;
+		}
+		return size;
+	}
+	
+	/**
+	 * Gets the length in bytes of a key.
+	 *
+	 * @param handle The handle of the key
+	 * @return The length
+	 */
+	public int length(long handle) {
+		ByteBuffer chunk = chunks[(int) (handle >>> 32)];
+		int position = (int) handle;
+		int value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = chunk.get(position++);
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		} while (b < 0);
+		return value;
+	}
+	
+	/**
+	 * Compares a key in the arena with an encoded key, byte by byte.
+	 *
+	 * @param handle The handle of the key in the arena
+	 * @param key The UTF-8 bytes of the other key
+	 * @return Negative, zero or positive as the arena key is less than, equal to or greater than key
+	 */
+	public int compare(long handle, byte[] key) {
+		return compare(handle, key, key.length);
+	}
+	
+	/**
+	 * Compares a key in the arena with an encoded key at the start of a
+	 * buffer, byte by byte, where it lies; nothing is decoded or copied.
+	 *
+	 * @param handle The handle of the key in the arena
+	 * @param key The buffer holding the UTF-8 bytes of the other key
+	 * @param keyLength The number of bytes in the other key
+	 * @return Negative, zero or positive as the arena key is less than, equal to or greater than key
+	 */
+	public int compare(long handle, byte[] key, int keyLength) {
+		ByteBuffer chunk = chunks[(int) (handle >>> 32)];
+		int position = (int) handle;
+		int length = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = chunk.get(position++);
+			length |= (b & 0x7F) << shift;
+			shift += 7;
+		} while (b < 0);
+		int limit = Math.min(length, keyLength);
+		for (int i = 0; i < limit; i++) {
+			int x = chunk.get(position + i) & 0xFF;
+			int y = key[i] & 0xFF;
+			if (x != y) {
+				return x - y;
+			}
+		}
+		return length - keyLength;
+	}
+	
+	/**
+	 * Decodes a key.
+	 *
+	 * @param handle The handle of the key
+	 * @return The key
+	 */
+	public String get(long handle) {
+		return get(handle, new byte[length(handle)]);
+	}
+	
+	/**
+	 * Decodes a key through a buffer, so the only new object is the String.
+	 *
+	 * @param handle The handle of the key
+	 * @param buffer The buffer, at least length(handle) long
+	 * @return The key
+	 */
+	public String get(long handle, byte[] buffer) {
+		ByteBuffer chunk = chunks[(int) (handle >>> 32)];
+		int length = length(handle);
+		int position = (int) handle + varintSize(length);
+		for (int i = 0; i < length; i++) {
+			buffer[i] = chunk.get(position + i);
+		}
+		return new String(buffer, 0, length, StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * Gets the number of bytes the keys take, including their lengths.
+	 *
+	 * @return The number of bytes
+	 */
+	public long bytesUsed() {
+		return (chunkCount == 0) ? 0 : fullBytes + used;
+	}
+	
+	/**
+	 * Forgets every key.  The chunks are kept and filled again, so handles
+	 * given out before are no longer valid.
+	 */
+	public void clear() {
+		chunkCount = 0;
+		used = 0;
+		fullBytes = 0;
+	}
+}
@@ -0,0 +1,223 @@
+
+
+/*
+ * Copyright (c) 2013, Erika Nana
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Project 1 nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY Erika Nana ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL Erika Nana BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * A Spliterator over the keys of a DynamicSet, in order.  Every key
+ * spliterator reports ORDERED, SORTED, DISTINCT and NONNULL, and gives back
+ * the set's comparator, so a stream over a set knows its keys are already
+ * sorted and unique.  The sets that can find a good split point cheaply
+ * split themselves: BTree at the median found through its subtree counts,
+ * SkipList at a tall tower near the middle, DLinkedList at its midpoint.
+ * Any other set is split by the default spliterator, which hands off
+ * batches read through a cursor.
+ *
+ * The result of a traversal is undefined if the set is changed while it
+ * is under way, as with a cursor.
+ *
+ * @author Erika Nana
+ * @param <Type> the generic type
+ */
+public abstract class KeySpliterator<Type> implements Spliterator<Type> {
+	
+	/** The characteristics every key spliterator reports. */
+	public static final int CHARACTERISTICS = ORDERED | SORTED | DISTINCT | NONNULL;
+	
+	/** The first batch the cursor spliterator hands off. */
+	public static final int BATCH_UNIT = 1 << 10;
+	
+	/** The largest batch the cursor spliterator hands off. */
+	public static final int MAX_BATCH = 1 << 25;
+	
+	/** The order of the keys. */
+	protected final Comparator<? super Type> comparator;
+	
+	/**
+	 * Instantiates a new key spliterator.
+	 *
+	 * @param comparator The order of the keys
+	 */
+	protected KeySpliterator(Comparator<? super Type> comparator) {
+		this.comparator = comparator;
+	}
+	
+	/**
+	 * Opens the default spliterator over a set, which walks it with a cursor
+	 * and splits off batches of keys copied into arrays, the way the JDK
+	 * splits an iterator.  The batches grow by BATCH_UNIT each split so
+	 * small sets are not copied for nothing and large ones still spread
+	 * over every core.
+	 *
+	 * @param <Type> the generic type
+	 * @param set The set to walk
+	 * @return The spliterator over every key of the set
+	 */
+	public static <Type> Spliterator<Type> over(DynamicSet<Type> set) {
+		return new CursorKeys<Type>(set);
+	}
+	
+	/* (non-Javadoc)
+	 * @see java.util.Spliterator#characteristics()
+	 */
+	
+	public int characteristics() {
+		return CHARACTERISTICS | SIZED | SUBSIZED;
+	}
+	
+	/* (non-Javadoc)
+	 * @see java.util.Spliterator#getComparator()
+	 */
+	
+	public Comparator<? super Type> getComparator() {
+		//null is how a spliterator says natural order, which lets a stream skip sorted()
+		return (comparator == Comparator.naturalOrder()) ? null : comparator;
+	}
+	
+	/**
+	 * Walks a set through a cursor, and splits by copying the next batch of
+	 * keys into an array.
+	 */
+	private static class CursorKeys<Type> extends KeySpliterator<Type> {
+		
+		/** The cursor over the keys not yet handed out. */
+		private final Cursor<Type> cursor;
+		
+		/** The number of keys left. */
+		private long remaining;
+		
+		/** The size of the next batch to split off. */
+		private int batch = 0;
+		
+		/**
+		 * Instantiates a new cursor spliterator.
+		 *
+		 * @param set The set to walk
+		 */
+		private CursorKeys(DynamicSet<Type> set) {
+			super(set.getComparator());
+			cursor = set.cursor(null, null);
+			remaining = set.size();
+		}
+		
+		public boolean tryAdvance(Consumer<? super Type> action) {
+			if (!cursor.next()) {
+				remaining = 0;
+				return false;
+			}
+			remaining--;
+			action.accept(cursor.key());
+			return true;
+		}
+		
+		public void forEachRemaining(Consumer<? super Type> action) {
+			while (cursor.next()) {
+				action.accept(cursor.key());
+			}
+			remaining = 0;
+		}
+		
+		public Spliterator<Type> trySplit() {
+			if (remaining < 2) {
+				return null;
+			}
+			int n = (int) Math.min(Math.min(batch + BATCH_UNIT, MAX_BATCH), remaining);
+			Object[] keys = new Object[n];
+			int count = 0;
+			while (count < n && cursor.next()) {
+				keys[count++] = cursor.key();
+			}
+			if (count == 0) {
+				remaining = 0;
+				return null;
+			}
+			batch = count;
+			remaining -= count;
+			return new ArrayKeys<Type>(keys, 0, count, comparator);
+		}
+		
+		public long estimateSize() {
+			return remaining;
+		}
+	}
+	
+	/**
+	 * Walks a batch of keys in an array, and splits it in half.
+	 */
+	private static class ArrayKeys<Type> extends KeySpliterator<Type> {
+		
+		/** The keys, in order. */
+		private final Object[] keys;
+		
+		/** The index of the next key. */
+		private int index;
+		
+		/** The index to stop before. */
+		private final int fence;
+		
+		/**
+		 * Instantiates a new array spliterator.
+		 *
+		 * @param keys The keys, in order
+		 * @param index The index of the first key
+		 * @param fence The index to stop before
+		 * @param comparator The order of the keys
+		 */
+		private ArrayKeys(Object[] keys, int index, int fence, Comparator<? super Type> comparator) {
+			super(comparator);
+			this.keys = keys;
+			this.index = index;
+			this.fence = fence;
+		}
+		
+		@SuppressWarnings("unchecked")
+		public boolean tryAdvance(Consumer<? super Type> action) {
+			if (index >= fence) {
+				return false;
+			}
+			action.accept((Type) keys[index++]);
+			return true;
+		}
+		
+		public Spliterator<Type> trySplit() {
+			int low = index;
+			int mid = (low + fence) >>> 1;
+			if (low >= mid) {
+				return null;
+			}
+			index = mid;
+			return new ArrayKeys<Type>(keys, low, mid, comparator);
+		}
+		
+		public long estimateSize() {
+			return fence - index;
+		}
+	}
+}
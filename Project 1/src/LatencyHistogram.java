@@ -0,0 +1,302 @@
+
+
+/*
+ * Copyright (c) 2013, Erika Nana
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Project 1 nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY Erika Nana ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL Erika Nana BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+import java.io.PrintWriter;
+
+/**
+ * Counts latencies in log-linear buckets, the way HdrHistogram does: values
+ * below 64 get a bucket each, and every power of two above that is split
+ * into 32 buckets, so any recorded value is known to within about 3% while
+ * the whole range of a long fits in under two thousand counters.  Recording
+ * is one shift and one array increment.
+ *
+ * @author Erika Nana
+ */
+public class LatencyHistogram {
+	
+	/** The log2 of the number of buckets below the first power of two that is split. */
+	private static final int SUB_BITS = 6;
+	
+	/** The number of buckets that each hold one value. */
+	private static final int SUB_COUNT = 1 << SUB_BITS;
+	
+	/** The number of buckets each power of two above SUB_COUNT is split into. */
+	private static final int HALF_COUNT = SUB_COUNT / 2;
+	
+	/** The percentiles the runtest table reports. */
+	public static final double[] REPORTED = {50, 90, 99, 99.9};
+	
+	/** The number of values in each bucket. */
+	private final long[] counts = new long[index(Long.MAX_VALUE) + 1];
+	
+	/** The number of values recorded. */
+	private long count = 0;
+	
+	/** The smallest value recorded. */
+	private long min = Long.MAX_VALUE;
+	
+	/** The largest value recorded. */
+	private long max = 0;
+	
+	/** The sum of the values recorded. */
+	private double sum = 0;
+	
+	/** The number of values whose allocations were recorded. */
+	private long measured = 0;
+	
+	/** The bytes allocated by the operations whose allocations were recorded. */
+	private long allocatedBytes = 0;
+	
+	/** The number of operations that allocated anything. */
+	private long allocating = 0;
+	
+	/** The heap a set held once the operations were done, or -1 if not measured. */
+	private long retainedBytes = -1;
+	
+	/** The number of keys the set held when its heap was measured. */
+	private int retainedKeys = 0;
+	
+	/**
+	 * Gets the bucket of a value.
+	 *
+	 * @param value The value, at least 0
+	 * @return The bucket
+	 */
+	private static int index(long value) {
+		int shift = Math.max(0, 64 - Long.numberOfLeadingZeros(value) - SUB_BITS);
+		return shift * HALF_COUNT + (int) (value >>> shift);
+	}
+	
+	/**
+	 * Gets the smallest value that falls in a bucket.
+	 *
+	 * @param index The bucket
+	 * @return The value
+	 */
+	private static long lowest(int index) {
+		if (index < SUB_COUNT) {
+			return index;
+		}
+		int shift = index / HALF_COUNT - 1;
+		return (long) (index - shift * HALF_COUNT) << shift;
+	}
+	
+	/**
+	 * Gets the largest value that falls in a bucket.
+	 *
+	 * @param index The bucket
+	 * @return The value
+	 */
+	private static long highest(int index) {
+		return (index + 1 == index(Long.MAX_VALUE) + 1) ? Long.MAX_VALUE : lowest(index + 1) - 1;
+	}
+	
+	/**
+	 * Records a value.
+	 *
+	 * @param value The value; negative values count as 0
+	 */
+	public void record(long value) {
+		if (value < 0) {
+			value = 0;
+		}
+		counts[index(value)]++;
+		count++;
+		sum += value;
+		if (value < min) {
+			min = value;
+		}
+		if (value > max) {
+			max = value;
+		}
+	}
+	
+	/**
+	 * Records the bytes one operation allocated, as counted by the JVM for
+	 * the thread that ran it.
+	 *
+	 * @param bytes The bytes
+	 */
+	public void recordAllocation(long bytes) {
+		measured++;
+		if (bytes > 0) {
+			allocatedBytes += bytes;
+			allocating++;
+		}
+	}
+	
+	/**
+	 * Records how much heap a set held once the operations were done.
+	 *
+	 * @param bytes The bytes still reachable after a full collection
+	 * @param keys The number of keys in the set
+	 */
+	public void setRetained(long bytes, int keys) {
+		retainedBytes = Math.max(0, bytes);
+		retainedKeys = keys;
+	}
+	
+	/**
+	 * Adds every value recorded in another histogram.
+	 *
+	 * @param other The other histogram
+	 */
+	public void add(LatencyHistogram other) {
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] += other.counts[i];
+		}
+		count += other.count;
+		sum += other.sum;
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+		measured += other.measured;
+		allocatedBytes += other.allocatedBytes;
+		allocating += other.allocating;
+	}
+	
+	/**
+	 * Gets the number of values recorded.
+	 *
+	 * @return The count
+	 */
+	public long getCount() {
+		return count;
+	}
+	
+	/**
+	 * Gets the smallest value recorded.
+	 *
+	 * @return The value, or 0 if there is none
+	 */
+	public long getMin() {
+		return (count == 0) ? 0 : min;
+	}
+	
+	/**
+	 * Gets the largest value recorded.
+	 *
+	 * @return The value, or 0 if there is none
+	 */
+	public long getMax() {
+		return max;
+	}
+	
+	/**
+	 * Gets the mean of the values recorded.
+	 *
+	 * @return The mean, or 0 if there is none
+	 */
+	public double getMean() {
+		return (count == 0) ? 0 : sum / count;
+	}
+	
+	/**
+	 * Gets the bytes allocated per operation.
+	 *
+	 * @return The mean, or NaN if allocations were not recorded
+	 */
+	public double getBytesPerOperation() {
+		return (measured == 0) ? Double.NaN : (double) allocatedBytes / measured;
+	}
+	
+	/**
+	 * Gets the number of operations that allocated anything.  The JVM counts
+	 * bytes, not objects, so this is the closest count it gives.
+	 *
+	 * @return The count, or -1 if allocations were not recorded
+	 */
+	public long getAllocatingCount() {
+		return (measured == 0) ? -1 : allocating;
+	}
+	
+	/**
+	 * Gets the heap the set held once the operations were done.
+	 *
+	 * @return The bytes, or -1 if not measured
+	 */
+	public long getRetainedBytes() {
+		return retainedBytes;
+	}
+	
+	/**
+	 * Gets the heap the set held per key once the operations were done.
+	 *
+	 * @return The bytes, or NaN if not measured or the set was empty
+	 */
+	public double getBytesPerKey() {
+		return (retainedBytes < 0 || retainedKeys == 0) ? Double.NaN : (double) retainedBytes / retainedKeys;
+	}
+	
+	/**
+	 * Gets the value that a percentage of the recorded values are at or below.
+	 *
+	 * @param percentile The percentage, from 0 to 100
+	 * @return The largest value of the bucket holding it, but no more than
+	 *         the largest value recorded, or 0 if there is none
+	 */
+	public long getValueAtPercentile(double percentile) {
+		if (count == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return Math.min(highest(i), max);
+			}
+		}
+		return max;
+	}
+	
+	/**
+	 * Writes the non-empty buckets as CSV rows of: the label, the bucket's
+	 * lowest and highest value, its count, the fraction of values at or
+	 * below it, and then the same memory columns on every row: bytes
+	 * allocated per operation, operations that allocated, retained bytes
+	 * and bytes per key.  A memory column that was not measured is empty.
+	 *
+	 * @param out Where to write
+	 * @param label The columns to start each row with, e.g. the structure and operation
+	 */
+	public void writeCsv(PrintWriter out, String label) {
+		String memory = "," + (measured == 0 ? "" : String.valueOf(getBytesPerOperation()))
+				+ "," + (measured == 0 ? "" : String.valueOf(allocating))
+				+ "," + (retainedBytes < 0 ? "" : String.valueOf(retainedBytes))
+				+ "," + (Double.isNaN(getBytesPerKey()) ? "" : String.valueOf(getBytesPerKey()));
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			if (counts[i] == 0) {
+				continue;
+			}
+			seen += counts[i];
+			out.println(label + "," + lowest(i) + "," + Math.min(highest(i), max) + ","
+					+ counts[i] + "," + ((double) seen / count) + memory);
+		}
+	}
+}
@@ -0,0 +1,632 @@
+
+
+/*
+ * Copyright (c) 2013, Erika Nana
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Project 1 nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY Erika Nana ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL Erika Nana BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A search tree of primitive long keys.  The nodes are rows of parallel
+ * arrays (key, children, parent and color) rather than objects, and keys
+ * are compared as longs, so there is no boxing and no object per key.
+ *
+ * Numeric IDs often arrive in increasing order, which would turn the plain
+ * BTree into a linked list, so the tree rebalances itself the way RBTree
+ * does, following the same pseudocode from Introduction to Algorithms
+ * Third Edition by Cormen et al.  Row 0 is the sentinel nil.  Rows freed
+ * by delete chain through their left child and are reused by later
+ * inserts.
+ *
+ * @author Erika Nana
+ */
+public class LongBTree implements LongDynamicSet {
+	
+	/** The sentinel that stands in for every leaf and for the root's parent. */
+	private static final int NIL = 0;
+	
+	/** The key of each node. */
+	private long[] keys;
+	
+	/** The left child of each node. */
+	private int[] left;
+	
+	/** The right child of each node. */
+	private int[] right;
+	
+	/** The parent of each node. */
+	private int[] parent;
+	
+	/** The color of each node; nil is black. */
+	private boolean[] red;
+	
+	/** The number of node rows handed out, including nil and freed rows. */
+	private int nodeCount;
+	
+	/** The first freed node, or NIL. */
+	private int free;
+	
+	/** The root. */
+	private int root;
+	
+	/** The size. */
+	private int size;
+	
+	/**
+	 * Instantiates a new empty tree.
+	 */
+	public LongBTree() {
+		reset(16);
+	}
+	
+	/**
+	 * Empties the tree and sizes the arrays for a number of keys.
+	 *
+	 * @param capacity The number of keys to make room for
+	 */
+	private void reset(int capacity) {
+		keys = new long[capacity + 1];
+		left = new int[capacity + 1];
+		right = new int[capacity + 1];
+		parent = new int[capacity + 1];
+		red = new boolean[capacity + 1];
+		nodeCount = 1;
+		free = NIL;
+		root = NIL;
+		size = 0;
+	}
+	
+	/**
+	 * Hands out a red node row with no children, reusing a freed one if any.
+	 *
+	 * @param key The key of the node
+	 * @return The node
+	 */
+	private int allocate(long key) {
+		int node = free;
+		if (node != NIL) {
+			free = left[node];
+		}
+		else {
+			if (nodeCount == keys.length) {
+				int capacity = keys.length * 2;
+				keys = Arrays.copyOf(keys, capacity);
+				left = Arrays.copyOf(left, capacity);
+				right = Arrays.copyOf(right, capacity);
+				parent = Arrays.copyOf(parent, capacity);
+				red = Arrays.copyOf(red, capacity);
+			}
+			node = nodeCount++;
+		}
+		keys[node] = key;
+		left[node] = NIL;
+		right[node] = NIL;
+		red[node] = true;
+		return node;
+	}
+	
+	/* (non-Javadoc)
+	 * @see LongDynamicSet#size()
+	 */
+	
+	public int size() {
+		return size;
+	}
+	
+	/* (non-Javadoc)
+	 * @see LongDynamicSet#insert(long)
+	 */
+	
+	public void insert(long key) {
+		int y = NIL;
+		int x = root;
+		
+		while (x != NIL) {
+			y = x;
+			if (key == keys[x]) {
+				return; //already in the set
+			}
+			x = (key < keys[x]) ? left[x] : right[x];
+		}
+		int z = allocate(key);
+		parent[z] = y;
+		if (y == NIL) {
+			root = z; //tree is empty to begin with
+		}
+		else if (key < keys[y]) {
+			left[y] = z;
+		}
+		else {
+			right[y] = z;
+		}
+		insertFixup(z);
+		size++;
+	}
+	
+	/**
+	 * Restores the red-black properties after z was inserted as a red leaf.
+	 *
+	 * @param z The node that was inserted
+	 */
+	private void insertFixup(int z) {
+		while (red[parent[z]]) {
+			int p = parent[z];
+			int grandparent = parent[p];
+			if (p == left[grandparent]) {
+				int uncle = right[grandparent];
+				if (red[uncle]) {
+					red[p] = false;
+					red[uncle] = false;
+					red[grandparent] = true;
+					z = grandparent;
+				}
+				else {
+					if (z == right[p]) {
+						z = p;
+						leftRotate(z);
+					}
+					red[parent[z]] = false;
+					red[parent[parent[z]]] = true;
+					rightRotate(parent[parent[z]]);
+				}
+			}
+			else {
+				int uncle = left[grandparent];
+				if (red[uncle]) {
+					red[p] = false;
+					red[uncle] = false;
+					red[grandparent] = true;
+					z = grandparent;
+				}
+				else {
+					if (z == left[p]) {
+						z = p;
+						rightRotate(z);
+					}
+					red[parent[z]] = false;
+					red[parent[parent[z]]] = true;
+					leftRotate(parent[parent[z]]);
+				}
+			}
+		}
+		red[root] = false;
+	}
+	
+	/* (non-Javadoc)
+	 * @see LongDynamicSet#bulkLoad(long[], boolean)
+	 */
+	
+	public void bulkLoad(long[] keys, boolean presorted) {
+		long[] sorted = Utils.sortedKeys(keys, presorted);
+		reset(sorted.length);
+		//only the bottom level of a balanced tree can be incomplete; coloring
+		//just that level red keeps every path's black height the same
+		int redLevel = 31 - Integer.numberOfLeadingZeros(sorted.length + 1);
+		root = build(sorted, 0, sorted.length - 1, 0, redLevel, NIL);
+		size = sorted.length;
+	}
+	
+	/**
+	 * Builds a perfectly balanced subtree out of a run of sorted keys; the
+	 * middle key becomes the root.
+	 *
+	 * @param keys The sorted keys
+	 * @param low The index of the first key of the run
+	 * @param high The index of the last key of the run
+	 * @param depth The depth of the subtree's root
+	 * @param redLevel The depth whose nodes are colored red
+	 * @param up The parent of the subtree
+	 * @return The root of the subtree, or NIL if the run is empty
+	 */
+	private int build(long[] keys, int low, int high, int depth, int redLevel, int up) {
+		if (low > high) {
+			return NIL;
+		}
+		int mid = (low + high) >>> 1;
+		int node = allocate(keys[mid]);
+		red[node] = (depth == redLevel);
+		parent[node] = up;
+		left[node] = build(keys, low, mid - 1, depth + 1, redLevel, node);
+		right[node] = build(keys, mid + 1, high, depth + 1, redLevel, node);
+		return node;
+	}
+	
+	/* (non-Javadoc)
+	 * @see LongDynamicSet#delete(long)
+	 */
+	
+	public void delete(long key) {
+		int z = find(key);
+		if (z == NIL) {
+			return;
+		}
+		int y = z;
+		int x;
+		boolean yWasRed = red[y];
+		if (left[z] == NIL) {
+			x = right[z];
+			transplant(z, right[z]);
+		}
+		else if (right[z] == NIL) {
+			x = left[z];
+			transplant(z, left[z]);
+		}
+		else {
+			y = minimum(right[z]);
+			yWasRed = red[y];
+			x = right[y];
+			if (parent[y] == z) {
+				parent[x] = y; //x may be nil
+			}
+			else {
+				transplant(y, right[y]);
+				right[y] = right[z];
+				parent[right[y]] = y;
+			}
+			transplant(z, y);
+			left[y] = left[z];
+			parent[left[y]] = y;
+			red[y] = red[z];
+		}
+		if (!yWasRed) {
+			deleteFixup(x);
+		}
+		left[z] = free;
+		free = z;
+		size--;
+	}
+	
+	/**
+	 * Restores the red-black properties after a black node was removed
+	 * from above x.
+	 *
+	 * @param x The node that carries the extra black
+	 */
+	private void deleteFixup(int x) {
+		while (x != root && !red[x]) {
+			if (x == left[parent[x]]) {
+				int w = right[parent[x]];
+				if (red[w]) {
+					red[w] = false;
+					red[parent[x]] = true;
+					leftRotate(parent[x]);
+					w = right[parent[x]];
+				}
+				if (!red[left[w]] && !red[right[w]]) {
+					red[w] = true;
+					x = parent[x];
+				}
+				else {
+					if (!red[right[w]]) {
+						red[left[w]] = false;
+						red[w] = true;
+						rightRotate(w);
+						w = right[parent[x]];
+					}
+					red[w] = red[parent[x]];
+					red[parent[x]] = false;
+					red[right[w]] = false;
+					leftRotate(parent[x]);
+					x = root;
+				}
+			}
+			else {
+				int w = left[parent[x]];
+				if (red[w]) {
+					red[w] = false;
+					red[parent[x]] = true;
+					rightRotate(parent[x]);
+					w = left[parent[x]];
+				}
+				if (!red[right[w]] && !red[left[w]]) {
+					red[w] = true;
+					x = parent[x];
+				}
+				else {
+					if (!red[left[w]]) {
+						red[right[w]] = false;
+						red[w] = true;
+						leftRotate(w);
+						w = left[parent[x]];
+					}
+					red[w] = red[parent[x]];
+					red[parent[x]] = false;
+					red[left[w]] = false;
+					rightRotate(parent[x]);
+					x = root;
+				}
+			}
+		}
+		red[x] = false;
+	}
+	
+	/**
+	 * Finds the node with the given key.
+	 *
+	 * @param key The key to search for
+	 * @return The node, or NIL if the key is not in the tree
+	 */
+	private int find(long key) {
+		int current = root;
+		while (current != NIL && keys[current] != key) {
+			current = (key < keys[current]) ? left[current] : right[current];
+		}
+		return current;
+	}
+	
+	/* (non-Javadoc)
+	 * @see LongDynamicSet#search(long)
+	 */
+	
+	public boolean search(long key) {
+		return find(key) != NIL;
+	}
+	
+	/* (non-Javadoc)
+	 * @see LongDynamicSet#minimum()
+	 */
+	
+	public long minimum() {
+		if (root == NIL) {
+			throw new NoSuchElementException();
+		}
+		return keys[minimum(root)];
+	}
+	
+	/* (non-Javadoc)
+	 * @see LongDynamicSet#maximum()
+	 */
+	
+	public long maximum() {
+		if (root == NIL) {
+			throw new NoSuchElementException();
+		}
+		return keys[maximum(root)];
+	}
+	
+	/* (non-Javadoc)
+	 * @see LongDynamicSet#successor(long)
+	 */
+	
+	public long successor(long key) {
+		int current = root;
+		int successor = NIL;
+		while (current != NIL) {
+			if (key < keys[current]) {
+				successor = current;
+				current = left[current];
+			}
+			else {
+				current = right[current];
+			}
+		}
+		if (successor == NIL) {
+			throw new NoSuchElementException();
+		}
+		return keys[successor];
+	}
+	
+	/* (non-Javadoc)
+	 * @see LongDynamicSet#predecessor(long)
+	 */
+	
+	public long predecessor(long key) {
+		int current = root;
+		int predecessor = NIL;
+		while (current != NIL) {
+			if (key > keys[current]) {
+				predecessor = current;
+				current = right[current];
+			}
+			else {
+				current = left[current];
+			}
+		}
+		if (predecessor == NIL) {
+			throw new NoSuchElementException();
+		}
+		return keys[predecessor];
+	}
+	
+	/* (non-Javadoc)
+	 * @see LongDynamicSet#cursor(long, long)
+	 */
+	
+	public LongCursor cursor(long fromKey, long toKey) {
+		TreeCursor cursor = new TreeCursor();
+		cursor.reset(fromKey, toKey);
+		return cursor;
+	}
+	
+	/**
+	 * Finds the node with the smallest key that is at least the key.
+	 *
+	 * @param key The key
+	 * @return The node, or NIL if every key is smaller
+	 */
+	private int ceilingNode(long key) {
+		int current = root;
+		int ceiling = NIL;
+		while (current != NIL) {
+			if (key <= keys[current]) {
+				ceiling = current;
+				current = left[current];
+			}
+			else {
+				current = right[current];
+			}
+		}
+		return ceiling;
+	}
+	
+	/**
+	 * Gets the in-order successor of a node.
+	 *
+	 * @param node The node
+	 * @return The next node, or NIL if node is the maximum
+	 */
+	private int nextNode(int node) {
+		if (right[node] != NIL) {
+			return minimum(right[node]);
+		}
+		int up = parent[node];
+		while (up != NIL && node == right[up]) {
+			node = up;
+			up = parent[up];
+		}
+		return up;
+	}
+	
+	/**
+	 * Gets the minimum of the subtree
+	 *
+	 * @param node The root of the subtree 
+	 * @return The minimum node of the subtree
+	 */
+	private int minimum(int node) {
+		while (left[node] != NIL) {
+			node = left[node];
+		}
+		return node;
+	}
+	
+	/**
+	 * Gets the maximum of the subtree
+	 *
+	 * @param node The root of the subtree
+	 * @return The maximum node of the subtree
+	 */
+	private int maximum(int node) {
+		while (right[node] != NIL) {
+			node = right[node];
+		}
+		return node;
+	}
+	
+	/**
+	 * Rotates x down to the left so that its right child takes its place.
+	 *
+	 * @param x The node to rotate
+	 */
+	private void leftRotate(int x) {
+		int y = right[x];
+		right[x] = left[y];
+		if (left[y] != NIL) {
+			parent[left[y]] = x;
+		}
+		parent[y] = parent[x];
+		if (parent[x] == NIL) {
+			root = y;
+		}
+		else if (x == left[parent[x]]) {
+			left[parent[x]] = y;
+		}
+		else {
+			right[parent[x]] = y;
+		}
+		left[y] = x;
+		parent[x] = y;
+	}
+	
+	/**
+	 * Rotates x down to the right so that its left child takes its place.
+	 *
+	 * @param x The node to rotate
+	 */
+	private void rightRotate(int x) {
+		int y = left[x];
+		left[x] = right[y];
+		if (right[y] != NIL) {
+			parent[right[y]] = x;
+		}
+		parent[y] = parent[x];
+		if (parent[x] == NIL) {
+			root = y;
+		}
+		else if (x == right[parent[x]]) {
+			right[parent[x]] = y;
+		}
+		else {
+			left[parent[x]] = y;
+		}
+		right[y] = x;
+		parent[x] = y;
+	}
+	
+	/**
+	 * Replaces one subtree as a child of its parent with another subtree
+	 *
+	 * @param u The root of a tree
+	 * @param v The root of another tree
+	 */
+	private void transplant(int u, int v) {
+		if (parent[u] == NIL) //u is the root of its subtree
+			root = v;
+		else if (u == left[parent[u]])
+			left[parent[u]] = v;
+		else right[parent[u]] = v;
+		parent[v] = parent[u]; //unconditional; delete fixup reads nil's parent
+	}
+	
+	/**
+	 * Walks the tree in order, climbing back up through parent pointers
+	 * once a right subtree is used up.
+	 */
+	private class TreeCursor implements LongCursor {
+		
+		/** The node the cursor is on, or NIL. */
+		private int current = NIL;
+		
+		/** The node the cursor moves to next, or NIL. */
+		private int next = NIL;
+		
+		/** The largest key to visit. */
+		private long toKey = 0;
+		
+		public boolean next() {
+			if (next == NIL || keys[next] > toKey) {
+				current = next = NIL;
+				return false;
+			}
+			current = next;
+			next = nextNode(current);
+			return true;
+		}
+		
+		public long key() {
+			if (current == NIL) {
+				throw new NoSuchElementException();
+			}
+			return keys[current];
+		}
+		
+		public void reset(long fromKey, long toKey) {
+			this.toKey = toKey;
+			current = NIL;
+			next = ceilingNode(fromKey);
+		}
+	}
+}
@@ -0,0 +1,122 @@
+
+
+/*
+ * Copyright (c) 2013, Erika Nana
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Project 1 nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY Erika Nana ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL Erika Nana BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+/**
+ * The Interface LongDynamicSet.  The operations of DynamicSet over
+ * primitive long keys in numeric order, for sets of numeric IDs.  Keys are
+ * never boxed or turned into strings, and search, minimum, maximum,
+ * successor, predecessor and the cursor allocate nothing.
+ *
+ * Methods that return a key throw NoSuchElementException when there is no
+ * such key, since no long is free to mean "none".
+ *
+ * @author Erika Nana
+ */
+public interface LongDynamicSet {
+    /**
+     * @return The size of the set.
+     */
+    public int size();
+
+    /**
+     * Inserts a key into the set.  Inserting a key that is already in the
+     * set does nothing.
+     *
+     * @param key The key to insert.
+     */
+    public void insert(long key);
+
+    /**
+     * Replaces the contents of the set with the given keys, building the
+     * structure in one pass over the sorted keys.  Duplicate keys are kept
+     * once.
+     *
+     * @param keys The keys to load
+     * @param presorted True if the keys are already in order; they are
+     *        checked, and sorted anyway if they turn out not to be
+     */
+    public void bulkLoad(long[] keys, boolean presorted);
+
+    /**
+     * Removes a key from the set, if it is there.
+     *
+     * @param key The key to delete
+     */
+    public void delete(long key);
+
+    /**
+     * Checks whether a key is in the set.
+     *
+     * @param key The key to search.
+     * @return True, if the key is in the set
+     */
+    public boolean search(long key);
+
+    /**
+     * @return The smallest key in the set
+     * @throws java.util.NoSuchElementException if the set is empty
+     */
+    public long minimum();
+
+    /**
+     * @return The largest key in the set
+     * @throws java.util.NoSuchElementException if the set is empty
+     */
+    public long maximum();
+
+    /**
+     * Finds the next larger key in the set above k.  Unlike DynamicSet, k
+     * itself does not have to be in the set.
+     *
+     * @param key The key to find the successor of.
+     * @return The smallest key greater than key
+     * @throws java.util.NoSuchElementException if no key is greater
+     */
+    public long successor(long key);
+
+    /**
+     * Finds the next smaller key in the set below k.  Unlike DynamicSet, k
+     * itself does not have to be in the set.
+     *
+     * @param key The key to find the predecessor of.
+     * @return The largest key less than key
+     * @throws java.util.NoSuchElementException if no key is smaller
+     */
+    public long predecessor(long key);
+
+    /**
+     * Opens a cursor over the keys from fromKey up to and including toKey,
+     * in order.
+     *
+     * @param fromKey The smallest key to visit
+     * @param toKey The largest key to visit
+     * @return A cursor positioned just before the first key of the range
+     */
+    public LongCursor cursor(long fromKey, long toKey);
+
+}
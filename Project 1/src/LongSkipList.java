@@ -0,0 +1,370 @@
+
+
+/*
+ * Copyright (c) 2013, Erika Nana
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Project 1 nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY Erika Nana ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL Erika Nana BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A skip list of primitive long keys, laid out like ArenaSkipList: the
+ * nodes are rows of parallel arrays holding the key, the tower height and
+ * where the node's forward pointers start in one shared int array of
+ * links.  Keys are compared as longs, so there is no boxing and no object
+ * per key.
+ *
+ * Node 0 is the head, so a link of 0 means there is no next node.  Rows
+ * freed by delete are reused by later inserts of the same height.
+ *
+ * @author Erika Nana
+ */
+public class LongSkipList implements LongDynamicSet {
+	
+	/** The most levels a tower may have. */
+	public static final int MAX_LEVEL = 32;
+	
+	/** The head, and the link meaning there is no next node. */
+	private static final int HEAD = 0;
+	
+	/** The key of each node. */
+	private long[] keys;
+	
+	/** Where each node's links start in links. */
+	private int[] base;
+	
+	/** The height of each node. */
+	private byte[] heights;
+	
+	/** The forward pointers of every node, level 0 first. */
+	private int[] links;
+	
+	/** The number of node rows handed out, including the head and freed rows. */
+	private int nodeCount;
+	
+	/** The number of links handed out. */
+	private int linkCount;
+	
+	/** The first freed node of each height; freed nodes chain through their level-0 link. */
+	private final int[] free = new int[MAX_LEVEL + 1];
+	
+	/** The number of levels currently in use. */
+	private int levels = 1;
+	
+	/** The number of keys in the list. */
+	private int size = 0;
+	
+	/** Scratch array for the last node before the key on each level. */
+	private final int[] update = new int[MAX_LEVEL];
+	
+	/**
+	 * Instantiates a new empty skip list.
+	 */
+	public LongSkipList() {
+		reset(16);
+	}
+	
+	/**
+	 * Empties the list and sizes the arrays for a number of keys.
+	 *
+	 * @param capacity The number of keys to make room for
+	 */
+	private void reset(int capacity) {
+		keys = new long[capacity + 1];
+		base = new int[capacity + 1];
+		heights = new byte[capacity + 1];
+		links = new int[MAX_LEVEL + 2 * capacity];
+		heights[HEAD] = MAX_LEVEL;
+		nodeCount = 1;
+		linkCount = MAX_LEVEL;
+		Arrays.fill(free, HEAD);
+		levels = 1;
+		size = 0;
+	}
+	
+	/**
+	 * Gets a node's link on a level.
+	 *
+	 * @param node The node
+	 * @param level The level
+	 * @return The next node on that level, or HEAD if there is none
+	 */
+	private int next(int node, int level) {
+		return links[base[node] + level];
+	}
+	
+	/**
+	 * Hands out a node row, reusing a freed one of the same height if any.
+	 *
+	 * @param height The height of the tower
+	 * @return The node
+	 */
+	private int allocate(int height) {
+		int node = free[height];
+		if (node != HEAD) {
+			free[height] = links[base[node]];
+			return node;
+		}
+		if (nodeCount == keys.length) {
+			int capacity = keys.length * 2;
+			keys = Arrays.copyOf(keys, capacity);
+			base = Arrays.copyOf(base, capacity);
+			heights = Arrays.copyOf(heights, capacity);
+		}
+		if (linkCount + height > links.length) {
+			links = Arrays.copyOf(links, Math.max(links.length * 2, linkCount + height));
+		}
+		node = nodeCount++;
+		base[node] = linkCount;
+		heights[node] = (byte) height;
+		linkCount += height;
+		return node;
+	}
+	
+	/* (non-Javadoc)
+	 * @see LongDynamicSet#size()
+	 */
+	
+	public int size() {
+		return size;
+	}
+	
+	/* (non-Javadoc)
+	 * @see LongDynamicSet#insert(long)
+	 */
+	
+	public void insert(long key) {
+		int node = next(lowerNode(key, update), 0);
+		if (node != HEAD && keys[node] == key) {
+			return; //already in the set
+		}
+		int height = randomLevel();
+		if (height > levels) {
+			for (int i = levels; i < height; i++) {
+				update[i] = HEAD;
+			}
+			levels = height;
+		}
+		node = allocate(height);
+		keys[node] = key;
+		for (int i = 0; i < height; i++) {
+			links[base[node] + i] = next(update[i], i);
+			links[base[update[i]] + i] = node;
+		}
+		size++;
+	}
+	
+	/* (non-Javadoc)
+	 * @see LongDynamicSet#bulkLoad(long[], boolean)
+	 */
+	
+	public void bulkLoad(long[] keys, boolean presorted) {
+		long[] sorted = Utils.sortedKeys(keys, presorted);
+		reset(sorted.length);
+		Arrays.fill(update, HEAD);
+		//the i-th key (from 1) gets one level per trailing zero bit of i, so
+		//each level holds exactly half of the level below
+		for (int i = 0; i < sorted.length; i++) {
+			int height = Math.min(Integer.numberOfTrailingZeros(i + 1) + 1, MAX_LEVEL);
+			int node = allocate(height);
+			this.keys[node] = sorted[i];
+			for (int j = 0; j < height; j++) {
+				links[base[update[j]] + j] = node;
+				update[j] = node;
+			}
+			levels = Math.max(levels, height);
+		}
+		size = sorted.length;
+	}
+	
+	/* (non-Javadoc)
+	 * @see LongDynamicSet#delete(long)
+	 */
+	
+	public void delete(long key) {
+		int node = next(lowerNode(key, update), 0);
+		if (node == HEAD || keys[node] != key) {
+			return;
+		}
+		int height = heights[node];
+		for (int i = 0; i < height; i++) {
+			links[base[update[i]] + i] = next(node, i);
+		}
+		links[base[node]] = free[height];
+		free[height] = node;
+		while (levels > 1 && next(HEAD, levels - 1) == HEAD) {
+			levels--;
+		}
+		size--;
+	}
+	
+	/**
+	 * Finds the last node whose key is less than the key.
+	 *
+	 * @param key The key
+	 * @param update If not null, filled with the last node before the key on each level in use
+	 * @return The node, or HEAD if every key is at least the key
+	 */
+	private int lowerNode(long key, int[] update) {
+		int p = HEAD;
+		for (int i = levels - 1; i >= 0; i--) {
+			int next = next(p, i);
+			while (next != HEAD && keys[next] < key) {
+				p = next;
+				next = next(p, i);
+			}
+			if (update != null) {
+				update[i] = p;
+			}
+		}
+		return p;
+	}
+	
+	/* (non-Javadoc)
+	 * @see LongDynamicSet#search(long)
+	 */
+	
+	public boolean search(long key) {
+		int node = next(lowerNode(key, null), 0);
+		return node != HEAD && keys[node] == key;
+	}
+	
+	/* (non-Javadoc)
+	 * @see LongDynamicSet#minimum()
+	 */
+	
+	public long minimum() {
+		int node = next(HEAD, 0);
+		if (node == HEAD) {
+			throw new NoSuchElementException();
+		}
+		return keys[node];
+	}
+	
+	/* (non-Javadoc)
+	 * @see LongDynamicSet#maximum()
+	 */
+	
+	public long maximum() {
+		int p = HEAD;
+		for (int i = levels - 1; i >= 0; i--) {
+			while (next(p, i) != HEAD) {
+				p = next(p, i);
+			}
+		}
+		if (p == HEAD) {
+			throw new NoSuchElementException();
+		}
+		return keys[p];
+	}
+	
+	/* (non-Javadoc)
+	 * @see LongDynamicSet#successor(long)
+	 */
+	
+	public long successor(long key) {
+		int node = next(lowerNode(key, null), 0);
+		if (node != HEAD && keys[node] == key) {
+			node = next(node, 0);
+		}
+		if (node == HEAD) {
+			throw new NoSuchElementException();
+		}
+		return keys[node];
+	}
+	
+	/* (non-Javadoc)
+	 * @see LongDynamicSet#predecessor(long)
+	 */
+	
+	public long predecessor(long key) {
+		int node = lowerNode(key, null);
+		if (node == HEAD) {
+			throw new NoSuchElementException();
+		}
+		return keys[node];
+	}
+	
+	/* (non-Javadoc)
+	 * @see LongDynamicSet#cursor(long, long)
+	 */
+	
+	public LongCursor cursor(long fromKey, long toKey) {
+		LevelCursor cursor = new LevelCursor();
+		cursor.reset(fromKey, toKey);
+		return cursor;
+	}
+	
+	/**
+	 * Picks the height of a new tower.  Each trailing zero bit of one random
+	 * int is a successful coin flip, so level k is reached with probability
+	 * 1/2^k without calling the generator again.
+	 *
+	 * @return The height, between 1 and MAX_LEVEL
+	 */
+	private int randomLevel() {
+		int height = Integer.numberOfTrailingZeros(ThreadLocalRandom.current().nextInt()) + 1;
+		return Math.min(height, MAX_LEVEL);
+	}
+	
+	/**
+	 * Walks the bottom level of the list.
+	 */
+	private class LevelCursor implements LongCursor {
+		
+		/** The node the cursor is on, or HEAD. */
+		private int current = HEAD;
+		
+		/** The node the cursor moves to next, or HEAD. */
+		private int next = HEAD;
+		
+		/** The largest key to visit. */
+		private long toKey = 0;
+		
+		public boolean next() {
+			if (next == HEAD || keys[next] > toKey) {
+				current = next = HEAD;
+				return false;
+			}
+			current = next;
+			next = LongSkipList.this.next(current, 0);
+			return true;
+		}
+		
+		public long key() {
+			if (current == HEAD) {
+				throw new NoSuchElementException();
+			}
+			return keys[current];
+		}
+		
+		public void reset(long fromKey, long toKey) {
+			this.toKey = toKey;
+			current = HEAD;
+			next = LongSkipList.this.next(lowerNode(fromKey, null), 0);
+		}
+	}
+}
@@ -0,0 +1,238 @@
+
+
+/*
+ * Copyright (c) 2013, Erika Nana
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Project 1 nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY Erika Nana ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL Erika Nana BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A sorted list of primitive long keys, the long-keyed counterpart of
+ * DLinkedList.  The keys sit in order at the front of one long array, so
+ * a search is a binary search over contiguous memory and there is no node
+ * per key.  Inserts and deletes shift the keys after the slot over by one,
+ * which is cheap for the sizes a sorted list suits and O(1) when IDs
+ * arrive in increasing order.
+ *
+ * @author Erika Nana
+ */
+public class LongSortedList implements LongDynamicSet {
+	
+	/** The keys, sorted, in slots 0 to size - 1. */
+	private long[] keys;
+	
+	/** The number of keys in the list. */
+	private int size = 0;
+	
+	/**
+	 * Instantiates a new empty list.
+	 */
+	public LongSortedList() {
+		this(16);
+	}
+	
+	/**
+	 * Instantiates a new empty list.
+	 *
+	 * @param capacity The number of keys to make room for
+	 */
+	public LongSortedList(int capacity) {
+		keys = new long[Math.max(capacity, 1)];
+	}
+	
+	/**
+	 * Finds the slot of a key.
+	 *
+	 * @param key The key
+	 * @return The slot if the key is in the list, else -(insertion point) - 1
+	 */
+	private int find(long key) {
+		return Arrays.binarySearch(keys, 0, size, key);
+	}
+	
+	/**
+	 * Gets the slot of the first key that is at least the key.
+	 *
+	 * @param key The key
+	 * @return The slot, or size if every key is smaller
+	 */
+	private int ceilingSlot(long key) {
+		int slot = find(key);
+		return (slot >= 0) ? slot : -slot - 1;
+	}
+	
+	/* (non-Javadoc)
+	 * @see LongDynamicSet#size()
+	 */
+	
+	public int size() {
+		return size;
+	}
+	
+	/* (non-Javadoc)
+	 * @see LongDynamicSet#insert(long)
+	 */
+	
+	public void insert(long key) {
+		int slot = find(key);
+		if (slot >= 0) {
+			return; //already in the set
+		}
+		slot = -slot - 1;
+		if (size == keys.length) {
+			keys = Arrays.copyOf(keys, keys.length * 2);
+		}
+		System.arraycopy(keys, slot, keys, slot + 1, size - slot);
+		keys[slot] = key;
+		size++;
+	}
+	
+	/* (non-Javadoc)
+	 * @see LongDynamicSet#bulkLoad(long[], boolean)
+	 */
+	
+	public void bulkLoad(long[] keys, boolean presorted) {
+		long[] sorted = Utils.sortedKeys(keys, presorted);
+		this.keys = (sorted.length == 0) ? new long[1] : sorted;
+		size = sorted.length;
+	}
+	
+	/* (non-Javadoc)
+	 * @see LongDynamicSet#delete(long)
+	 */
+	
+	public void delete(long key) {
+		int slot = find(key);
+		if (slot < 0) {
+			return;
+		}
+		System.arraycopy(keys, slot + 1, keys, slot, size - slot - 1);
+		size--;
+	}
+	
+	/* (non-Javadoc)
+	 * @see LongDynamicSet#search(long)
+	 */
+	
+	public boolean search(long key) {
+		return find(key) >= 0;
+	}
+	
+	/* (non-Javadoc)
+	 * @see LongDynamicSet#minimum()
+	 */
+	
+	public long minimum() {
+		if (size == 0) {
+			throw new NoSuchElementException();
+		}
+		return keys[0];
+	}
+	
+	/* (non-Javadoc)
+	 * @see LongDynamicSet#maximum()
+	 */
+	
+	public long maximum() {
+		if (size == 0) {
+			throw new NoSuchElementException();
+		}
+		return keys[size - 1];
+	}
+	
+	/* (non-Javadoc)
+	 * @see LongDynamicSet#successor(long)
+	 */
+	
+	public long successor(long key) {
+		int slot = find(key);
+		slot = (slot >= 0) ? slot + 1 : -slot - 1;
+		if (slot == size) {
+			throw new NoSuchElementException();
+		}
+		return keys[slot];
+	}
+	
+	/* (non-Javadoc)
+	 * @see LongDynamicSet#predecessor(long)
+	 */
+	
+	public long predecessor(long key) {
+		int slot = ceilingSlot(key) - 1;
+		if (slot < 0) {
+			throw new NoSuchElementException();
+		}
+		return keys[slot];
+	}
+	
+	/* (non-Javadoc)
+	 * @see LongDynamicSet#cursor(long, long)
+	 */
+	
+	public LongCursor cursor(long fromKey, long toKey) {
+		SlotCursor cursor = new SlotCursor();
+		cursor.reset(fromKey, toKey);
+		return cursor;
+	}
+	
+	/**
+	 * Walks the array from slot to slot.
+	 */
+	private class SlotCursor implements LongCursor {
+		
+		/** The slot the cursor is on, or -1. */
+		private int current = -1;
+		
+		/** The slot the cursor moves to next. */
+		private int next = 0;
+		
+		/** The largest key to visit. */
+		private long toKey = 0;
+		
+		public boolean next() {
+			if (next >= size || keys[next] > toKey) {
+				current = -1;
+				next = size;
+				return false;
+			}
+			current = next++;
+			return true;
+		}
+		
+		public long key() {
+			if (current < 0) {
+				throw new NoSuchElementException();
+			}
+			return keys[current];
+		}
+		
+		public void reset(long fromKey, long toKey) {
+			this.toKey = toKey;
+			current = -1;
+			next = ceilingSlot(fromKey);
+		}
+	}
+}
@@ -0,0 +1,57 @@
+
+
+/*
+ * Copyright (c) 2013, Erika Nana
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Project 1 nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY Erika Nana ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL Erika Nana BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+/**
+ * A DynamicSet that knows where each key falls in the order, so "the k-th
+ * key" and "how many keys are below x" take one walk from the top of the
+ * structure instead of k successor calls.  Together they give paged
+ * listings at any offset: select(offset) and then a cursor from that key.
+ *
+ * @author Erika Nana
+ * @param <Type> the generic type
+ */
+public interface OrderStatisticSet<Type> extends DynamicSet<Type> {
+
+    /**
+     * Counts the keys below a key.  The key does not have to be in the set.
+     *
+     * @param key The key
+     * @return The number of keys in the set that are less than key
+     */
+    public int rank(Type key);
+
+    /**
+     * Finds the key at a position in the order.
+     *
+     * @param k The position, from 0 for the minimum to size() - 1 for the maximum
+     * @return The key that has exactly k keys below it
+     * @throws IndexOutOfBoundsException if k is not a position in the set
+     */
+    public Type select(int k);
+
+}
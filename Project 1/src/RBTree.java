@@ -0,0 +1,631 @@
+
+
+/*
+ * Copyright (c) 2013, Erika Nana
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Project 1 nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY Erika Nana ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL Erika Nana BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+import java.util.Comparator;
+import java.util.NoSuchElementException;
+
+/**
+ * Operations for manipulating a red-black tree.  Unlike BTree, the tree
+ * rebalances itself on every insert and delete, so its height stays within
+ * 2lg(n + 1) even when the keys arrive in sorted order.
+ * Based on the psuedocode found in Introduction to Algorithms Third Edition
+ * by Cormen et al.
+ *
+ * @author Erika Nana
+ * @param <Type> the generic type
+ */
+
+public class RBTree<Type> implements DynamicSet<Type>{
+	
+	/** The size. */
+	private int size = 0;
+	
+	/** The order of the keys. */
+	private final Comparator<? super Type> comparator;
+	
+	/** The sentinel that stands in for every leaf and for the root's parent. */
+	private RBNode<Type> nil = null;
+	
+	/** The root. */
+	private RBNode<Type> root = null;
+	
+	/** The empty node to return; handles null pointer exceptions. */
+	private RBNode<Type> empty = null;
+	
+	/**
+	 * Instantiates a new red-black tree ordered by the keys' natural order.
+	 */
+	public RBTree() {
+		this(null);
+	}
+	
+	/**
+	 * Instantiates a new red-black tree.
+	 *
+	 * @param comparator The order of the keys, or null for their natural order
+	 */
+	public RBTree(Comparator<? super Type> comparator) {
+		this.comparator = Utils.orNatural(comparator);
+		nil = new RBNode<Type>(null);
+		nil.setRed(false);
+		nil.setLeftChild(nil);
+		nil.setRightChild(nil);
+		nil.setParent(nil);
+		root = nil;
+		empty = new RBNode<Type>(null); //for null pointer
+	}
+	
+	/**
+	 * Checks if is empty.
+	 *
+	 * @return True, if is empty
+	 */
+	public boolean isEmpty() {
+		return root == nil;
+	}
+	
+	/**
+	 * Gets the root.
+	 *
+	 * @return The root, or null if the tree is empty
+	 */
+	public RBNode<Type> getRoot(){
+		return root == nil ? null : root;
+	}
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#size()
+	 */
+	
+	public int size() {
+		return size;
+	}
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#getComparator()
+	 */
+	
+	public Comparator<? super Type> getComparator() {
+		return comparator;
+	}
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#insert(java.lang.Object, java.lang.Object)
+	 */
+	
+	public void insert(Type key, Object e) {
+		RBNode<Type> y = nil;
+		RBNode<Type> x = root;
+		int compare = 0;
+		
+		while (x != nil) {
+			y = x;
+			compare = comparator.compare(key, x.getKey());
+			if (compare == 0) {
+				return; //already in the set
+			}
+			x = (compare < 0) ? x.getLeftChild() : x.getRightChild();
+		}
+		RBNode<Type> z = new RBNode<Type>(key);
+		z.setParent(y);
+		z.setLeftChild(nil);
+		z.setRightChild(nil);
+		if (y == nil) {
+			root = z; //tree is empty to begin with
+		}
+		else if (compare < 0) {
+			y.setLeftChild(z);
+		}
+		else {
+			y.setRightChild(z);
+		}
+		insertFixup(z);
+		size++;
+	}
+	
+	/**
+	 * Restores the red-black properties after z was inserted as a red leaf.
+	 *
+	 * @param z The node that was inserted
+	 */
+	private void insertFixup(RBNode<Type> z) {
+		while (z.getParent().isRed()) {
+			RBNode<Type> parent = z.getParent();
+			RBNode<Type> grandparent = parent.getParent();
+			if (parent == grandparent.getLeftChild()) {
+				RBNode<Type> uncle = grandparent.getRightChild();
+				if (uncle.isRed()) {
+					parent.setRed(false);
+					uncle.setRed(false);
+					grandparent.setRed(true);
+					z = grandparent;
+				}
+				else {
+					if (z == parent.getRightChild()) {
+						z = parent;
+						leftRotate(z);
+					}
+					z.getParent().setRed(false);
+					z.getParent().getParent().setRed(true);
+					rightRotate(z.getParent().getParent());
+				}
+			}
+			else {
+				RBNode<Type> uncle = grandparent.getLeftChild();
+				if (uncle.isRed()) {
+					parent.setRed(false);
+					uncle.setRed(false);
+					grandparent.setRed(true);
+					z = grandparent;
+				}
+				else {
+					if (z == parent.getLeftChild()) {
+						z = parent;
+						rightRotate(z);
+					}
+					z.getParent().setRed(false);
+					z.getParent().getParent().setRed(true);
+					leftRotate(z.getParent().getParent());
+				}
+			}
+		}
+		root.setRed(false);
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#bulkLoad(java.lang.Object[], boolean)
+	 */
+	
+	public void bulkLoad(Type[] keys, boolean presorted) {
+		Type[] sorted = Utils.sortedKeys(keys, presorted, comparator);
+		//only the bottom level of a balanced tree can be incomplete; coloring
+		//just that level red keeps every path's black height the same
+		int redLevel = 31 - Integer.numberOfLeadingZeros(sorted.length + 1);
+		root = build(sorted, 0, sorted.length - 1, 0, redLevel, nil);
+		size = sorted.length;
+	}
+	
+	/**
+	 * Builds a perfectly balanced subtree out of a run of sorted keys; the
+	 * middle key becomes the root.
+	 *
+	 * @param keys The sorted keys
+	 * @param low The index of the first key of the run
+	 * @param high The index of the last key of the run
+	 * @param depth The depth of the subtree's root
+	 * @param redLevel The depth whose nodes are colored red
+	 * @param parent The parent of the subtree
+	 * @return The root of the subtree, or nil if the run is empty
+	 */
+	private RBNode<Type> build(Type[] keys, int low, int high, int depth, int redLevel, RBNode<Type> parent) {
+		if (low > high) {
+			return nil;
+		}
+		int mid = (low + high) >>> 1;
+		RBNode<Type> node = new RBNode<Type>(keys[mid]);
+		node.setRed(depth == redLevel);
+		node.setParent(parent);
+		node.setLeftChild(build(keys, low, mid - 1, depth + 1, redLevel, node));
+		node.setRightChild(build(keys, mid + 1, high, depth + 1, redLevel, node));
+		return node;
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#delete(java.lang.Object)
+	 */
+	
+	public void delete(Type key) {
+		RBNode<Type> z = find(key);
+		
+		if (z == nil) {
+			System.out.println("Can't delete from a node that doesn't exist!");
+			return;
+		}
+		RBNode<Type> y = z;
+		RBNode<Type> x;
+		boolean yWasRed = y.isRed();
+		if (z.getLeftChild() == nil) {
+			x = z.getRightChild();
+			transplant(z, z.getRightChild());
+		}
+		else if (z.getRightChild() == nil) {
+			x = z.getLeftChild();
+			transplant(z, z.getLeftChild());
+		}
+		else {
+			y = minimum(z.getRightChild());
+			yWasRed = y.isRed();
+			x = y.getRightChild();
+			if (y.getParent() == z) {
+				x.setParent(y); //x may be nil
+			}
+			else {
+				transplant(y, y.getRightChild());
+				y.setRightChild(z.getRightChild());
+				y.getRightChild().setParent(y);
+			}
+			transplant(z, y);
+			y.setLeftChild(z.getLeftChild());
+			y.getLeftChild().setParent(y);
+			y.setRed(z.isRed());
+		}
+		if (!yWasRed) {
+			deleteFixup(x);
+		}
+		size--;
+	}
+	
+	/**
+	 * Restores the red-black properties after a black node was removed
+	 * from above x.
+	 *
+	 * @param x The node that carries the extra black
+	 */
+	private void deleteFixup(RBNode<Type> x) {
+		while (x != root && !x.isRed()) {
+			if (x == x.getParent().getLeftChild()) {
+				RBNode<Type> w = x.getParent().getRightChild();
+				if (w.isRed()) {
+					w.setRed(false);
+					x.getParent().setRed(true);
+					leftRotate(x.getParent());
+					w = x.getParent().getRightChild();
+				}
+				if (!w.getLeftChild().isRed() && !w.getRightChild().isRed()) {
+					w.setRed(true);
+					x = x.getParent();
+				}
+				else {
+					if (!w.getRightChild().isRed()) {
+						w.getLeftChild().setRed(false);
+						w.setRed(true);
+						rightRotate(w);
+						w = x.getParent().getRightChild();
+					}
+					w.setRed(x.getParent().isRed());
+					x.getParent().setRed(false);
+					w.getRightChild().setRed(false);
+					leftRotate(x.getParent());
+					x = root;
+				}
+			}
+			else {
+				RBNode<Type> w = x.getParent().getLeftChild();
+				if (w.isRed()) {
+					w.setRed(false);
+					x.getParent().setRed(true);
+					rightRotate(x.getParent());
+					w = x.getParent().getLeftChild();
+				}
+				if (!w.getRightChild().isRed() && !w.getLeftChild().isRed()) {
+					w.setRed(true);
+					x = x.getParent();
+				}
+				else {
+					if (!w.getLeftChild().isRed()) {
+						w.getRightChild().setRed(false);
+						w.setRed(true);
+						leftRotate(w);
+						w = x.getParent().getLeftChild();
+					}
+					w.setRed(x.getParent().isRed());
+					x.getParent().setRed(false);
+					w.getLeftChild().setRed(false);
+					rightRotate(x.getParent());
+					x = root;
+				}
+			}
+		}
+		x.setRed(false);
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#search(java.lang.Object)
+	 */
+	
+	public Object search(Type key) {
+		RBNode<Type> node = find(key);
+		return node == nil ? null : node;
+	}
+	
+	/**
+	 * Finds the node with the given key.
+	 *
+	 * @param key The key to search for
+	 * @return The node, or nil if the key is not in the tree
+	 */
+	private RBNode<Type> find(Type key) {
+		RBNode<Type> current = root;
+		while (current != nil) {
+			int compare = comparator.compare(key, current.getKey());
+			if (compare < 0) {
+				current = current.getLeftChild();
+			}
+			else if (compare > 0) {
+				current = current.getRightChild();
+			}
+			else {
+				return current;
+			}
+		}
+		return nil;
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#minimum()
+	 */
+	
+	public Object minimum() {
+		if (root == nil) {
+			return null;
+		}
+		return minimum(root);
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#maximum()
+	 */
+	
+	public Object maximum() {
+		if (root == nil) {
+			return null;
+		}
+		return maximum(root);
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#successor(java.lang.Object)
+	 */
+	
+	public Object successor(Type key) {
+		RBNode<Type> node = find(key);
+		
+		if (node == nil){
+			System.out.println("The node doesn't exist!");
+			return null;
+		}
+		if (node.getRightChild() != nil) {
+			return minimum(node.getRightChild());
+		}
+		RBNode<Type> successor = node.getParent();
+		while (successor != nil && node == successor.getRightChild()) {
+			node = successor;
+			successor = successor.getParent();
+		}
+		if (successor == nil) {
+			return empty;
+		}
+		return successor;
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#predecessor(java.lang.Object)
+	 */
+	
+	public Object predecessor(Type key) {
+		RBNode<Type> node = find(key);
+		
+		if (node == nil){
+			System.out.println("The node doesn't exist!");
+			return null;
+		}
+		if (node.getLeftChild() != nil) {
+			return maximum(node.getLeftChild());
+		}
+		RBNode<Type> predecessor = node.getParent();
+		while (predecessor != nil && node == predecessor.getLeftChild()) {
+			node = predecessor;
+			predecessor = predecessor.getParent();
+		}
+		//handle null pointer
+		if (predecessor == nil) {
+			return empty;
+		}
+		return predecessor;
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#cursor(java.lang.Object, java.lang.Object)
+	 */
+	
+	public Cursor<Type> cursor(Type fromKey, Type toKey) {
+		TreeCursor cursor = new TreeCursor();
+		cursor.reset(fromKey, toKey);
+		return cursor;
+	}
+	
+	/**
+	 * Finds the node with the smallest key that is at least the key.
+	 *
+	 * @param key The key, or null for the minimum
+	 * @return The node, or nil if every key is smaller
+	 */
+	private RBNode<Type> ceilingNode(Type key) {
+		RBNode<Type> current = root;
+		RBNode<Type> ceiling = nil;
+		while (current != nil) {
+			if (key == null || comparator.compare(key, current.getKey()) <= 0) {
+				ceiling = current;
+				current = current.getLeftChild();
+			}
+			else {
+				current = current.getRightChild();
+			}
+		}
+		return ceiling;
+	}
+	
+	/**
+	 * Gets the in-order successor of a node.
+	 *
+	 * @param node The node
+	 * @return The next node, or nil if node is the maximum
+	 */
+	private RBNode<Type> nextNode(RBNode<Type> node) {
+		if (node.getRightChild() != nil) {
+			return minimum(node.getRightChild());
+		}
+		RBNode<Type> parent = node.getParent();
+		while (parent != nil && node == parent.getRightChild()) {
+			node = parent;
+			parent = parent.getParent();
+		}
+		return parent;
+	}
+
+	/**
+	 * Gets the minimum of the subtree
+	 *
+	 * @param node The root of the subtree 
+	 * @return The minimum node of the subtree
+	 */
+	private RBNode<Type> minimum(RBNode<Type> node){
+		while (node.getLeftChild() != nil) {
+			node = node.getLeftChild();
+		}
+		return node;
+	}
+	
+	/**
+	 * Gets the maximum of the subtree
+	 *
+	 * @param node The root of the subtree
+	 * @return The maximum node of the subtree
+	 */
+	private RBNode<Type> maximum(RBNode<Type> node){
+		while (node.getRightChild() != nil) {
+			node = node.getRightChild();
+		}
+		return node;
+	}
+	
+	/**
+	 * Rotates x down to the left so that its right child takes its place.
+	 *
+	 * @param x The node to rotate
+	 */
+	private void leftRotate(RBNode<Type> x) {
+		RBNode<Type> y = x.getRightChild();
+		x.setRightChild(y.getLeftChild());
+		if (y.getLeftChild() != nil) {
+			y.getLeftChild().setParent(x);
+		}
+		y.setParent(x.getParent());
+		if (x.getParent() == nil) {
+			root = y;
+		}
+		else if (x == x.getParent().getLeftChild()) {
+			x.getParent().setLeftChild(y);
+		}
+		else {
+			x.getParent().setRightChild(y);
+		}
+		y.setLeftChild(x);
+		x.setParent(y);
+	}
+	
+	/**
+	 * Rotates x down to the right so that its left child takes its place.
+	 *
+	 * @param x The node to rotate
+	 */
+	private void rightRotate(RBNode<Type> x) {
+		RBNode<Type> y = x.getLeftChild();
+		x.setLeftChild(y.getRightChild());
+		if (y.getRightChild() != nil) {
+			y.getRightChild().setParent(x);
+		}
+		y.setParent(x.getParent());
+		if (x.getParent() == nil) {
+			root = y;
+		}
+		else if (x == x.getParent().getRightChild()) {
+			x.getParent().setRightChild(y);
+		}
+		else {
+			x.getParent().setLeftChild(y);
+		}
+		y.setRightChild(x);
+		x.setParent(y);
+	}
+	
+	/**
+	 * Replaces one subtree as a child of its parent with another subtree
+	 *
+	 * @param u The root of a tree
+	 * @param v The root of another tree
+	 */
+	private void transplant(RBNode<Type> u, RBNode<Type> v) {
+		if (u.getParent() == nil) //u is the root of its subtree
+			root = v;
+		else if (u == u.getParent().getLeftChild())
+			u.getParent().setLeftChild(v);
+		else u.getParent().setRightChild(v);
+		v.setParent(u.getParent()); //unconditional; delete fixup reads nil's parent
+	}
+	
+	/**
+	 * Walks the tree in order, climbing back up through parent pointers
+	 * once a right subtree is used up.
+	 */
+	private class TreeCursor implements Cursor<Type> {
+		
+		/** The node the cursor is on. */
+		private RBNode<Type> current = null;
+		
+		/** The node the cursor moves to next. */
+		private RBNode<Type> next = null;
+		
+		/** The key to stop before. */
+		private Type toKey = null;
+		
+		public boolean next() {
+			if (next == nil || (toKey != null && comparator.compare(next.getKey(), toKey) >= 0)) {
+				current = null;
+				next = nil;
+				return false;
+			}
+			current = next;
+			next = nextNode(current);
+			return true;
+		}
+		
+		public Type key() {
+			if (current == null) {
+				throw new NoSuchElementException();
+			}
+			return current.getKey();
+		}
+		
+		public void reset(Type fromKey, Type toKey) {
+			this.toKey = toKey;
+			current = null;
+			next = ceilingNode(fromKey);
+		}
+	}
+}
@@ -0,0 +1,475 @@
+
+
+/*
+ * Copyright (c) 2013, Erika Nana
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Project 1 nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY Erika Nana ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL Erika Nana BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+import java.util.Arrays;
+
+/**
+ * Creates the nodes of the adaptive radix tree.  A leaf holds a whole key
+ * as UTF-8 bytes.  An inner node holds the bytes its keys all share
+ * (the compressed path), possibly the leaf of the key that ends right
+ * there, and its children indexed by the next byte, in one of four layouts
+ * that trade size for lookup speed as the number of children grows:
+ * <ul>
+ * <li>Node4 and Node16 keep up to 4 or 16 sorted bytes beside their children;</li>
+ * <li>Node48 maps all 256 bytes to up to 48 child slots;</li>
+ * <li>Node256 indexes its children by byte directly.</li>
+ * </ul>
+ * Bytes are compared unsigned, so keys come out in code point order.
+ *
+ * @author Erika Nana
+ */
+public abstract class RadixNode {
+	
+	/** An empty compressed path. */
+	static final byte[] NO_PREFIX = new byte[0];
+	
+	/**
+	 * A leaf: one key.
+	 */
+	public static final class Leaf extends RadixNode {
+		
+		/** The UTF-8 bytes of the key. */
+		public final byte[] key;
+		
+		/** The key decoded, once something has asked for it; null until then. */
+		private String string = null;
+		
+		/**
+		 * Instantiates a new leaf.
+		 *
+		 * @param key The UTF-8 bytes of the key
+		 */
+		public Leaf(byte[] key) {
+			this.key = key;
+		}
+		
+		/**
+		 * Gets the key as a String.  The first call decodes it and keeps it,
+		 * so a key read again, by a later scan for instance, costs nothing;
+		 * keys never read cost no more than their bytes.
+		 *
+		 * @return The key
+		 */
+		public String string() {
+			if (string == null) {
+				string = new String(key, java.nio.charset.StandardCharsets.UTF_8);
+			}
+			return string;
+		}
+		
+		/* (non-Javadoc)
+		 * @see java.lang.Object#toString()
+		 */
+		public String toString() {
+			return string();
+		}
+	}
+	
+	/**
+	 * An inner node.  Children are found by the unsigned value of the byte
+	 * that follows the compressed path.
+	 */
+	public abstract static class Inner extends RadixNode {
+		
+		/** The bytes every key below shares after the parent's byte. */
+		public byte[] prefix = NO_PREFIX;
+		
+		/** The key that ends at this node, or null. */
+		public Leaf leaf = null;
+		
+		/** The number of children. */
+		public int count = 0;
+		
+		/**
+		 * Gets the child for a byte.
+		 *
+		 * @param b The byte, from 0 to 255
+		 * @return The child, or null
+		 */
+		public abstract RadixNode child(int b);
+		
+		/**
+		 * Gets the smallest byte above b that has a child.
+		 *
+		 * @param b The byte, or -1 to get the first
+		 * @return The byte, or -1 if there is none
+		 */
+		public abstract int nextByte(int b);
+		
+		/**
+		 * Gets the largest byte below b that has a child.
+		 *
+		 * @param b The byte, or 256 to get the last
+		 * @return The byte, or -1 if there is none
+		 */
+		public abstract int previousByte(int b);
+		
+		/**
+		 * Replaces the child of a byte that already has one.
+		 *
+		 * @param b The byte
+		 * @param child The new child
+		 */
+		public abstract void set(int b, RadixNode child);
+		
+		/**
+		 * Checks if another child fits.
+		 *
+		 * @return True, if is full
+		 */
+		abstract boolean isFull();
+		
+		/**
+		 * Adds a child to a node that is not full.
+		 *
+		 * @param b The byte, which must not have a child yet
+		 * @param child The child
+		 */
+		abstract void put(int b, RadixNode child);
+		
+		/**
+		 * Removes a child without changing layout.
+		 *
+		 * @param b The byte, which must have a child
+		 */
+		abstract void clear(int b);
+		
+		/**
+		 * Makes the next bigger layout, or the next smaller one, empty.
+		 *
+		 * @param grow True for the bigger one
+		 * @return The node, or null if this layout is the last that way
+		 */
+		abstract Inner resized(boolean grow);
+		
+		/**
+		 * Gets the smallest count this layout should be kept for; below it
+		 * the node shrinks.  It is a little under the next smaller layout's
+		 * capacity, so a node on the border does not resize back and forth.
+		 *
+		 * @return The count
+		 */
+		abstract int minCount();
+		
+		/**
+		 * Adds a child, moving to a bigger layout if this one is full.
+		 *
+		 * @param b The byte, which must not have a child yet
+		 * @param child The child
+		 * @return This node, or the bigger node that replaces it
+		 */
+		public Inner add(int b, RadixNode child) {
+			Inner node = isFull() ? copyTo(resized(true)) : this;
+			node.put(b, child);
+			return node;
+		}
+		
+		/**
+		 * Removes a child, moving to a smaller layout if few are left.
+		 *
+		 * @param b The byte, which must have a child
+		 * @return This node, or the smaller node that replaces it
+		 */
+		public Inner remove(int b) {
+			clear(b);
+			return (count < minCount()) ? copyTo(resized(false)) : this;
+		}
+		
+		/**
+		 * Copies the path, the leaf and every child into another node.
+		 *
+		 * @param node The node, empty
+		 * @return The node
+		 */
+		private Inner copyTo(Inner node) {
+			node.prefix = prefix;
+			node.leaf = leaf;
+			for (int b = nextByte(-1); b >= 0; b = nextByte(b)) {
+				node.put(b, child(b));
+			}
+			return node;
+		}
+	}
+	
+	/**
+	 * Keeps up to a fixed number of children beside their bytes, sorted by byte.
+	 */
+	abstract static class Sorted extends Inner {
+		
+		/** The bytes of the children, in increasing unsigned order. */
+		final byte[] bytes;
+		
+		/** The children, in the order of their bytes. */
+		final RadixNode[] children;
+		
+		/**
+		 * Instantiates a new sorted node.
+		 *
+		 * @param capacity The most children
+		 */
+		Sorted(int capacity) {
+			bytes = new byte[capacity];
+			children = new RadixNode[capacity];
+		}
+		
+		/**
+		 * Finds the position of a byte, or where it would go.
+		 *
+		 * @param b The byte
+		 * @return The first position whose byte is at least b
+		 */
+		int position(int b) {
+			int i = 0;
+			while (i < count && (bytes[i] & 0xFF) < b) {
+				i++;
+			}
+			return i;
+		}
+		
+		public RadixNode child(int b) {
+			int i = position(b);
+			return (i < count && (bytes[i] & 0xFF) == b) ? children[i] : null;
+		}
+		
+		public int nextByte(int b) {
+			int i = position(b + 1);
+			return (i < count) ? bytes[i] & 0xFF : -1;
+		}
+		
+		public int previousByte(int b) {
+			int i = position(b) - 1;
+			return (i >= 0) ? bytes[i] & 0xFF : -1;
+		}
+		
+		public void set(int b, RadixNode child) {
+			children[position(b)] = child;
+		}
+		
+		boolean isFull() {
+			return count == bytes.length;
+		}
+		
+		void put(int b, RadixNode child) {
+			int i = position(b);
+			System.arraycopy(bytes, i, bytes, i + 1, count - i);
+			System.arraycopy(children, i, children, i + 1, count - i);
+			bytes[i] = (byte) b;
+			children[i] = child;
+			count++;
+		}
+		
+		void clear(int b) {
+			int i = position(b);
+			System.arraycopy(bytes, i + 1, bytes, i, count - i - 1);
+			System.arraycopy(children, i + 1, children, i, count - i - 1);
+			count--;
+			children[count] = null;
+		}
+	}
+	
+	/**
+	 * Up to 4 children.
+	 */
+	public static final class Node4 extends Sorted {
+		
+		/**
+		 * Instantiates a new node4.
+		 */
+		public Node4() {
+			super(4);
+		}
+		
+		Inner resized(boolean grow) {
+			return grow ? new Node16() : null;
+		}
+		
+		int minCount() {
+			return 0;
+		}
+	}
+	
+	/**
+	 * From 4 to 16 children.
+	 */
+	public static final class Node16 extends Sorted {
+		
+		/**
+		 * Instantiates a new node16.
+		 */
+		public Node16() {
+			super(16);
+		}
+		
+		Inner resized(boolean grow) {
+			return grow ? new Node48() : new Node4();
+		}
+		
+		int minCount() {
+			return 3;
+		}
+	}
+	
+	/**
+	 * From 16 to 48 children, found through a table of all 256 bytes.
+	 */
+	public static final class Node48 extends Inner {
+		
+		/** The slot of each byte's child, plus one; 0 means no child. */
+		private final byte[] index = new byte[256];
+		
+		/** The children, in no order. */
+		private final RadixNode[] children = new RadixNode[48];
+		
+		public RadixNode child(int b) {
+			int slot = index[b];
+			return (slot == 0) ? null : children[slot - 1];
+		}
+		
+		public int nextByte(int b) {
+			for (int i = b + 1; i < 256; i++) {
+				if (index[i] != 0) {
+					return i;
+				}
+			}
+			return -1;
+		}
+		
+		public int previousByte(int b) {
+			for (int i = b - 1; i >= 0; i--) {
+				if (index[i] != 0) {
+					return i;
+				}
+			}
+			return -1;
+		}
+		
+		public void set(int b, RadixNode child) {
+			children[index[b] - 1] = child;
+		}
+		
+		boolean isFull() {
+			return count == children.length;
+		}
+		
+		void put(int b, RadixNode child) {
+			int slot = 0;
+			while (children[slot] != null) {
+				slot++;
+			}
+			children[slot] = child;
+			index[b] = (byte) (slot + 1);
+			count++;
+		}
+		
+		void clear(int b) {
+			children[index[b] - 1] = null;
+			index[b] = 0;
+			count--;
+		}
+		
+		Inner resized(boolean grow) {
+			return grow ? new Node256() : new Node16();
+		}
+		
+		int minCount() {
+			return 12;
+		}
+	}
+	
+	/**
+	 * From 48 to 256 children, indexed by byte.
+	 */
+	public static final class Node256 extends Inner {
+		
+		/** The child of each byte, or null. */
+		private final RadixNode[] children = new RadixNode[256];
+		
+		public RadixNode child(int b) {
+			return children[b];
+		}
+		
+		public int nextByte(int b) {
+			for (int i = b + 1; i < 256; i++) {
+				if (children[i] != null) {
+					return i;
+				}
+			}
+			return -1;
+		}
+		
+		public int previousByte(int b) {
+			for (int i = b - 1; i >= 0; i--) {
+				if (children[i] != null) {
+					return i;
+				}
+			}
+			return -1;
+		}
+		
+		public void set(int b, RadixNode child) {
+			children[b] = child;
+		}
+		
+		boolean isFull() {
+			return false;
+		}
+		
+		void put(int b, RadixNode child) {
+			children[b] = child;
+			count++;
+		}
+		
+		void clear(int b) {
+			children[b] = null;
+			count--;
+		}
+		
+		Inner resized(boolean grow) {
+			return grow ? null : new Node48();
+		}
+		
+		int minCount() {
+			return 37;
+		}
+	}
+	
+	/**
+	 * Gets the prefix of a path made of two paths and the byte between them.
+	 *
+	 * @param first The first path
+	 * @param b The byte
+	 * @param second The second path
+	 * @return The joined path
+	 */
+	static byte[] join(byte[] first, int b, byte[] second) {
+		byte[] joined = Arrays.copyOf(first, first.length + 1 + second.length);
+		joined[first.length] = (byte) b;
+		System.arraycopy(second, 0, joined, first.length + 1, second.length);
+		return joined;
+	}
+}
@@ -0,0 +1,578 @@
+
+
+/*
+ * Copyright (c) 2013, Erika Nana
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Project 1 nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY Erika Nana ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL Erika Nana BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.NoSuchElementException;
+
+/**
+ * An adaptive radix tree (Leis et al., ICDE 2013) of strings.  Keys are
+ * stored as UTF-8 and the tree branches on one byte per level, so a lookup
+ * looks at each byte of the key at most once, whatever the number of keys;
+ * words that share a prefix share the nodes of that prefix, and a run of
+ * nodes with one child each is compressed into a single node's path.  The
+ * inner nodes are RadixNode's Node4, Node16, Node48 and Node256, which grow
+ * and shrink with their number of children.
+ *
+ * Bytes compare unsigned, so keys are in code point order.  Searches return
+ * keys rather than nodes: search hands back the caller's own String, and
+ * the others the leaf's, which each leaf decodes the first time it is asked.
+ *
+ * @author Erika Nana
+ */
+public class RadixTree implements DynamicSet<String> {
+	
+	/** The root, or null if the tree is empty. */
+	private RadixNode root = null;
+	
+	/** The number of keys. */
+	private int size = 0;
+	
+	/** Set by insert and delete when they changed the tree. */
+	private boolean changed;
+	
+	/**
+	 * Encodes a key.
+	 *
+	 * @param key The key
+	 * @return The UTF-8 bytes
+	 */
+	private static byte[] encode(String key) {
+		return key.getBytes(StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * Gets the key of a leaf.
+	 *
+	 * @param leaf The leaf, or null
+	 * @return The key, or null
+	 */
+	private static String decode(RadixNode.Leaf leaf) {
+		return (leaf == null) ? null : leaf.string();
+	}
+	
+	/**
+	 * Compares two keys as unsigned bytes.
+	 *
+	 * @param a The first key
+	 * @param b The second key
+	 * @return Negative, zero or positive as a is less than, equal to or greater than b
+	 */
+	private static int compare(byte[] a, byte[] b) {
+		int limit = Math.min(a.length, b.length);
+		for (int i = 0; i < limit; i++) {
+			int x = a[i] & 0xFF;
+			int y = b[i] & 0xFF;
+			if (x != y) {
+				return x - y;
+			}
+		}
+		return a.length - b.length;
+	}
+	
+	/**
+	 * Counts how many bytes of a compressed path the key matches.
+	 *
+	 * @param prefix The path
+	 * @param key The key
+	 * @param depth Where the path starts in the key
+	 * @return The number of bytes matched
+	 */
+	private static int match(byte[] prefix, byte[] key, int depth) {
+		int i = 0;
+		while (i < prefix.length && depth + i < key.length && prefix[i] == key[depth + i]) {
+			i++;
+		}
+		return i;
+	}
+	
+	/**
+	 * Compares a compressed path with the bytes of a key at the same place.
+	 *
+	 * @param prefix The path
+	 * @param key The key
+	 * @param depth Where the path starts in the key
+	 * @return Positive if every key below the path is greater than key,
+	 *         negative if every one is less, or 0 if the key follows the path
+	 */
+	private static int comparePrefix(byte[] prefix, byte[] key, int depth) {
+		for (int i = 0; i < prefix.length; i++) {
+			if (depth + i == key.length) {
+				return 1; //the key ends first, so it is a prefix of every key below
+			}
+			int d = (prefix[i] & 0xFF) - (key[depth + i] & 0xFF);
+			if (d != 0) {
+				return d;
+			}
+		}
+		return 0;
+	}
+	
+	/**
+	 * Puts a leaf below an inner node, as the node's own key if the key ends
+	 * at depth, or else as the child of its byte at depth.
+	 *
+	 * @param node The node, which must have room
+	 * @param leaf The leaf
+	 * @param depth The depth just past the node's path
+	 */
+	private static void attach(RadixNode.Inner node, RadixNode.Leaf leaf, int depth) {
+		if (leaf.key.length == depth) {
+			node.leaf = leaf;
+		}
+		else {
+			node.put(leaf.key[depth] & 0xFF, leaf);
+		}
+	}
+	
+	/**
+	 * Gets the leaf with the smallest key in a subtree.
+	 *
+	 * @param node The subtree
+	 * @return The leaf, or null for an empty subtree
+	 */
+	private static RadixNode.Leaf first(RadixNode node) {
+		while (node instanceof RadixNode.Inner) {
+			RadixNode.Inner inner = (RadixNode.Inner) node;
+			if (inner.leaf != null) {
+				return inner.leaf; //a key ending here is a prefix of every key below
+			}
+			int b = inner.nextByte(-1);
+			node = (b < 0) ? null : inner.child(b);
+		}
+		return (RadixNode.Leaf) node;
+	}
+	
+	/**
+	 * Gets the leaf with the largest key in a subtree.
+	 *
+	 * @param node The subtree
+	 * @return The leaf, or null for an empty subtree
+	 */
+	private static RadixNode.Leaf last(RadixNode node) {
+		while (node instanceof RadixNode.Inner) {
+			RadixNode.Inner inner = (RadixNode.Inner) node;
+			int b = inner.previousByte(256);
+			if (b < 0) {
+				return inner.leaf;
+			}
+			node = inner.child(b);
+		}
+		return (RadixNode.Leaf) node;
+	}
+	
+	/**
+	 * Finds the leaf of a key.
+	 *
+	 * @param key The UTF-8 bytes of the key
+	 * @return The leaf, or null if the key is not in the tree
+	 */
+	private RadixNode.Leaf find(byte[] key) {
+		RadixNode node = root;
+		int depth = 0;
+		while (node instanceof RadixNode.Inner) {
+			RadixNode.Inner inner = (RadixNode.Inner) node;
+			if (match(inner.prefix, key, depth) < inner.prefix.length) {
+				return null;
+			}
+			depth += inner.prefix.length;
+			if (depth == key.length) {
+				return inner.leaf;
+			}
+			node = inner.child(key[depth] & 0xFF);
+			depth++;
+		}
+		//paths below a leaf are not stored, so check the whole key
+		RadixNode.Leaf leaf = (RadixNode.Leaf) node;
+		return (leaf != null && Arrays.equals(leaf.key, key)) ? leaf : null;
+	}
+	
+	/**
+	 * Finds the leaf with the smallest key greater than the key.
+	 *
+	 * @param node The subtree
+	 * @param key The UTF-8 bytes of the key
+	 * @param depth The depth of the subtree
+	 * @return The leaf, or null if there is none in the subtree
+	 */
+	private static RadixNode.Leaf higher(RadixNode node, byte[] key, int depth) {
+		if (node == null) {
+			return null;
+		}
+		if (node instanceof RadixNode.Leaf) {
+			RadixNode.Leaf leaf = (RadixNode.Leaf) node;
+			return (compare(leaf.key, key) > 0) ? leaf : null;
+		}
+		RadixNode.Inner inner = (RadixNode.Inner) node;
+		int compare = comparePrefix(inner.prefix, key, depth);
+		if (compare != 0) {
+			return (compare > 0) ? first(inner) : null;
+		}
+		depth += inner.prefix.length;
+		if (depth == key.length) {
+			//the node's own key is the key; every child is greater
+			int b = inner.nextByte(-1);
+			return (b < 0) ? null : first(inner.child(b));
+		}
+		int b = key[depth] & 0xFF;
+		RadixNode.Leaf found = higher(inner.child(b), key, depth + 1);
+		if (found != null) {
+			return found;
+		}
+		int next = inner.nextByte(b);
+		return (next < 0) ? null : first(inner.child(next));
+	}
+	
+	/**
+	 * Finds the leaf with the largest key less than the key.
+	 *
+	 * @param node The subtree
+	 * @param key The UTF-8 bytes of the key
+	 * @param depth The depth of the subtree
+	 * @return The leaf, or null if there is none in the subtree
+	 */
+	private static RadixNode.Leaf lower(RadixNode node, byte[] key, int depth) {
+		if (node == null) {
+			return null;
+		}
+		if (node instanceof RadixNode.Leaf) {
+			RadixNode.Leaf leaf = (RadixNode.Leaf) node;
+			return (compare(leaf.key, key) < 0) ? leaf : null;
+		}
+		RadixNode.Inner inner = (RadixNode.Inner) node;
+		int compare = comparePrefix(inner.prefix, key, depth);
+		if (compare != 0) {
+			return (compare < 0) ? last(inner) : null;
+		}
+		depth += inner.prefix.length;
+		if (depth == key.length) {
+			return null; //the node's own key is the key; every child is greater
+		}
+		int b = key[depth] & 0xFF;
+		RadixNode.Leaf found = lower(inner.child(b), key, depth + 1);
+		if (found != null) {
+			return found;
+		}
+		int previous = inner.previousByte(b);
+		if (previous >= 0) {
+			return last(inner.child(previous));
+		}
+		return inner.leaf; //a prefix of the key
+	}
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#size()
+	 */
+	
+	public int size() {
+		return size;
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#getComparator()
+	 */
+	
+	public Comparator<? super String> getComparator() {
+		return Utils.CODE_POINT_ORDER;
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#insert(java.lang.Object, java.lang.Object)
+	 */
+	
+	public void insert(String key, Object e) {
+		changed = false;
+		root = insert(root, encode(key), 0);
+		if (changed) {
+			size++;
+		}
+	}
+	
+	/**
+	 * Inserts a key into a subtree.
+	 *
+	 * @param node The subtree, or null
+	 * @param key The UTF-8 bytes of the key
+	 * @param depth The depth of the subtree
+	 * @return The subtree, or the node that replaces it
+	 */
+	private RadixNode insert(RadixNode node, byte[] key, int depth) {
+		if (node == null) {
+			changed = true;
+			return new RadixNode.Leaf(key);
+		}
+		if (node instanceof RadixNode.Leaf) {
+			RadixNode.Leaf leaf = (RadixNode.Leaf) node;
+			if (Arrays.equals(leaf.key, key)) {
+				return leaf; //already in the set
+			}
+			//both keys go under a new node holding the bytes they share
+			int common = depth;
+			int limit = Math.min(leaf.key.length, key.length);
+			while (common < limit && leaf.key[common] == key[common]) {
+				common++;
+			}
+			RadixNode.Node4 inner = new RadixNode.Node4();
+			inner.prefix = Arrays.copyOfRange(key, depth, common);
+			attach(inner, leaf, common);
+			attach(inner, new RadixNode.Leaf(key), common);
+			changed = true;
+			return inner;
+		}
+		RadixNode.Inner inner = (RadixNode.Inner) node;
+		int matched = match(inner.prefix, key, depth);
+		if (matched < inner.prefix.length) {
+			//the key leaves the path partway, so split the path there
+			RadixNode.Node4 split = new RadixNode.Node4();
+			split.prefix = Arrays.copyOf(inner.prefix, matched);
+			int b = inner.prefix[matched] & 0xFF;
+			inner.prefix = Arrays.copyOfRange(inner.prefix, matched + 1, inner.prefix.length);
+			split.put(b, inner);
+			attach(split, new RadixNode.Leaf(key), depth + matched);
+			changed = true;
+			return split;
+		}
+		depth += inner.prefix.length;
+		if (depth == key.length) {
+			if (inner.leaf == null) {
+				inner.leaf = new RadixNode.Leaf(key);
+				changed = true;
+			}
+			return inner;
+		}
+		int b = key[depth] & 0xFF;
+		RadixNode child = inner.child(b);
+		if (child == null) {
+			changed = true;
+			return inner.add(b, new RadixNode.Leaf(key));
+		}
+		RadixNode updated = insert(child, key, depth + 1);
+		if (updated != child) {
+			inner.set(b, updated);
+		}
+		return inner;
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#bulkLoad(java.lang.Object[], boolean)
+	 */
+	
+	public void bulkLoad(String[] keys, boolean presorted) {
+		String[] sorted = Utils.sortedKeys(keys, presorted, Utils.CODE_POINT_ORDER);
+		root = null;
+		size = 0;
+		for (String key : sorted) {
+			insert(key, null);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#delete(java.lang.Object)
+	 */
+	
+	public void delete(String key) {
+		changed = false;
+		root = delete(root, encode(key), 0);
+		if (changed) {
+			size--;
+		}
+	}
+	
+	/**
+	 * Deletes a key from a subtree.
+	 *
+	 * @param node The subtree
+	 * @param key The UTF-8 bytes of the key
+	 * @param depth The depth of the subtree
+	 * @return The subtree, the node that replaces it, or null if it is now empty
+	 */
+	private RadixNode delete(RadixNode node, byte[] key, int depth) {
+		if (node == null) {
+			return null;
+		}
+		if (node instanceof RadixNode.Leaf) {
+			if (Arrays.equals(((RadixNode.Leaf) node).key, key)) {
+				changed = true;
+				return null;
+			}
+			return node;
+		}
+		RadixNode.Inner inner = (RadixNode.Inner) node;
+		if (match(inner.prefix, key, depth) < inner.prefix.length) {
+			return inner;
+		}
+		depth += inner.prefix.length;
+		if (depth == key.length) {
+			if (inner.leaf == null) {
+				return inner;
+			}
+			inner.leaf = null;
+			changed = true;
+			return collapse(inner);
+		}
+		int b = key[depth] & 0xFF;
+		RadixNode child = inner.child(b);
+		if (child == null) {
+			return inner;
+		}
+		RadixNode updated = delete(child, key, depth + 1);
+		if (updated == child) {
+			return inner;
+		}
+		if (updated != null) {
+			inner.set(b, updated);
+			return inner;
+		}
+		return collapse(inner.remove(b));
+	}
+	
+	/**
+	 * Replaces a node left with only one thing below it by that thing.
+	 *
+	 * @param inner The node
+	 * @return The node, or what replaces it
+	 */
+	private static RadixNode collapse(RadixNode.Inner inner) {
+		if (inner.count == 0) {
+			return inner.leaf;
+		}
+		if (inner.count == 1 && inner.leaf == null) {
+			int b = inner.nextByte(-1);
+			RadixNode child = inner.child(b);
+			if (child instanceof RadixNode.Inner) {
+				RadixNode.Inner only = (RadixNode.Inner) child;
+				only.prefix = RadixNode.join(inner.prefix, b, only.prefix);
+			}
+			return child;
+		}
+		return inner;
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#search(java.lang.Object)
+	 */
+	
+	public Object search(String key) {
+		return (find(encode(key)) == null) ? null : key;
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#minimum()
+	 */
+	
+	public Object minimum() {
+		return decode(first(root));
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#maximum()
+	 */
+	
+	public Object maximum() {
+		return decode(last(root));
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#successor(java.lang.Object)
+	 */
+	
+	public Object successor(String key) {
+		byte[] bytes = encode(key);
+		return (find(bytes) == null) ? null : decode(higher(root, bytes, 0));
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#predecessor(java.lang.Object)
+	 */
+	
+	public Object predecessor(String key) {
+		byte[] bytes = encode(key);
+		return (find(bytes) == null) ? null : decode(lower(root, bytes, 0));
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#cursor(java.lang.Object, java.lang.Object)
+	 *
+	 * Moving the cursor decodes nothing.  key() returns the leaf's String,
+	 * which is decoded the first time any caller asks for that key.
+	 */
+	
+	public Cursor<String> cursor(String fromKey, String toKey) {
+		LeafCursor cursor = new LeafCursor();
+		cursor.reset(fromKey, toKey);
+		return cursor;
+	}
+	
+	/**
+	 * Walks the leaves in key order, finding each one from the one before.
+	 */
+	private class LeafCursor implements Cursor<String> {
+		
+		/** The leaf the cursor is on. */
+		private RadixNode.Leaf current = null;
+		
+		/** The leaf the cursor moves to next. */
+		private RadixNode.Leaf next = null;
+		
+		/** The UTF-8 bytes of the key to stop before, or null. */
+		private byte[] toKey = null;
+		
+		public boolean next() {
+			if (next == null || (toKey != null && compare(next.key, toKey) >= 0)) {
+				current = next = null;
+				return false;
+			}
+			current = next;
+			next = higher(root, current.key, 0);
+			return true;
+		}
+		
+		public String key() {
+			if (current == null) {
+				throw new NoSuchElementException();
+			}
+			return decode(current);
+		}
+		
+		public void reset(String fromKey, String toKey) {
+			this.toKey = (toKey == null) ? null : encode(toKey);
+			current = null;
+			if (fromKey == null) {
+				next = first(root);
+			}
+			else {
+				byte[] from = encode(fromKey);
+				next = find(from);
+				if (next == null) {
+					next = higher(root, from, 0);
+				}
+			}
+		}
+	}
+}
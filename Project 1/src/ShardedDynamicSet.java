@@ -0,0 +1,724 @@
+
+
+/*
+ * Copyright (c) 2013, Erika Nana
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Project 1 nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY Erika Nana ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL Erika Nana BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+/**
+ * Splits the keys by range across several inner sets, so bulk work can run
+ * on every core.  Shard i holds the keys from split point i-1 up to, but not
+ * including, split point i, so each shard is an ordinary DynamicSet of any
+ * kind and the shards in order hold the keys in order.
+ *
+ * The split points are picked by bulkLoad: exactly from the quantiles when
+ * the keys come sorted, otherwise from a random sample of the keys.  Until
+ * then every key goes to the first shard.  After many inserts the shards can
+ * drift apart in size; rebalance picks new points from the keys held.
+ *
+ * bulkLoad, insertAll and searchAll route the keys to their shards on a
+ * fork-join pool and then run one task per shard, so each inner set is
+ * still only touched by one thread at a time.  Loading unsorted keys this
+ * way is a sample sort: each shard sorts only its own part.  The single-key
+ * operations go straight to one shard.  minimum, maximum, successor,
+ * predecessor and cursors move on to the next non-empty shard when one runs
+ * out, and return whatever the inner set returns.
+ *
+ * Like the sets it holds, it should be used by one thread at a time; the
+ * bulk operations do their own fan-out and return once every shard is done.
+ *
+ * @author Erika Nana
+ * @param <Type> the generic type
+ */
+public class ShardedDynamicSet<Type> implements DynamicSet<Type> {
+	
+	/**
+	 * Makes the inner sets.
+	 *
+	 * @param <Type> the generic type
+	 */
+	public interface Factory<Type> {
+		
+		/**
+		 * Makes a new, empty inner set.  Every set it makes must order its
+		 * keys the same way.
+		 *
+		 * @return The set
+		 */
+		public DynamicSet<Type> newSet();
+	}
+	
+	/**
+	 * Work done on one shard by one task.
+	 */
+	private interface ShardAction {
+		
+		/**
+		 * Does the work for one shard.
+		 *
+		 * @param shard The index of the shard
+		 */
+		public void run(int shard);
+	}
+	
+	/** The number of keys sampled per shard when picking split points. */
+	public static final int SAMPLES_PER_SHARD = 64;
+	
+	/** The most keys a routing task handles before splitting in two. */
+	public static final int ROUTE_THRESHOLD = 1 << 13;
+	
+	/** The inner sets, in key order. */
+	private final DynamicSet<Type>[] shards;
+	
+	/** The split points, in order; shard i holds keys from bounds[i-1] up to bounds[i]. */
+	private Object[] bounds = new Object[0];
+	
+	/** The order of the keys. */
+	private final Comparator<? super Type> comparator;
+	
+	/** The pool the bulk operations run on. */
+	private final ForkJoinPool pool;
+	
+	/** Picks the sampled keys. */
+	private final Random random = new Random();
+	
+	/** The array type of the keys, from the last bulk call, or null. */
+	private Class<?> keyType = null;
+	
+	/**
+	 * Instantiates a new sharded set that runs its bulk operations on the
+	 * common fork-join pool.
+	 *
+	 * @param factory Makes the inner sets
+	 * @param count The number of shards, usually the number of cores
+	 */
+	public ShardedDynamicSet(Factory<Type> factory, int count) {
+		this(factory, count, ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * Instantiates a new sharded set.
+	 *
+	 * @param factory Makes the inner sets
+	 * @param count The number of shards, at least 1
+	 * @param pool The pool the bulk operations run on
+	 */
+	public ShardedDynamicSet(Factory<Type> factory, int count, ForkJoinPool pool) {
+		if (count < 1) {
+			throw new IllegalArgumentException("A sharded set needs at least one shard, not " + count);
+		}
+		@SuppressWarnings("unchecked")
+		DynamicSet<Type>[] shards = (DynamicSet<Type>[]) new DynamicSet<?>[count];
+		this.shards = shards;
+		for (int i = 0; i < count; i++) {
+			shards[i] = factory.newSet();
+		}
+		comparator = shards[0].getComparator();
+		this.pool = pool;
+	}
+	
+	/**
+	 * Gets the number of shards.
+	 *
+	 * @return The count
+	 */
+	public int getShardCount() {
+		return shards.length;
+	}
+	
+	/**
+	 * Gets one of the inner sets.
+	 *
+	 * @param shard The index of the shard
+	 * @return The set
+	 */
+	public DynamicSet<Type> getShard(int shard) {
+		return shards[shard];
+	}
+	
+	/**
+	 * Finds the shard a key belongs in.
+	 *
+	 * @param key The key
+	 * @return The index of the shard
+	 */
+	@SuppressWarnings("unchecked")
+	private int shardOf(Type key) {
+		int low = 0;
+		int high = bounds.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (comparator.compare(key, (Type) bounds[mid]) >= 0) {
+				low = mid + 1;
+			}
+			else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#size()
+	 */
+	
+	public int size() {
+		int size = 0;
+		for (DynamicSet<Type> shard : shards) {
+			size += shard.size();
+		}
+		return size;
+	}
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#getComparator()
+	 */
+	
+	public Comparator<? super Type> getComparator() {
+		return comparator;
+	}
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#insert(java.lang.Object, java.lang.Object)
+	 */
+	
+	public void insert(Type key, Object e) {
+		shards[shardOf(key)].insert(key, e);
+	}
+	
+	/**
+	 * Picks new split points from the keys, then has every shard bulk load
+	 * its part at the same time.
+	 *
+	 * @see main.DynamicSet#bulkLoad(java.lang.Object[], boolean)
+	 */
+	public void bulkLoad(final Type[] keys, boolean presorted) {
+		final boolean sorted = presorted && Utils.isSorted(keys, comparator);
+		keyType = keys.getClass().getComponentType();
+		bounds = sorted ? quantiles(keys) : quantiles(sample(keys));
+		final int[][] groups = group(keys);
+		fanOut(new ShardAction() {
+			public void run(int shard) {
+				//a group keeps the input order, so the part of a sorted array is sorted
+				shards[shard].bulkLoad(gather(keys, groups[shard]), sorted);
+			}
+		});
+	}
+	
+	/**
+	 * Inserts many keys at once, each shard inserting its own keys in its
+	 * own task.  Into an empty set this is a bulkLoad, which also picks the
+	 * split points.
+	 *
+	 * @param keys The keys to insert; their elements are null
+	 */
+	public void insertAll(final Type[] keys) {
+		if (size() == 0) {
+			bulkLoad(keys, false);
+			return;
+		}
+		keyType = keys.getClass().getComponentType();
+		final int[][] groups = group(keys);
+		fanOut(new ShardAction() {
+			public void run(int shard) {
+				for (int position : groups[shard]) {
+					shards[shard].insert(keys[position], null);
+				}
+			}
+		});
+	}
+	
+	/**
+	 * Searches for many keys at once, each shard searching for its own keys
+	 * in its own task.
+	 *
+	 * @param keys The keys to search for
+	 * @return What search returns for each key, in the same order
+	 */
+	public Object[] searchAll(final Type[] keys) {
+		final Object[] results = new Object[keys.length];
+		final int[][] groups = group(keys);
+		fanOut(new ShardAction() {
+			public void run(int shard) {
+				for (int position : groups[shard]) {
+					results[position] = shards[shard].search(keys[position]);
+				}
+			}
+		});
+		return results;
+	}
+	
+	/**
+	 * Picks new split points from the keys the shards hold now and loads
+	 * them again, evening out shards that drifted apart with inserts.  The
+	 * keys are copied into an array of the type the last bulk call passed
+	 * in, or of the smallest key's class if there was none.
+	 */
+	@SuppressWarnings("unchecked")
+	public void rebalance() {
+		int size = size();
+		if (size == 0) {
+			return;
+		}
+		Cursor<Type> cursor = cursor(null, null);
+		Type[] keys = null;
+		for (int i = 0; cursor.next(); i++) {
+			if (keys == null) {
+				keys = (Type[]) Array.newInstance((keyType != null) ? keyType : cursor.key().getClass(), size);
+			}
+			keys[i] = cursor.key();
+		}
+		bulkLoad(keys, true);
+	}
+	
+	/**
+	 * Picks split points that cut sorted keys into equal parts.  Repeated
+	 * keys are skipped, so there can be fewer points than shards.
+	 *
+	 * @param sorted The keys, in order
+	 * @return The split points, in order and distinct
+	 */
+	private Object[] quantiles(Type[] sorted) {
+		List<Object> points = new ArrayList<Object>();
+		for (int i = 1; i < shards.length; i++) {
+			int index = (int) ((long) i * sorted.length / shards.length);
+			if (index == 0) {
+				continue;
+			}
+			Type point = sorted[index];
+			if (comparator.compare(point, sorted[0]) > 0 
+					&& (points.isEmpty() || comparator.compare(point, last(points)) > 0)) {
+				points.add(point);
+			}
+		}
+		return points.toArray();
+	}
+	
+	/**
+	 * Gets the last split point picked so far.
+	 *
+	 * @param points The split points
+	 * @return The last one
+	 */
+	@SuppressWarnings("unchecked")
+	private Type last(List<Object> points) {
+		return (Type) points.get(points.size() - 1);
+	}
+	
+	/**
+	 * Draws a sorted random sample of the keys, or sorts all of them if
+	 * there are few.
+	 *
+	 * @param keys The keys
+	 * @return The sample, in order
+	 */
+	private Type[] sample(Type[] keys) {
+		int count = SAMPLES_PER_SHARD * shards.length;
+		Type[] sample;
+		if (keys.length <= count) {
+			sample = keys.clone();
+		}
+		else {
+			sample = Arrays.copyOf(keys, count);
+			for (int i = 0; i < count; i++) {
+				sample[i] = keys[random.nextInt(keys.length)];
+			}
+		}
+		Arrays.sort(sample, comparator);
+		return sample;
+	}
+	
+	/**
+	 * Routes keys to their shards: the shard of each key is found on the
+	 * pool, and then the positions are sorted into one group per shard.
+	 *
+	 * @param keys The keys
+	 * @return The positions of the keys for each shard, in input order
+	 */
+	private int[][] group(Type[] keys) {
+		int[] owner = new int[keys.length];
+		pool.invoke(new RouteTask(keys, owner, 0, keys.length));
+		int[] counts = new int[shards.length];
+		for (int shard : owner) {
+			counts[shard]++;
+		}
+		int[][] groups = new int[shards.length][];
+		for (int i = 0; i < shards.length; i++) {
+			groups[i] = new int[counts[i]];
+		}
+		Arrays.fill(counts, 0);
+		for (int i = 0; i < owner.length; i++) {
+			groups[owner[i]][counts[owner[i]]++] = i;
+		}
+		return groups;
+	}
+	
+	/**
+	 * Copies the keys at some positions into a new array of the same type.
+	 *
+	 * @param keys The keys
+	 * @param positions The positions to copy
+	 * @return The keys at those positions
+	 */
+	@SuppressWarnings("unchecked")
+	private static <Type> Type[] gather(Type[] keys, int[] positions) {
+		Type[] part = (Type[]) Array.newInstance(keys.getClass().getComponentType(), positions.length);
+		for (int i = 0; i < positions.length; i++) {
+			part[i] = keys[positions[i]];
+		}
+		return part;
+	}
+	
+	/**
+	 * Runs one task per shard on the pool and waits for all of them.
+	 *
+	 * @param action The work for each shard
+	 */
+	private void fanOut(final ShardAction action) {
+		final List<RecursiveAction> tasks = new ArrayList<RecursiveAction>();
+		for (int i = 0; i < shards.length; i++) {
+			final int shard = i;
+			tasks.add(new RecursiveAction() {
+				protected void compute() {
+					action.run(shard);
+				}
+			});
+		}
+		pool.invoke(new RecursiveAction() {
+			protected void compute() {
+				invokeAll(tasks);
+			}
+		});
+	}
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#delete(java.lang.Object)
+	 */
+	
+	public void delete(Type key) {
+		shards[shardOf(key)].delete(key);
+	}
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#search(java.lang.Object)
+	 */
+	
+	public Object search(Type key) {
+		return shards[shardOf(key)].search(key);
+	}
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#minimum()
+	 */
+	
+	public Object minimum() {
+		for (int i = 0; i < shards.length; i++) {
+			if (shards[i].size() > 0) {
+				return shards[i].minimum();
+			}
+		}
+		return null;
+	}
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#maximum()
+	 */
+	
+	public Object maximum() {
+		for (int i = shards.length - 1; i >= 0; i--) {
+			if (shards[i].size() > 0) {
+				return shards[i].maximum();
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Asks the key's shard for the successor if it holds a larger key, and
+	 * otherwise gives the minimum of the next shard that is not empty.
+	 *
+	 * @see main.DynamicSet#successor(java.lang.Object)
+	 */
+	public Object successor(Type key) {
+		int shard = shardOf(key);
+		Cursor<Type> cursor = shards[shard].cursor(key, null);
+		while (cursor.next()) {
+			if (comparator.compare(cursor.key(), key) > 0) {
+				return shards[shard].successor(key);
+			}
+		}
+		for (shard++; shard < shards.length; shard++) {
+			if (shards[shard].size() > 0) {
+				return shards[shard].minimum();
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Asks the key's shard for the predecessor if it holds a smaller key, and
+	 * otherwise gives the maximum of the shard before it that is not empty.
+	 *
+	 * @see main.DynamicSet#predecessor(java.lang.Object)
+	 */
+	public Object predecessor(Type key) {
+		int shard = shardOf(key);
+		if (shards[shard].cursor(null, key).next()) {
+			return shards[shard].predecessor(key);
+		}
+		for (shard--; shard >= 0; shard--) {
+			if (shards[shard].size() > 0) {
+				return shards[shard].maximum();
+			}
+		}
+		return null;
+	}
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#cursor(java.lang.Object, java.lang.Object)
+	 */
+	
+	public Cursor<Type> cursor(Type fromKey, Type toKey) {
+		ShardCursor cursor = new ShardCursor();
+		cursor.reset(fromKey, toKey);
+		return cursor;
+	}
+	
+	/**
+	 * Opens a spliterator that first splits between shards, and then lets
+	 * a single shard split itself.
+	 *
+	 * @see main.DynamicSet#spliterator()
+	 */
+	public Spliterator<Type> spliterator() {
+		return new ShardSpliterator(0, shards.length, null);
+	}
+	
+	/**
+	 * Finds the shard of each key in a range of positions, splitting the
+	 * range in two until it is small.
+	 */
+	private class RouteTask extends RecursiveAction {
+		
+		private static final long serialVersionUID = 1L;
+		
+		/** The keys. */
+		private final Type[] keys;
+		
+		/** Where the shard of each key goes. */
+		private final int[] owner;
+		
+		/** The first position. */
+		private final int low;
+		
+		/** The position to stop before. */
+		private final int high;
+		
+		/**
+		 * Instantiates a new route task.
+		 *
+		 * @param keys The keys
+		 * @param owner Where the shard of each key goes
+		 * @param low The first position
+		 * @param high The position to stop before
+		 */
+		private RouteTask(Type[] keys, int[] owner, int low, int high) {
+			this.keys = keys;
+			this.owner = owner;
+			this.low = low;
+			this.high = high;
+		}
+		
+		protected void compute() {
+			if (high - low <= ROUTE_THRESHOLD) {
+				for (int i = low; i < high; i++) {
+					owner[i] = shardOf(keys[i]);
+				}
+				return;
+			}
+			int mid = (low + high) >>> 1;
+			invokeAll(new RouteTask(keys, owner, low, mid), new RouteTask(keys, owner, mid, high));
+		}
+	}
+	
+	/**
+	 * Walks the shards in order with their own cursors.
+	 */
+	private class ShardCursor implements Cursor<Type> {
+		
+		/** The shard the inner cursor walks. */
+		private int shard = 0;
+		
+		/** The last shard that can hold keys of the range. */
+		private int last = 0;
+		
+		/** The cursor over the current shard. */
+		private Cursor<Type> inner = null;
+		
+		/** The key to stop before. */
+		private Type toKey = null;
+		
+		public boolean next() {
+			while (!inner.next()) {
+				if (shard >= last) {
+					return false;
+				}
+				shard++;
+				inner = shards[shard].cursor(null, toKey);
+			}
+			return true;
+		}
+		
+		public Type key() {
+			return inner.key();
+		}
+		
+		public void reset(Type fromKey, Type toKey) {
+			this.toKey = toKey;
+			shard = (fromKey == null) ? 0 : shardOf(fromKey);
+			last = (toKey == null) ? shards.length - 1 : shardOf(toKey);
+			inner = shards[shard].cursor(fromKey, toKey);
+		}
+	}
+	
+	/**
+	 * Walks a run of shards, each with its own spliterator, and splits the
+	 * run in half until only one shard is left.
+	 */
+	private class ShardSpliterator extends KeySpliterator<Type> {
+		
+		/** The shard being walked. */
+		private int low;
+		
+		/** The shard to stop before. */
+		private final int high;
+		
+		/** The spliterator over the shard being walked, or null if not opened yet. */
+		private Spliterator<Type> current;
+		
+		/**
+		 * Instantiates a new shard spliterator.
+		 *
+		 * @param low The first shard
+		 * @param high The shard to stop before
+		 * @param current The spliterator over the first shard, or null
+		 */
+		private ShardSpliterator(int low, int high, Spliterator<Type> current) {
+			super(ShardedDynamicSet.this.comparator);
+			this.low = low;
+			this.high = high;
+			this.current = current;
+		}
+		
+		/**
+		 * Gets the spliterator over the shard being walked, opening it if
+		 * needed.
+		 *
+		 * @return The spliterator
+		 */
+		private Spliterator<Type> current() {
+			if (current == null) {
+				current = shards[low].spliterator();
+			}
+			return current;
+		}
+		
+		public boolean tryAdvance(Consumer<? super Type> action) {
+			for (; low < high; low++, current = null) {
+				if (current().tryAdvance(action)) {
+					return true;
+				}
+			}
+			return false;
+		}
+		
+		public void forEachRemaining(Consumer<? super Type> action) {
+			for (; low < high; low++, current = null) {
+				current().forEachRemaining(action);
+			}
+		}
+		
+		public Spliterator<Type> trySplit() {
+			if (high - low > 1) {
+				int mid = (low + high) >>> 1;
+				Spliterator<Type> prefix = new ShardSpliterator(low, mid, current);
+				low = mid;
+				current = null;
+				return prefix;
+			}
+			return (low < high) ? current().trySplit() : null;
+		}
+		
+		public long estimateSize() {
+			long size = 0;
+			for (int i = low; i < high; i++) {
+				size += (i == low && current != null) ? current.estimateSize() : shards[i].size();
+			}
+			return size;
+		}
+	}
+	
+	/**
+	 * Times loading and searching a set of random words, with one shard and
+	 * then with the given number of shards.
+	 *
+	 * @param args The number of keys, the number of shards (by default one
+	 *        per core), and the kind of inner set (by default rbtree)
+	 */
+	public static void main(String[] args) {
+		int n = (args.length > 0) ? Integer.parseInt(args[0]) : 1000000;
+		int count = (args.length > 1) ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		final String name = (args.length > 2) ? args[2] : "rbtree";
+		
+		String[] keys = Benchmark.keys(n, "uniform", false);
+		String[] probes = Benchmark.probes(keys, false);
+		Factory<String> factory = new Factory<String>() {
+			public DynamicSet<String> newSet() {
+				return Benchmark.newSet(name);
+			}
+		};
+		System.out.printf("%d keys into %s, %d cores%n", n, name, Runtime.getRuntime().availableProcessors());
+		for (int shards : new int[] {1, count}) {
+			ShardedDynamicSet<String> set = new ShardedDynamicSet<String>(factory, shards);
+			long start = System.nanoTime();
+			set.bulkLoad(keys, false);
+			long loaded = System.nanoTime();
+			set.searchAll(probes);
+			long searched = System.nanoTime();
+			System.out.printf("%3d shards:  bulkLoad %8.1f ms, searchAll %8.1f ms for %d probes%n", shards,
+					(loaded - start) / 1e6, (searched - loaded) / 1e6, probes.length);
+		}
+	}
+}
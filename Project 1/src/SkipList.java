@@ -8,8 +8,10 @@
  * @param <Type> the generic type
  */
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
 
-public class SkipList<Type> implements DynamicSet<Type> {	
+public class SkipList<Type> implements DynamicMap<Type>, OrderStatisticSet<Type> {	
   
   /** The first element of the top level */
   public SkipListEntry<Type> head;   
@@ -26,14 +28,100 @@ public class SkipList<Type> implements DynamicSet<Type> {
   /** The random generator that simulates a coin toss */
   public Random r;    
 
+  /** The order of the folded keys. */
+  private final Comparator<? super Type> comparator;
+
+  /** The fold applied to each key before it is compared, or null for none. */
+  private final UnaryOperator<Type> fold;
+
+  /** The order of the keys as they were inserted. */
+  private final Comparator<? super Type> order;
+
+  /** The promotion probability used by default. */
+  public static final double DEFAULT_PROBABILITY = 0.5;
+
+  /** The most levels a tower may have by default. */
+  public static final int DEFAULT_MAX_LEVEL = 32;
+
+  /** The chance that a new entry gets one more level. */
+  private final double probability;
+
+  /** The most levels a tower may have, the lowest level included. */
+  private final int maxLevel;
+
+  /** Whether searches start from the finger instead of the head. */
+  private boolean fingerSearch = false;
+
+  /** The entry on the lowest level where the last search ended, or null. */
+  private SkipListEntry<Type> finger = null;
+
+
   /**
-   * Instantiates a new skip list.
+   * Instantiates a new skip list ordered by the keys' natural order.
    */
   public SkipList(){ //default constructor 
+     this(null);
+  }
+
+  /**
+   * Instantiates a new skip list.
+   *
+   * @param comparator The order of the keys, or null for their natural order
+   */
+  public SkipList(Comparator<? super Type> comparator){
+     this(DEFAULT_PROBABILITY, DEFAULT_MAX_LEVEL, comparator);
+  }
+
+  /**
+   * Instantiates a new skip list that compares folded keys.  Each key is
+   * folded once as it goes in and the folded form is kept in its entries,
+   * so a lookup folds only the key it looks for.
+   *
+   * @param comparator The order of the folded keys, or null for their natural order
+   * @param fold The fold applied to each key before it is compared, e.g. Utils.FOLD_CASE
+   */
+  public SkipList(Comparator<? super Type> comparator, UnaryOperator<Type> fold){
+     this(DEFAULT_PROBABILITY, DEFAULT_MAX_LEVEL, comparator, fold);
+  }
+
+  /**
+   * Instantiates a new skip list.
+   *
+   * @param probability The chance that a new entry gets one more level,
+   *        between 0 and 1; lower makes shorter towers and longer scans
+   * @param maxLevel The most levels a tower may have, at least 1
+   * @param comparator The order of the keys, or null for their natural order
+   */
+  public SkipList(double probability, int maxLevel, Comparator<? super Type> comparator){
+     this(probability, maxLevel, comparator, null);
+  }
+
+  /**
+   * Instantiates a new skip list.
+   *
+   * @param probability The chance that a new entry gets one more level,
+   *        between 0 and 1; lower makes shorter towers and longer scans
+   * @param maxLevel The most levels a tower may have, at least 1
+   * @param comparator The order of the folded keys, or null for their natural order
+   * @param fold The fold applied to each key before it is compared, or null for none
+   */
+  public SkipList(double probability, int maxLevel, Comparator<? super Type> comparator,
+                  UnaryOperator<Type> fold){
      SkipListEntry<Type> p1, p2;
 
-     p1 = new SkipListEntry<Type>(SkipListEntry.negInf);
-     p2 = new SkipListEntry<Type>(SkipListEntry.posInf);
+     if (!(probability > 0 && probability < 1)) {
+        throw new IllegalArgumentException("The probability must be between 0 and 1");
+     }
+     if (maxLevel < 1) {
+        throw new IllegalArgumentException("The maximum level must be at least 1");
+     }
+     this.probability = probability;
+     this.maxLevel = maxLevel;
+     this.comparator = Utils.orNatural(comparator);
+     this.fold = fold;
+     this.order = Utils.foldedOrder(this.comparator, fold);
+     p1 = SkipListEntry.sentinel(SkipListEntry.negInf);
+     p2 = SkipListEntry.sentinel(SkipListEntry.posInf);
 
      head = p1;
      tail = p2;
@@ -57,6 +145,55 @@ public class SkipList<Type> implements DynamicSet<Type> {
     return size; 
   }
 
+  /* (non-Javadoc)
+   * @see main.DynamicSet#getComparator()
+   */
+  public Comparator<? super Type> getComparator(){ 
+    return order; 
+  }
+
+  /**
+   * Folds a key into the form the list compares.
+   *
+   * @param key The key, or null
+   * @return The folded key, or the key itself if the list does not fold
+   */
+  private Type fold(Type key){
+     return (fold == null || key == null) ? key : fold.apply(key);
+  }
+
+  /**
+   * Turns finger search on or off.  With it on, a search starts from the
+   * entry where the last one ended and climbs only as high as the distance
+   * to the key needs, so lookups near each other cost O(log d) for a
+   * distance of d entries instead of O(log n).  Scattered lookups pay for
+   * the climb with about twice the comparisons, so leave it off for them.
+   *
+   * @param fingerSearch True to search from the finger
+   */
+  public void setFingerSearch(boolean fingerSearch){
+     this.fingerSearch = fingerSearch;
+     finger = null;
+  }
+
+  /**
+   * Gets the promotion probability.
+   *
+   * @return The chance that a new entry gets one more level
+   */
+  public double getProbability(){
+     return probability;
+  }
+
+  /**
+   * Gets the maximum level.
+   *
+   * @return The most levels a tower may have
+   */
+  public int getMaxLevel(){
+     return maxLevel;
+  }
+
   /**
    * Returns whether or not the table is empty.
    *
@@ -75,11 +212,11 @@ public class SkipList<Type> implements DynamicSet<Type> {
    * @return The updated SkipList entry
    */
   public SkipListEntry<Type> insertAfterAbove(SkipListEntry<Type> p, SkipListEntry<Type> q, 
-                                         String k)
+                                         Type k)
   {
      SkipListEntry<Type> e;
 
-     e = new SkipListEntry<Type>(k);
+     e = new SkipListEntry<Type>(k, fold(k));
 
      /* ---------------------------------------
 	Use the links before they are changed !
@@ -101,13 +238,30 @@ public class SkipList<Type> implements DynamicSet<Type> {
 	/* (non-Javadoc)
 	 * @see main.DynamicSet#insert(java.lang.Object, java.lang.Object)
 	 */
-	@SuppressWarnings("unchecked")
 	
 	public void insert(Type key, Object value) {
+		put(key, value);
+	}
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicMap#put(java.lang.Object, java.lang.Object)
+	 */
+	
+	public Object put(Type key, Object value) {
 	    SkipListEntry<Type> p, q;
-	    int i;
+	    int i, offset;
+	    Type folded = fold(key);
 	
-	    p = (SkipListEntry<Type>) search(key);
+	    p = find(folded);
+	
+	    /* ------------------------
+		Already there: only the value changes
+		------------------------ */
+	    if ( p.key != SkipListEntry.negInf && comparator.compare(p.folded, folded) == 0 ){
+	       Object old = p.element;
+	       p.element = value;
+	       return old;
+	    }
 	
 	    /* ------------------------
 		Insert new entry (k,v)
@@ -117,15 +271,17 @@ public class SkipList<Type> implements DynamicSet<Type> {
 	       **** BUG: He forgot to insert in the lowest level !!!
 		Link at the lowest level
 		------------------------------------------------------ */
-	    q = new SkipListEntry<Type>((String)key);
+	    q = new SkipListEntry<Type>(key, folded);
+	    q.element = value;
 	    q.left = p;
 	    q.right = p.right;
 	    p.right.left = q;
 	    p.right = q;
 	
 	    i = 0;                   // Current level = 0
+	    offset = 1;              // Lowest-level steps from p to the new entry
 	
-	    while ( r.nextDouble() < 0.5 ){
+	    while ( i + 1 < maxLevel && r.nextDouble() < probability ){
 		// Coin flip success: make one more level....
 	    	
 		/* ---------------------------------------------
@@ -136,10 +292,11 @@ public class SkipList<Type> implements DynamicSet<Type> {
 	          SkipListEntry<Type> p1, p2;
 	
 	          height = height + 1;
-	          p1 = new SkipListEntry<Type>(SkipListEntry.negInf);
-	          p2 = new SkipListEntry<Type>(SkipListEntry.posInf);
+	          p1 = SkipListEntry.sentinel(SkipListEntry.negInf);
+	          p2 = SkipListEntry.sentinel(SkipListEntry.posInf);
 		   
 			   p1.right = p2;
+			   p1.width = size + 1;
 			   p1.down  = head;
 		
 			   p2.left = p1;
@@ -158,6 +315,7 @@ public class SkipList<Type> implements DynamicSet<Type> {
 			   ------------------------- */
 			while ( p.up == null ){
 			   p = p.left;
+			   offset += p.width;
 			}
 			p = p.up;
 	
@@ -167,7 +325,7 @@ public class SkipList<Type> implements DynamicSet<Type> {
 			   --------------------------------------------- */
 		  	SkipListEntry<Type> e;
 		  		 
-		  	e = new SkipListEntry<Type>((String) key);  // Don't need the value...
+		  	e = new SkipListEntry<Type>(key, folded);  // Don't need the value...
 		  		 
 		  	/* ---------------------------------------
 		  	   Initialize links of e
@@ -175,6 +333,8 @@ public class SkipList<Type> implements DynamicSet<Type> {
 		  	e.left = p;
 		  	e.right = p.right;
 		  	e.down = q;
+		  	e.width = p.width + 1 - offset;
+		  	p.width = offset;
 		  		 
 		  	/* ---------------------------------------
 		  	   Change the neighboring links..
@@ -185,7 +345,168 @@ public class SkipList<Type> implements DynamicSet<Type> {
 		  	q = e;		// Set q up for the next iteration
 		  	i++;	// Current level increased by 1
 	    }
+	
+	    /* ---------------------------------------------
+	       Every link above the tower that jumps over
+	       the new entry now skips one more step
+	       --------------------------------------------- */
+	    widen(p, 1);
 	    size++;
+	    return null;
+	}
+	
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#bulkLoad(java.lang.Object[], boolean)
+	 */
+	
+	public void bulkLoad(Type[] keys, boolean presorted) {
+		Type[][] sorted = Utils.sortedKeys(keys, presorted, comparator, fold);
+		
+		/* ---------------------------------------------------------
+		   Build the lowest level, then stack each level on top of
+		   every step-th entry of the level below, where step is
+		   1/probability; with 0.5 the i-th key (from 1) gets a tower
+		   as tall as i has trailing zero bits.  The levels shrink
+		   exactly as fast as the coin flips would make them on
+		   average.
+		   --------------------------------------------------------- */
+		int step = Math.max(2, (int) Math.round(1 / probability));
+		finger = null;
+		head = SkipListEntry.sentinel(SkipListEntry.negInf);
+		tail = SkipListEntry.sentinel(SkipListEntry.posInf);
+		SkipListEntry<Type>[] level = SkipListEntry.newArray(sorted[0].length);
+		for (int i = 0; i < level.length; i++) {
+			level[i] = new SkipListEntry<Type>(sorted[0][i], sorted[1][i]);
+		}
+		linkLevel(level, level.length);
+		height = 0;
+		
+		int count = level.length / step;
+		while (count > 0 && height + 1 < maxLevel) {
+			SkipListEntry<Type> p1 = SkipListEntry.sentinel(SkipListEntry.negInf);
+			SkipListEntry<Type> p2 = SkipListEntry.sentinel(SkipListEntry.posInf);
+			p1.down = head;
+			p2.down = tail;
+			head.up = p1;
+			tail.up = p2;
+			head = p1;
+			tail = p2;
+			
+			for (int i = 0; i < count; i++) {
+				SkipListEntry<Type> below = level[step * i + step - 1];
+				SkipListEntry<Type> e = new SkipListEntry<Type>(below.key, below.folded);
+				e.down = below;
+				below.up = e;
+				level[i] = e;
+			}
+			linkLevel(level, count);
+			height++;
+			count = count / step;
+		}
+		size = level.length;
+	}
+	
+	/**
+	 * Links a run of entries left to right between the current head and
+	 * tail, and adds up each link's width from the level below.
+	 *
+	 * @param level The entries of one level, in order
+	 * @param count The number of entries in use
+	 */
+	private void linkLevel(SkipListEntry<Type>[] level, int count) {
+		SkipListEntry<Type> p = head;
+		for (int i = 0; i < count; i++) {
+			p.right = level[i];
+			level[i].left = p;
+			p.width = span(p);
+			p = level[i];
+		}
+		p.right = tail;
+		tail.left = p;
+		p.width = span(p);
+	}
+	
+	/**
+	 * Counts the lowest-level steps an entry's right link skips over, from
+	 * the widths of the level below.
+	 *
+	 * @param p The entry
+	 * @return The width of its right link
+	 */
+	private int span(SkipListEntry<Type> p) {
+		if (p.down == null) {
+			return 1;
+		}
+		int width = 0;
+		for (SkipListEntry<Type> q = p.down; q != p.right.down; q = q.right) {
+			width += q.width;
+		}
+		return width;
+	}
+	
+	/**
+	 * Changes the width of the link that jumps over a spot on every level
+	 * above p's.  Scanning left from p to the first entry with one above it
+	 * finds that link's start on the next level up, the same climb insert
+	 * uses to build a tower.
+	 *
+	 * @param p The entry just before the spot on the highest level that changed
+	 * @param change The number of entries added at the spot, or removed if negative
+	 */
+	private void widen(SkipListEntry<Type> p, int change) {
+		while (true) {
+			while (p.up == null && p.left != null) {
+				p = p.left;
+			}
+			if (p.up == null) {
+				return; //reached the head of the top level
+			}
+			p = p.up;
+			p.width += change;
+		}
+	}
+	
+	/* (non-Javadoc)
+	 * @see main.OrderStatisticSet#rank(java.lang.Object)
+	 */
+	
+	public int rank(Type key) {
+		SkipListEntry<Type> p = head;
+		Type folded = fold(key);
+		int position = 0;
+		while (true) {
+			while (p.right.key != SkipListEntry.posInf && comparator.compare(p.right.folded, folded) < 0) {
+				position += p.width;
+				p = p.right;
+			}
+			if (p.down == null) {
+				return position; //p is the last key below, and its position counts the keys up to it
+			}
+			p = p.down;
+		}
+	}
+	
+	/* (non-Javadoc)
+	 * @see main.OrderStatisticSet#select(int)
+	 */
+	
+	public Type select(int k) {
+		if (k < 0 || k >= size) {
+			throw new IndexOutOfBoundsException("No key at position " + k + " of " + size);
+		}
+		SkipListEntry<Type> p = head;
+		int position = 0;
+		while (true) {
+			while (p.right.key != SkipListEntry.posInf && position + p.width <= k + 1) {
+				position += p.width;
+				p = p.right;
+			}
+			if (p.down == null) {
+				return p.key;
+			}
+			p = p.down;
+		}
 	}
 	
 	
@@ -194,33 +515,133 @@ public class SkipList<Type> implements DynamicSet<Type> {
 	 */
 	
 	public void delete(Type key) {
-		@SuppressWarnings("unchecked")
-		SkipListEntry<Type> p = (SkipListEntry<Type>) search(key);
+		Type folded = fold(key);
+		SkipListEntry<Type> p = find(folded);
 		
-		if (p.key.compareToIgnoreCase((String) key) != 0 ){
+		if (p.key == SkipListEntry.negInf || comparator.compare(p.folded, folded) != 0 ){
 			return;
 		}
+		unlink(p);
+	}
+	
+	/**
+	 * Takes an entry out of every level of its tower.
+	 *
+	 * @param p The entry on the lowest level
+	 */
+	private void unlink(SkipListEntry<Type> p) {
+		if (finger == p) {
+			finger = p.left;
+		}
+		SkipListEntry<Type> top = p;
 		while (p != null) {
+			p.left.width += p.width - 1;
 			p.left.right = p.right;
 			p.right.left = p.left;
 			//travel up the tower if can
+			top = p;
 			p = p.up;
 		}
+		widen(top.left, -1);
 		size--;
 	}
 	
 	
+	/* (non-Javadoc)
+	 * @see main.DynamicMap#get(java.lang.Object)
+	 */
+	
+	public Object get(Type key) {
+		Type folded = fold(key);
+		SkipListEntry<Type> p = floorNode(folded);
+		if (p == null || comparator.compare(p.folded, folded) != 0) {
+			return null;
+		}
+		return p.element;
+	}
+	
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicMap#remove(java.lang.Object)
+	 */
+	
+	public Object remove(Type key) {
+		Type folded = fold(key);
+		SkipListEntry<Type> p = floorNode(folded);
+		if (p == null || comparator.compare(p.folded, folded) != 0) {
+			return null;
+		}
+		unlink(p);
+		return p.element;
+	}
+	
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicMap#floorEntry(java.lang.Object)
+	 */
+	
+	public Map.Entry<Type, Object> floorEntry(Type key) {
+		return entry(floorNode(fold(key)));
+	}
+	
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicMap#ceilingEntry(java.lang.Object)
+	 */
+	
+	public Map.Entry<Type, Object> ceilingEntry(Type key) {
+		SkipListEntry<Type> p = ceilingNode(fold(key));
+		return entry((p.key == SkipListEntry.posInf) ? null : p);
+	}
+	
+	/**
+	 * Finds the entry on the lowest level with the largest key that is at
+	 * most the key.
+	 *
+	 * @param folded The folded key
+	 * @return The entry, or null if every key is larger
+	 */
+	private SkipListEntry<Type> floorNode(Type folded) {
+		SkipListEntry<Type> p = find(folded);
+		return (p.key == SkipListEntry.negInf) ? null : p;
+	}
+	
+	/**
+	 * Pairs the key of an entry with its value.
+	 *
+	 * @param p The entry, or null
+	 * @return The key and value, or null if p is null
+	 */
+	private Map.Entry<Type, Object> entry(SkipListEntry<Type> p) {
+		if (p == null) {
+			return null;
+		}
+		return new AbstractMap.SimpleImmutableEntry<Type, Object>(p.key, p.element);
+	}
+	
+	
 	/* (non-Javadoc)
 	 * @see main.DynamicSet#search(java.lang.Object)
 	 */
 	
 	public Object search(Type key) {
+	    return find(fold(key));
+	}
+	
+	/**
+	 * Finds the entry on the lowest level with the largest key that is at
+	 * most a folded key, or the -oo sentinel if every key is larger.
+	 *
+	 * @param folded The folded key
+	 * @return The entry
+	 */
+	private SkipListEntry<Type> find(Type folded) {
 	    SkipListEntry<Type> p;
 	    
 	    /* -----------------
-		Start at "head"
+		Start at "head", or near the finger
 		--------------se--- */
-	    p = head;
+	    p = fingerSearch ? climb(folded) : head;
 	
 	    while (true){
 	       /* --------------------------------------------
@@ -235,7 +656,7 @@ public class SkipList<Type> implements DynamicSet<Type> {
 			p.right.key = 40
 		   -------------------------------------------- */
 	    	while ( p.right.key != SkipListEntry.posInf && 
-				p.right.key.compareToIgnoreCase((String) key) <= 0 ){
+				comparator.compare(p.right.folded, folded) <= 0 ){
 		        p = p.right;
 	    	}
 	
@@ -248,9 +669,40 @@ public class SkipList<Type> implements DynamicSet<Type> {
 	       else
 		   break;	// We reached the LOWEST level... Exit...
 	    }
+	    if (fingerSearch) {
+	    	finger = p; //only a finger search moves the finger, so a plain search changes nothing
+	    }
 	    return p;	// p.key <= k
 	}
 	
+	/**
+	 * Climbs from the finger to where a search for the key can go down
+	 * from.  The climb moves toward the key on the lowest level, going up a
+	 * level whenever the entry it is on has one above it, until the next
+	 * entry on its level would overshoot the key; from there the usual
+	 * right-and-down search finishes the job.
+	 *
+	 * @param folded The folded key
+	 * @return An entry whose key is at most the key, or a -oo sentinel
+	 */
+	private SkipListEntry<Type> climb(Type folded) {
+		SkipListEntry<Type> p = finger;
+		if (p == null) {
+			return head;
+		}
+		if (p.key == SkipListEntry.negInf || comparator.compare(p.folded, folded) <= 0) {
+			while (p.right.key != SkipListEntry.posInf && comparator.compare(p.right.folded, folded) <= 0) {
+				p = (p.up != null) ? p.up : p.right;
+			}
+		}
+		else {
+			while (p.key != SkipListEntry.negInf && comparator.compare(p.folded, folded) > 0) {
+				p = (p.up != null) ? p.up : p.left;
+			}
+		}
+		return p;
+	}
+	
 	//go all the way down to the bottom level
 	/* (non-Javadoc)
 	 * @see main.DynamicSet#minimum()
@@ -304,8 +756,7 @@ public class SkipList<Type> implements DynamicSet<Type> {
 	 */
 	
 	public Object successor(Type key) {
-		@SuppressWarnings("unchecked")
-		SkipListEntry<Type> node = (SkipListEntry<Type>) search(key);
+		SkipListEntry<Type> node = find(fold(key));
 		return node.right;	
 	}
 	
@@ -315,9 +766,177 @@ public class SkipList<Type> implements DynamicSet<Type> {
 	 */
 	
 	public Object predecessor(Type key) {
-		@SuppressWarnings("unchecked")
-		SkipListEntry<Type> node = (SkipListEntry<Type>) search(key);
+		SkipListEntry<Type> node = find(fold(key));
 		return node.left;
 	}
+	
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#cursor(java.lang.Object, java.lang.Object)
+	 */
+	
+	public Cursor<Type> cursor(Type fromKey, Type toKey) {
+		LevelCursor cursor = new LevelCursor();
+		cursor.reset(fromKey, toKey);
+		return cursor;
+	}
+	
+	/**
+	 * Opens a spliterator that splits at a tower instead of counting along
+	 * the lowest level.  A split goes down the levels toward the middle
+	 * position, using the widths, and stops at the first level with a tower
+	 * between a quarter and half of the way along what is left, so the split
+	 * lands on the tallest such tower and costs one search.  The widths also
+	 * give both halves their exact size.
+	 *
+	 * @see main.DynamicSet#spliterator()
+	 */
+	public Spliterator<Type> spliterator() {
+		return new LevelSpliterator(ceilingNode(null), 1, size + 1);
+	}
+	
+	/**
+	 * Finds the entry on the lowest level with the smallest key that is at
+	 * least the key.
+	 *
+	 * @param folded The folded key, or null for the minimum
+	 * @return The entry, or the +oo sentinel if every key is smaller
+	 */
+	private SkipListEntry<Type> ceilingNode(Type folded) {
+		SkipListEntry<Type> p = head;
+		while (true) {
+			while (folded != null && p.right.key != SkipListEntry.posInf && 
+					comparator.compare(p.right.folded, folded) < 0) {
+				p = p.right;
+			}
+			if (p.down != null) {
+				p = p.down;
+			}
+			else {
+				return p.right;
+			}
+		}
+	}
+	
+	/**
+	 * Walks the lowest level from one position up to another.  Positions
+	 * count from 1, as the widths do, so the head sits at 0.
+	 */
+	private class LevelSpliterator extends KeySpliterator<Type> {
+		
+		/** The entry on the lowest level at the next position. */
+		private SkipListEntry<Type> next;
+		
+		/** The position of the next entry. */
+		private int index;
+		
+		/** The position to stop before. */
+		private final int fence;
+		
+		/**
+		 * Instantiates a new level spliterator.
+		 *
+		 * @param next The entry at the first position
+		 * @param index The first position
+		 * @param fence The position to stop before
+		 */
+		private LevelSpliterator(SkipListEntry<Type> next, int index, int fence) {
+			super(SkipList.this.order);
+			this.next = next;
+			this.index = index;
+			this.fence = fence;
+		}
+		
+		public boolean tryAdvance(Consumer<? super Type> action) {
+			if (index >= fence) {
+				return false;
+			}
+			SkipListEntry<Type> p = next;
+			next = p.right;
+			index++;
+			action.accept(p.key);
+			return true;
+		}
+		
+		public void forEachRemaining(Consumer<? super Type> action) {
+			SkipListEntry<Type> p = next;
+			for (; index < fence; index++) {
+				action.accept(p.key);
+				p = p.right;
+			}
+			next = p;
+		}
+		
+		public Spliterator<Type> trySplit() {
+			int low = index;
+			int mid = (low + fence) >>> 1;
+			if (low >= mid) {
+				return null;
+			}
+			int quarter = low + (mid - low) / 2;
+			SkipListEntry<Type> p = head;
+			int position = 0;
+			while (true) {
+				while (p.right.key != SkipListEntry.posInf && position + p.width <= mid) {
+					position += p.width;
+					p = p.right;
+				}
+				if (position > quarter) {
+					break; //on the lowest level the widths are 1, so position is mid by then
+				}
+				p = p.down;
+			}
+			while (p.down != null) {
+				p = p.down;
+			}
+			SkipListEntry<Type> first = next;
+			next = p;
+			index = position;
+			return new LevelSpliterator(first, low, position);
+		}
+		
+		public long estimateSize() {
+			return fence - index;
+		}
+	}
+	
+	/**
+	 * Walks the lowest level of the list.
+	 */
+	private class LevelCursor implements Cursor<Type> {
+		
+		/** The entry the cursor is on. */
+		private SkipListEntry<Type> current = null;
+		
+		/** The entry the cursor moves to next. */
+		private SkipListEntry<Type> next = null;
+		
+		/** The folded key to stop before. */
+		private Type toKey = null;
+		
+		public boolean next() {
+			if (next.key == SkipListEntry.posInf || 
+					(toKey != null && comparator.compare(next.folded, toKey) >= 0)) {
+				current = null;
+				return false;
+			}
+			current = next;
+			next = current.right;
+			return true;
+		}
+		
+		public Type key() {
+			if (current == null) {
+				throw new NoSuchElementException();
+			}
+			return current.key;
+		}
+		
+		public void reset(Type fromKey, Type toKey) {
+			this.toKey = fold(toKey);
+			current = null;
+			next = ceilingNode(fold(fromKey));
+		}
+	}
 
 } 
\ No newline at end of file
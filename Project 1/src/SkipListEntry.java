@@ -10,8 +10,17 @@
 public class SkipListEntry<Type>{
   
   /** The key. */
-  public String key;
+  public Type key;
+
+  /** The key in the form the list compares, the key itself unless the list folds. */
+  public Type folded;
   
+  /** The element stored under the key; only kept on the lowest level. */
+  public Object element;
+
+  /** The number of lowest-level steps the right link skips over; 1 on the lowest level. */
+  public int width = 1;
+
   /** The pos. */
   public int pos;      // I added this to print the skiplist "nicely"
 
@@ -19,27 +28,63 @@ public class SkipListEntry<Type>{
   public SkipListEntry<Type> up, down, left, right;
 
   /** The neg inf. */
-  public static String negInf = new String("-oo");  // -inf key value
+  public static final Object negInf = new String("-oo");  // -inf key value
   
   /** The pos inf. */
-  public static String posInf = new String("+oo");  // +inf key value
+  public static final Object posInf = new String("+oo");  // +inf key value
 
   /**
    * Instantiates a new skip list entry.
    *
    * @param k the k
    */
-  public SkipListEntry(String k){ 
+  public SkipListEntry(Type k){ 
+     this(k, k);
+  }
+
+  /**
+   * Instantiates a new skip list entry that keeps the folded form of its key.
+   *
+   * @param k the k
+   * @param f the key in the form the list compares
+   */
+  public SkipListEntry(Type k, Type f){ 
      key = k;
+     folded = f;
      up = down = left = right = null;
   }
 
+  /**
+   * Instantiates a new sentinel entry.
+   *
+   * @param <Type> the generic type
+   * @param inf Either negInf or posInf
+   * @return The sentinel entry
+   */
+  @SuppressWarnings("unchecked")
+  public static <Type> SkipListEntry<Type> sentinel(Object inf){ 
+     return new SkipListEntry<Type>((Type) inf);
+  }
+
+  /**
+   * Makes an array of entries.  Java cannot make an array of a generic type
+   * directly, so this makes one of unknown type and casts it once here.
+   *
+   * @param <Type> the generic type
+   * @param length The length of the array
+   * @return The array, filled with null
+   */
+  @SuppressWarnings("unchecked")
+  public static <Type> SkipListEntry<Type>[] newArray(int length){ 
+     return (SkipListEntry<Type>[]) new SkipListEntry<?>[length];
+  }
+
   /**
    * Gets the key.
    *
    * @return the key
    */
-  public String getKey(){ 
+  public Type getKey(){ 
 	  return key; 
   }
 
@@ -47,6 +92,6 @@ public class SkipListEntry<Type>{
    * @see java.lang.Object#toString()
    */
   public String toString() {
-    return key;
+    return String.valueOf(key);
   }
 }
\ No newline at end of file
@@ -0,0 +1,654 @@
+
+
+/*
+ * Copyright (c) 2013, Erika Nana
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Project 1 nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY Erika Nana ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL Erika Nana BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable sorted set of strings stored in a file and read through a
+ * memory mapping, so opening it takes the same few milliseconds no matter
+ * how many keys it holds, and the keys stay off the heap.
+ *
+ * The file is a header, a run of blocks, and a block index:
+ * <pre>
+ * header:  magic, key count, keys per block, block count, longest key, index offset
+ * block:   entries of (shared prefix length, suffix length, suffix bytes);
+ *          keys are UTF-8 and each one shares a prefix with the key before
+ *          it, except the first key of a block, which is stored whole
+ * index:   the file offset of every block, as a long
+ * </pre>
+ * A lookup binary searches the first keys of the blocks straight out of the
+ * mapping, then decodes at most one block.  Keys are kept in code point
+ * order, which is the order of their UTF-8 bytes.
+ *
+ * @author Erika Nana
+ */
+public class SortedStringTable implements DynamicSet<String> {
+	
+	/** Marks the start of a table file. */
+	public static final int MAGIC = 0x53535431; // "SST1"
+	
+	/** The number of keys per block used when none is given. */
+	public static final int DEFAULT_BLOCK_SIZE = 16;
+	
+	/** The size of the header in bytes. */
+	private static final int HEADER_SIZE = 28;
+	
+	/** The mapped file. */
+	private final MappedByteBuffer map;
+	
+	/** The number of keys. */
+	private final int size;
+	
+	/** The number of keys per block; only the last block may hold fewer. */
+	private final int blockSize;
+	
+	/** The number of blocks. */
+	private final int blockCount;
+	
+	/** The length in bytes of the longest key. */
+	private final int maxKeyLength;
+	
+	/** Where the block index starts. */
+	private final int indexOffset;
+	
+	/**
+	 * Opens a table file.
+	 *
+	 * @param file The file written by write
+	 * @throws IOException if the file cannot be read or is not a table
+	 */
+	public SortedStringTable(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("Tables larger than 2 GB are not supported: " + file);
+			}
+			map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		finally {
+			raf.close(); //the mapping stays valid after the channel is closed
+		}
+		if (map.capacity() < HEADER_SIZE || map.getInt(0) != MAGIC) {
+			throw new IOException("Not a sorted string table: " + file);
+		}
+		size = map.getInt(4);
+		blockSize = map.getInt(8);
+		blockCount = map.getInt(12);
+		maxKeyLength = map.getInt(16);
+		indexOffset = (int) map.getLong(20);
+	}
+	
+	/**
+	 * Builds a table from a word file with one word per line, then reports
+	 * how long it takes to open it again.
+	 *
+	 * @param args The word file to read and the table file to write
+	 * @throws IOException if either file fails
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			System.out.println("Usage: java SortedStringTable <words.txt> <table.sst>");
+			return;
+		}
+		String[] words = WordFileLoader.readWords(new File(args[0]), true);
+		DynamicSet<String> set = new BPlusTree<String>(BPlusTree.DEFAULT_ORDER, Utils.CODE_POINT_ORDER);
+		set.bulkLoad(words, false);
+		write(set, new File(args[1]));
+		
+		long start = System.nanoTime();
+		SortedStringTable table = new SortedStringTable(new File(args[1]));
+		System.out.printf("Opened %d keys in %.2f ms, from %s to %s\n", table.size(),
+				(System.nanoTime() - start) / 1e6, table.minimum(), table.maximum());
+	}
+	
+	/**
+	 * Writes the keys of a set to a table file with the default block size.
+	 *
+	 * @param set The set; its keys must be in code point order
+	 * @param file The file to write
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void write(DynamicSet<String> set, File file) throws IOException {
+		write(set, file, DEFAULT_BLOCK_SIZE);
+	}
+	
+	/**
+	 * Writes the keys of a set to a table file.
+	 *
+	 * @param set The set; its keys must be in code point order
+	 * @param file The file to write
+	 * @param blockSize The number of keys per block; bigger blocks make the
+	 *        file smaller and lookups decode more keys
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void write(DynamicSet<String> set, File file, int blockSize) throws IOException {
+		if (blockSize < 1) {
+			throw new IllegalArgumentException("The block size must be at least 1");
+		}
+		long[] offsets = new long[16];
+		int blocks = 0;
+		int count = 0;
+		int maxLength = 0;
+		byte[] previous = new byte[0];
+		long position = HEADER_SIZE;
+		
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+		try {
+			out.write(new byte[HEADER_SIZE]); //filled in once the counts are known
+			Cursor<String> cursor = set.cursor(null, null);
+			while (cursor.next()) {
+				byte[] key = cursor.key().getBytes(StandardCharsets.UTF_8);
+				if (count > 0 && compare(previous, previous.length, key, key.length) >= 0) {
+					throw new IllegalArgumentException("The keys are not in increasing code point order at " + cursor.key());
+				}
+				int shared = 0;
+				if (count % blockSize == 0) {
+					if (blocks == offsets.length) {
+						offsets = Arrays.copyOf(offsets, blocks * 2);
+					}
+					offsets[blocks++] = position;
+				}
+				else {
+					int limit = Math.min(previous.length, key.length);
+					while (shared < limit && previous[shared] == key[shared]) {
+						shared++;
+					}
+				}
+				position += writeVarint(out, shared);
+				position += writeVarint(out, key.length - shared);
+				out.write(key, shared, key.length - shared);
+				position += key.length - shared;
+				
+				maxLength = Math.max(maxLength, key.length);
+				previous = key;
+				count++;
+			}
+			for (int i = 0; i < blocks; i++) {
+				out.writeLong(offsets[i]);
+			}
+		}
+		finally {
+			out.close();
+		}
+		
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.writeInt(MAGIC);
+			raf.writeInt(count);
+			raf.writeInt(blockSize);
+			raf.writeInt(blocks);
+			raf.writeInt(maxLength);
+			raf.writeLong(position);
+		}
+		finally {
+			raf.close();
+		}
+	}
+	
+	/**
+	 * Writes an unsigned variable-length int, seven bits per byte.
+	 *
+	 * @param out The stream
+	 * @param value The value
+	 * @return The number of bytes written
+	 * @throws IOException if the stream fails
+	 */
+	private static int writeVarint(OutputStream out, int value) throws IOException {
+		int written = 1;
+		while ((value & ~0x7F) != 0) {
+			out.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+			written++;
+		}
+		out.write(value);
+		return written;
+	}
+	
+	/**
+	 * Compares two byte strings as unsigned bytes.
+	 *
+	 * @param a The first bytes
+	 * @param aLength The length of the first
+	 * @param b The second bytes
+	 * @param bLength The length of the second
+	 * @return Negative, zero or positive as a is less than, equal to or greater than b
+	 */
+	private static int compare(byte[] a, int aLength, byte[] b, int bLength) {
+		int limit = Math.min(aLength, bLength);
+		for (int i = 0; i < limit; i++) {
+			int x = a[i] & 0xFF;
+			int y = b[i] & 0xFF;
+			if (x != y) {
+				return x - y;
+			}
+		}
+		return aLength - bLength;
+	}
+	
+	/**
+	 * Compares the first key of a block, in place in the mapping, with a key.
+	 *
+	 * @param block The block
+	 * @param key The UTF-8 bytes of the key
+	 * @return Negative, zero or positive as the block's first key is less than, equal to or greater than key
+	 */
+	private int compareFirstKey(int block, byte[] key) {
+		int pos = blockOffset(block) + 1; //the shared length of a first key is always a one-byte 0
+		int length = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = map.get(pos++);
+			length |= (b & 0x7F) << shift;
+			shift += 7;
+		} while (b < 0);
+		
+		int limit = Math.min(length, key.length);
+		for (int i = 0; i < limit; i++) {
+			int x = map.get(pos + i) & 0xFF;
+			int y = key[i] & 0xFF;
+			if (x != y) {
+				return x - y;
+			}
+		}
+		return length - key.length;
+	}
+	
+	/**
+	 * Gets where a block starts.
+	 *
+	 * @param block The block
+	 * @return The offset of the block in the file
+	 */
+	private int blockOffset(int block) {
+		return (int) map.getLong(indexOffset + 8 * block);
+	}
+	
+	/**
+	 * Finds the last block whose first key is at most the key.
+	 *
+	 * @param key The UTF-8 bytes of the key
+	 * @return The block, or -1 if the key is smaller than every key in the table
+	 */
+	private int findBlock(byte[] key) {
+		int low = 0;
+		int high = blockCount - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if (compareFirstKey(mid, key) <= 0) {
+				low = mid + 1;
+			}
+			else {
+				high = mid - 1;
+			}
+		}
+		return high;
+	}
+	
+	/**
+	 * Positions a reader on the key, if the table holds it.
+	 *
+	 * @param reader The reader
+	 * @param key The key
+	 * @param previous If not null, receives the key before it within the block
+	 * @return True, if the key was found
+	 */
+	private boolean seek(Reader reader, String key, Reader previous) {
+		byte[] probe = key.getBytes(StandardCharsets.UTF_8);
+		int block = findBlock(probe);
+		if (block < 0) {
+			return false;
+		}
+		reader.seekBlock(block);
+		while (reader.next()) {
+			int compare = reader.compareTo(probe);
+			if (compare == 0) {
+				return true;
+			}
+			if (compare > 0) {
+				return false;
+			}
+			if (previous != null) {
+				previous.copy(reader);
+			}
+		}
+		return false;
+	}
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#size()
+	 */
+	
+	public int size() {
+		return size;
+	}
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#getComparator()
+	 */
+	
+	public Comparator<? super String> getComparator() {
+		return Utils.CODE_POINT_ORDER;
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#insert(java.lang.Object, java.lang.Object)
+	 */
+	
+	public void insert(String key, Object e) {
+		throw new UnsupportedOperationException("A sorted string table is read-only");
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#bulkLoad(java.lang.Object[], boolean)
+	 */
+	
+	public void bulkLoad(String[] keys, boolean presorted) {
+		throw new UnsupportedOperationException("A sorted string table is read-only");
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#delete(java.lang.Object)
+	 */
+	
+	public void delete(String key) {
+		throw new UnsupportedOperationException("A sorted string table is read-only");
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#search(java.lang.Object)
+	 */
+	
+	public Object search(String key) {
+		Reader reader = new Reader();
+		return seek(reader, key, null) ? reader.key() : null;
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#minimum()
+	 */
+	
+	public Object minimum() {
+		if (size == 0) {
+			return null;
+		}
+		Reader reader = new Reader();
+		reader.seekBlock(0);
+		reader.next();
+		return reader.key();
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#maximum()
+	 */
+	
+	public Object maximum() {
+		if (size == 0) {
+			return null;
+		}
+		Reader reader = new Reader();
+		reader.seekBlock(blockCount - 1);
+		while (reader.left > 0) {
+			reader.next();
+		}
+		return reader.key();
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#successor(java.lang.Object)
+	 */
+	
+	public Object successor(String key) {
+		Reader reader = new Reader();
+		if (!seek(reader, key, null)) {
+			return null;
+		}
+		return reader.next() ? reader.key() : null;
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#predecessor(java.lang.Object)
+	 */
+	
+	public Object predecessor(String key) {
+		Reader reader = new Reader();
+		Reader previous = new Reader();
+		if (!seek(reader, key, previous)) {
+			return null;
+		}
+		if (previous.length >= 0) {
+			return previous.key();
+		}
+		if (reader.block == 0) {
+			return null;
+		}
+		//the key opens its block, so the answer is the last key of the block before
+		reader.seekBlock(reader.block - 1);
+		while (reader.left > 0) {
+			reader.next();
+		}
+		return reader.key();
+	}
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#cursor(java.lang.Object, java.lang.Object)
+	 *
+	 * Keys are decoded from the mapping, so key() returns a new String each
+	 * time it is called; moving the cursor itself allocates nothing.
+	 */
+	
+	public Cursor<String> cursor(String fromKey, String toKey) {
+		TableCursor cursor = new TableCursor();
+		cursor.reset(fromKey, toKey);
+		return cursor;
+	}
+	
+	/**
+	 * Decodes the keys of the table one after another, rebuilding each key
+	 * from the shared prefix of the key before it.
+	 */
+	private class Reader {
+		
+		/** The bytes of the current key. */
+		private byte[] bytes = new byte[maxKeyLength];
+		
+		/** The length of the current key, or -1 before the first key. */
+		private int length = -1;
+		
+		/** Where the next entry starts. */
+		private int position;
+		
+		/** The block being read. */
+		private int block;
+		
+		/** The number of entries left in the block. */
+		private int left = 0;
+		
+		/**
+		 * Moves to just before the first key of a block.
+		 *
+		 * @param block The block
+		 */
+		void seekBlock(int block) {
+			this.block = block;
+			position = blockOffset(block);
+			left = (block == blockCount - 1) ? size - block * blockSize : blockSize;
+			length = -1;
+		}
+		
+		/**
+		 * Moves to the next key, crossing into the next block if needed.
+		 *
+		 * @return True, if there was another key
+		 */
+		boolean next() {
+			if (left == 0) {
+				if (block + 1 >= blockCount) {
+					return false;
+				}
+				seekBlock(block + 1);
+			}
+			int shared = readVarint();
+			int suffix = readVarint();
+			for (int i = 0; i < suffix; i++) {
+				bytes[shared + i] = map.get(position + i);
+			}
+			position += suffix;
+			length = shared + suffix;
+			left--;
+			return true;
+		}
+		
+		/**
+		 * Reads an unsigned variable-length int at the current position.
+		 *
+		 * @return The value
+		 */
+		private int readVarint() {
+			int value = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = map.get(position++);
+				value |= (b & 0x7F) << shift;
+				shift += 7;
+			} while (b < 0);
+			return value;
+		}
+		
+		/**
+		 * Compares the current key with a key.
+		 *
+		 * @param key The UTF-8 bytes of the key
+		 * @return Negative, zero or positive as the current key is less than, equal to or greater than key
+		 */
+		int compareTo(byte[] key) {
+			return compare(bytes, length, key, key.length);
+		}
+		
+		/**
+		 * Copies the position and current key of another reader.
+		 *
+		 * @param other The reader to copy
+		 */
+		void copy(Reader other) {
+			System.arraycopy(other.bytes, 0, bytes, 0, other.length);
+			length = other.length;
+			position = other.position;
+			block = other.block;
+			left = other.left;
+		}
+		
+		/**
+		 * Decodes the current key.
+		 *
+		 * @return The key
+		 */
+		String key() {
+			return new String(bytes, 0, length, StandardCharsets.UTF_8);
+		}
+	}
+	
+	/**
+	 * Walks the keys of the table in order over a range.
+	 */
+	private class TableCursor implements Cursor<String> {
+		
+		/** Decodes the keys. */
+		private final Reader reader = new Reader();
+		
+		/** Set when the reader already sits on the first key of the range. */
+		private boolean pending = false;
+		
+		/** Set while the cursor is on a key. */
+		private boolean onKey = false;
+		
+		/** The UTF-8 bytes of the key to stop before, or null. */
+		private byte[] toKey = null;
+		
+		public boolean next() {
+			onKey = false;
+			if (pending) {
+				pending = false;
+			}
+			else if (!reader.next()) {
+				return false;
+			}
+			if (toKey != null && reader.compareTo(toKey) >= 0) {
+				reader.left = 0;
+				reader.block = blockCount; //stay at the end
+				return false;
+			}
+			onKey = true;
+			return true;
+		}
+		
+		public String key() {
+			if (!onKey) {
+				throw new NoSuchElementException();
+			}
+			return reader.key();
+		}
+		
+		public void reset(String fromKey, String toKey) {
+			this.toKey = (toKey == null) ? null : toKey.getBytes(StandardCharsets.UTF_8);
+			onKey = false;
+			pending = false;
+			if (size == 0) {
+				reader.left = 0;
+				reader.block = blockCount;
+				return;
+			}
+			if (fromKey == null) {
+				reader.seekBlock(0);
+				return;
+			}
+			byte[] probe = fromKey.getBytes(StandardCharsets.UTF_8);
+			reader.seekBlock(Math.max(0, findBlock(probe)));
+			while (reader.next()) {
+				if (reader.compareTo(probe) >= 0) {
+					pending = true;
+					return;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,468 @@
+
+
+/*
+ * Copyright (c) 2013, Erika Nana
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Project 1 nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY Erika Nana ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL Erika Nana BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+import java.util.Comparator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Shares a BTree between threads with a StampedLock.  Insert, delete and
+ * bulkLoad take the write lock.  Reads first walk the tree with no lock at
+ * all and then check that no write began meanwhile; only if one did do they
+ * walk it again under the read lock.  With mostly-read traffic, readers
+ * never write to shared memory and so scale across cores.
+ *
+ * A walk that races a write can see the tree half changed: it may meet a
+ * null where a node should be, or follow pointers in a circle.  So the
+ * optimistic walks here are written over the BTree's nodes with a limit on
+ * their steps, and any failure just sends the read to the lock.
+ *
+ * Results match BTree's: nodes, null for a key that is not there, and an
+ * empty node when there is no successor or predecessor.
+ *
+ * @author Erika Nana
+ * @param <Type> the generic type
+ */
+public class StampedBTree<Type> implements DynamicSet<Type> {
+	
+	/** How many lock-free attempts a read makes before taking the read lock. */
+	private static final int OPTIMISTIC_TRIES = 2;
+	
+	/** Thrown by a lock-free walk that saw the tree in the middle of a write. */
+	private static final RuntimeException TORN = new RuntimeException("torn read", null, false, false) {
+		private static final long serialVersionUID = 1L;
+	};
+	
+	/** The tree being shared. */
+	private final BTree<Type> tree;
+	
+	/** Guards the tree. */
+	private final StampedLock lock = new StampedLock();
+	
+	/** The empty node to return when there is no successor or predecessor. */
+	private final BNode<Type> empty = new BNode<Type>(null);
+	
+	/** Counts writes, so a cursor can tell that the tree changed under it. */
+	private long writes = 0;
+	
+	/**
+	 * Instantiates a new stamped b tree ordered by the keys' natural order.
+	 */
+	public StampedBTree() {
+		this(new BTree<Type>());
+	}
+	
+	/**
+	 * Instantiates a new stamped b tree.
+	 *
+	 * @param comparator The order of the keys, or null for their natural order
+	 */
+	public StampedBTree(Comparator<? super Type> comparator) {
+		this(new BTree<Type>(comparator));
+	}
+	
+	/**
+	 * Shares an existing tree.  The tree must only be used through this
+	 * wrapper from now on.
+	 *
+	 * @param tree The tree
+	 */
+	public StampedBTree(BTree<Type> tree) {
+		this.tree = tree;
+	}
+	
+	/**
+	 * One read of the tree.
+	 */
+	private interface Read {
+		
+		/**
+		 * Reads the tree.
+		 *
+		 * @param limit The most nodes the read may visit before it gives up
+		 * @return The result
+		 */
+		Object read(int limit);
+	}
+	
+	/**
+	 * Runs a read lock-free if no write gets in its way, or else under the
+	 * read lock.
+	 *
+	 * @param read The read
+	 * @return The result
+	 */
+	private Object read(Read read) {
+		for (int i = 0; i < OPTIMISTIC_TRIES; i++) {
+			long stamp = lock.tryOptimisticRead();
+			if (stamp == 0) {
+				continue; //a write holds the lock
+			}
+			try {
+				//a path in a tree of n nodes has at most n of them
+				Object result = read.read(tree.size() + 1);
+				if (lock.validate(stamp)) {
+					return result;
+				}
+			}
+			catch (RuntimeException e) {
+				//a walk torn by a write; the stamp cannot validate
+			}
+		}
+		long stamp = lock.readLock();
+		try {
+			return read.read(Integer.MAX_VALUE);
+		}
+		finally {
+			lock.unlockRead(stamp);
+		}
+	}
+	
+	/**
+	 * Counts a step of a walk.
+	 *
+	 * @param steps The steps taken so far
+	 * @param limit The most steps allowed
+	 * @return The steps taken, plus this one
+	 */
+	private static int step(int steps, int limit) {
+		if (++steps > limit) {
+			throw TORN;
+		}
+		return steps;
+	}
+	
+	/**
+	 * Finds the node holding a key.
+	 *
+	 * @param key The key
+	 * @param limit The most nodes to visit
+	 * @return The node, or null if the key is not in the tree
+	 */
+	private BNode<Type> find(Type key, int limit) {
+		Comparator<? super Type> comparator = tree.getFoldedComparator();
+		Type folded = tree.fold(key);
+		BNode<Type> current = tree.getRoot();
+		int steps = 0;
+		while (current != null) {
+			steps = step(steps, limit);
+			int compare = comparator.compare(folded, current.getFolded());
+			if (compare == 0) {
+				return current;
+			}
+			current = (compare < 0) ? current.getLeftChild() : current.getRightChild();
+		}
+		return null;
+	}
+	
+	/**
+	 * Finds the leftmost or rightmost node of a subtree.
+	 *
+	 * @param node The root of the subtree, or null
+	 * @param left True for the leftmost node
+	 * @param limit The most nodes to visit
+	 * @return The node, or null for an empty subtree
+	 */
+	private BNode<Type> end(BNode<Type> node, boolean left, int limit) {
+		int steps = 0;
+		while (node != null) {
+			steps = step(steps, limit);
+			BNode<Type> next = left ? node.getLeftChild() : node.getRightChild();
+			if (next == null) {
+				return node;
+			}
+			node = next;
+		}
+		return null;
+	}
+	
+	/**
+	 * Finds the node after or before the node holding a key.
+	 *
+	 * @param key The key
+	 * @param after True for the successor, false for the predecessor
+	 * @param limit The most nodes to visit
+	 * @return The node, empty if there is none, or null if the key is not in the tree
+	 */
+	private BNode<Type> neighbor(Type key, boolean after, int limit) {
+		BNode<Type> node = find(key, limit);
+		if (node == null) {
+			return null;
+		}
+		BNode<Type> child = after ? node.getRightChild() : node.getLeftChild();
+		if (child != null) {
+			return end(child, after, limit);
+		}
+		BNode<Type> parent = node.getParent();
+		int steps = 0;
+		while (parent != null && node == (after ? parent.getRightChild() : parent.getLeftChild())) {
+			steps = step(steps, limit);
+			node = parent;
+			parent = parent.getParent();
+		}
+		return (parent == null) ? empty : parent;
+	}
+	
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#size()
+	 */
+	
+	public int size() {
+		long stamp = lock.tryOptimisticRead();
+		int size = tree.size();
+		if (!lock.validate(stamp)) {
+			stamp = lock.readLock();
+			try {
+				size = tree.size();
+			}
+			finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		return size;
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#getComparator()
+	 */
+	
+	public Comparator<? super Type> getComparator() {
+		return tree.getComparator();
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#insert(java.lang.Object, java.lang.Object)
+	 */
+	
+	public void insert(Type key, Object e) {
+		long stamp = lock.writeLock();
+		try {
+			tree.insert(key, e);
+			writes++;
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#bulkLoad(java.lang.Object[], boolean)
+	 */
+	
+	public void bulkLoad(Type[] keys, boolean presorted) {
+		long stamp = lock.writeLock();
+		try {
+			tree.bulkLoad(keys, presorted);
+			writes++;
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#delete(java.lang.Object)
+	 */
+	
+	public void delete(Type key) {
+		long stamp = lock.writeLock();
+		try {
+			if (!tree.isEmpty()) {
+				tree.delete(key);
+				writes++;
+			}
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#search(java.lang.Object)
+	 */
+	
+	public Object search(final Type key) {
+		return read(new Read() {
+			public Object read(int limit) {
+				return find(key, limit);
+			}
+		});
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#minimum()
+	 */
+	
+	public Object minimum() {
+		return read(new Read() {
+			public Object read(int limit) {
+				return end(tree.getRoot(), true, limit);
+			}
+		});
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#maximum()
+	 */
+	
+	public Object maximum() {
+		return read(new Read() {
+			public Object read(int limit) {
+				return end(tree.getRoot(), false, limit);
+			}
+		});
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#successor(java.lang.Object)
+	 */
+	
+	public Object successor(final Type key) {
+		return read(new Read() {
+			public Object read(int limit) {
+				return neighbor(key, true, limit);
+			}
+		});
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#predecessor(java.lang.Object)
+	 */
+	
+	public Object predecessor(final Type key) {
+		return read(new Read() {
+			public Object read(int limit) {
+				return neighbor(key, false, limit);
+			}
+		});
+	}
+
+	/* (non-Javadoc)
+	 * @see main.DynamicSet#cursor(java.lang.Object, java.lang.Object)
+	 *
+	 * Each step takes the read lock.  If the tree was written since the last
+	 * step, the cursor finds its place again from the last key it returned,
+	 * so it never fails, and it sees writes made ahead of it.
+	 */
+	
+	public Cursor<Type> cursor(Type fromKey, Type toKey) {
+		LockedCursor cursor = new LockedCursor();
+		cursor.reset(fromKey, toKey);
+		return cursor;
+	}
+	
+	/**
+	 * Walks the tree under the read lock, one step at a time.
+	 */
+	private class LockedCursor implements Cursor<Type> {
+		
+		/** The cursor over the tree itself. */
+		private Cursor<Type> cursor = null;
+		
+		/** The number of writes the tree cursor has seen. */
+		private long seen;
+		
+		/** The last key returned, or the key to start from before the first. */
+		private Type last = null;
+		
+		/** Set once a key has been returned. */
+		private boolean started = false;
+		
+		/** Set while the cursor is on a key. */
+		private boolean onKey = false;
+		
+		/** The key to stop before. */
+		private Type toKey = null;
+		
+		public boolean next() {
+			long stamp = lock.readLock();
+			try {
+				if (seen != writes) {
+					//the tree changed, so find the place again
+					seen = writes;
+					cursor.reset(last, toKey);
+					if (started) {
+						//only after a write, so folding here costs nothing per step
+						Comparator<? super Type> comparator = tree.getFoldedComparator();
+						Type folded = tree.fold(last);
+						while (cursor.next()) {
+							if (comparator.compare(tree.fold(cursor.key()), folded) > 0) {
+								return moveTo(cursor.key());
+							}
+						}
+						onKey = false;
+						return false;
+					}
+				}
+				if (cursor.next()) {
+					return moveTo(cursor.key());
+				}
+				onKey = false;
+				return false;
+			}
+			finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		
+		/**
+		 * Puts the cursor on a key.
+		 *
+		 * @param key The key
+		 * @return True
+		 */
+		private boolean moveTo(Type key) {
+			last = key;
+			started = true;
+			onKey = true;
+			return true;
+		}
+		
+		public Type key() {
+			if (!onKey) {
+				throw new NoSuchElementException();
+			}
+			return last;
+		}
+		
+		public void reset(Type fromKey, Type toKey) {
+			long stamp = lock.readLock();
+			try {
+				this.toKey = toKey;
+				cursor = tree.cursor(fromKey, toKey);
+				seen = writes;
+				last = fromKey;
+				started = false;
+				onKey = false;
+			}
+			finally {
+				lock.unlockRead(stamp);
+			}
+		}
+	}
+}
@@ -30,12 +30,16 @@
  * 
  * @author Erika Nana
  */
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.Scanner;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class UserDriver {
 	
@@ -51,6 +55,24 @@ public class UserDriver {
 	/** The size. */
 	static int size;
 	
+	/**
+	 * The sets that the single operations work on; reloaded with every file.
+	 * They fold case themselves, so a word matches in any case and comes back
+	 * the way it was first inserted.
+	 */
+	static DynamicSet<String> bst = new BTree<String>(null, Utils.FOLD_CASE);
+	static DynamicSet<String> dll = new DLinkedList<String>(null, Utils.FOLD_CASE);
+	static DynamicSet<String> skip = new SkipList<String>(null, Utils.FOLD_CASE);
+	
+	/** The latencies of the last runtest, by set. */
+	static Map<String, LatencyHistogram[]> lastRun = new LinkedHashMap<String, LatencyHistogram[]>();
+	
+	/** Whether runtest tests the sets at the same time, one thread each. */
+	static boolean parallel = false;
+	
+	/** The sets kept in a directory, if one was given; closed on exit. */
+	static List<DurableDynamicSet<String>> durable = new ArrayList<DurableDynamicSet<String>>();
+	
 	/** Colors for output in the console*/
 	public static final String RESET = "\u001B[0m";
 	public static final String BLACK = "\u001B[30m";
@@ -64,17 +86,26 @@ public class UserDriver {
 	/**
 	 * The user interface.
 	 *
-	 * @param args Not used
+	 * @param args Optionally, a directory to keep the sets in, so that
+	 *        inserts and deletes survive a restart
 	 */
 	@SuppressWarnings("unchecked")
 	public static void main(String[] args) {
 		String key;
-		DynamicSet<String> bst = new BTree<String>();
-		DynamicSet<String> dll = new DLinkedList<String>();
-		DynamicSet<String> skip = new SkipList<String>();
+		boolean recovered = false;
 		
+		if (args.length > 0) {
+			try {
+				recovered = openDurable(new File(args[0]));
+			}
+			catch (IOException e) {
+				System.out.println(RED + "Could not open " + args[0] + ":  " + e.getMessage() + RESET);
+				return;
+			}
+		}
 		while (true) {
-			String loadStatus = loadFile();
+			String loadStatus = recovered ? "continue" : loadFile();
+			recovered = false;
 			if (loadStatus.equals("quit")) {
 				return;
 			}
@@ -84,7 +115,7 @@ public class UserDriver {
 			else {
 				while (true) {
 				System.out.println(PURPLE + "\nWhat would you like to do?");
-				System.out.println(PURPLE + "Options available:  runtest, insert, search, delete, pred, " +
+				System.out.println(PURPLE + "Options available:  runtest, parallel, csv, insert, search, delete, pred, " +
 								  "succ, min, max, loadNew, quit" + RESET);
 				
 				String choice = inputReader.nextLine();
@@ -154,6 +185,24 @@ public class UserDriver {
 					case runtest:
 						runTest();
 						break;
+					case parallel:
+						parallel = !parallel;
+						System.out.println(GREEN + "runtest now tests the sets " + (parallel ? "in parallel, one thread each." : "one after another.") + RESET);
+						break;
+					case csv:
+						if (lastRun.isEmpty()) {
+							System.out.println(RED + "Run runtest first!");
+							break;
+						}
+						System.out.println(BLUE + "Please type in the file to write the latencies to:  " + RESET);
+						try {
+							Utils.writeCsv(lastRun, new File(inputReader.nextLine()));
+							System.out.println(GREEN + "Wrote the latency distributions." + RESET);
+						}
+						catch (FileNotFoundException e) {
+							System.out.println(RED + "Could not write the file.");
+						}
+						break;
 					case search:
 						System.out.println(BLUE + "Please type in the key:  " + RESET);
 						key = inputReader.nextLine();
@@ -210,27 +259,118 @@ public class UserDriver {
 	 * Prints out the table of results
 	 */
 	public static void runTest() {
+		lastRun.clear();
+		Map<String, DynamicSet<String>> sets = new LinkedHashMap<String, DynamicSet<String>>();
+		sets.put("Linked List", new DLinkedList<String>(null, Utils.FOLD_CASE));
+		sets.put("Skip List", new SkipList<String>(null, Utils.FOLD_CASE));
+		sets.put("Array Skip", new ArraySkipList<String>());
+		sets.put("Arena Skip", new ArenaSkipList());
+		sets.put("Binary Tree", new BTree<String>(null, Utils.FOLD_CASE));
+		sets.put("Red-Black Tree", new RBTree<String>());
+		sets.put("B+ Tree", new BPlusTree<String>());
+		sets.put("Radix Tree", new RadixTree());
 		
-		DynamicSet<String> set = new DLinkedList<String>();
-		System.out.printf("size:  %-7d\n", size);
-		Utils.printDivider();
-		System.out.println("               | Insert                     " +
-				"| Search                     " +
-				"| Predecessor                " +
-				"| Successor                  " +
-				"| Minimum  " +
-				"| Maximum  |");
-		Utils.printDivider();
-		System.out.print("Linked List    | ");
-		Utils.printRow(set, array, randomValues);
-		
-		set = new SkipList<String>();
-		System.out.print("Skip List      | ");
-		Utils.printRow(set, array, randomValues);
+		System.out.printf("size:  %-7d  latencies in ns, %s%s\n", size, parallel ? "parallel" : "serial",
+				parallel ? "; retained heap is only measured serially" : "");
+		Utils.printHeader();
+		if (!parallel) {
+			for (Map.Entry<String, DynamicSet<String>> entry : sets.entrySet()) {
+				LatencyHistogram[] row = Utils.testRow(entry.getValue(), array, randomValues, true);
+				Utils.printRow(entry.getKey(), row);
+				lastRun.put(entry.getKey(), row);
+			}
+			return;
+		}
 		
-		set = new BTree<String>();
-		System.out.print("Binary Tree    | ");
-		Utils.printRow(set, array, randomValues);
+		//one worker per set, each with its own copy of the input
+		final Map<String, LatencyHistogram[]> rows = new ConcurrentHashMap<String, LatencyHistogram[]>();
+		List<Thread> workers = new ArrayList<Thread>();
+		for (final Map.Entry<String, DynamicSet<String>> entry : sets.entrySet()) {
+			final String[] input = array.clone();
+			final String[] random = randomValues.clone();
+			workers.add(new Thread(entry.getKey()) {
+				public void run() {
+					rows.put(entry.getKey(), Utils.testRow(entry.getValue(), input, random, false));
+				}
+			});
+		}
+		for (Thread worker : workers) {
+			worker.start();
+		}
+		try {
+			for (Thread worker : workers) {
+				worker.join();
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			System.out.println(RED + "Interrupted while waiting for the tests." + RESET);
+			return;
+		}
+		for (String label : sets.keySet()) {
+			LatencyHistogram[] row = rows.get(label);
+			if (row == null) { //the worker failed and already printed why
+				continue;
+			}
+			Utils.printRow(label, row);
+			lastRun.put(label, row);
+		}
+	}
+	
+	/**
+	 * Keeps the single-operation sets in a directory and recovers whatever
+	 * it already holds, so a session picks up where the last one stopped
+	 * without reloading the word file.
+	 *
+	 * @param directory The directory
+	 * @return True, if keys were recovered and no file needs to be loaded
+	 * @throws IOException if the directory cannot be used
+	 */
+	public static boolean openDurable(File directory) throws IOException {
+		long start = System.nanoTime();
+		DurableDynamicSet<String> durableBst = new DurableDynamicSet<String>(new BTree<String>(null, Utils.FOLD_CASE), new File(directory, "bst"), DurableDynamicSet.STRINGS);
+		DurableDynamicSet<String> durableDll = new DurableDynamicSet<String>(new DLinkedList<String>(null, Utils.FOLD_CASE), new File(directory, "list"), DurableDynamicSet.STRINGS);
+		DurableDynamicSet<String> durableSkip = new DurableDynamicSet<String>(new SkipList<String>(null, Utils.FOLD_CASE), new File(directory, "skip"), DurableDynamicSet.STRINGS);
+		bst = durableBst;
+		dll = durableDll;
+		skip = durableSkip;
+		durable.add(durableBst);
+		durable.add(durableDll);
+		durable.add(durableSkip);
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			public void run() {
+				for (DurableDynamicSet<String> set : durable) {
+					try {
+						set.close();
+					}
+					catch (IOException e) {
+						System.out.println(RED + "Could not save the last changes:  " + e.getMessage() + RESET);
+					}
+				}
+			}
+		});
+		if (bst.size() == 0) {
+			return false;
+		}
+		array = new String[bst.size()];
+		Cursor<String> cursor = bst.cursor(null, null);
+		for (int i = 0; cursor.next(); i++) {
+			array[i] = cursor.key();
+		}
+		size = array.length;
+		pickRandomValues();
+		System.out.printf(GREEN + "Recovered %d keys from %s in %.1f ms" + RESET + "\n", size, directory, (System.nanoTime() - start) / 1e6);
+		return true;
+	}
+	
+	/**
+	 * Picks the random values that runtest looks up from the input array.
+	 */
+	static void pickRandomValues() {
+		for (int i = 0; i < 10; i++) {
+			int random = new Random().nextInt(array.length);
+			randomValues[i] = array[random];
+		}
 	}
 	
 	/**
@@ -250,51 +390,31 @@ public class UserDriver {
 			return "quit";
 		}
 		File file = new File(fileName);
-		int index = 0;
 		try {
-			//create an array based on the file name
-			if (fileName.matches(".*100\\.txt")) {
-				size = 100;
-				array = new String[100];
-			}
-			else if(fileName.matches(".*1000\\.txt")) {
-				size = 1000;
-				array = new String[1000];
-			}
-			else if(fileName.matches(".*10000\\.txt")) {
-				size = 10000;
-				array = new String[10000];
-			}
-			else if(fileName.matches(".*100000\\.txt")) {
-				size = 100000;
-				array = new String[100000];
-			}
-			else if(fileName.matches(".*1000000\\.txt")) {
-				size = 1000000;
-				array = new String[1000000];
+			array = WordFileLoader.readWords(file, false);
+			size = array.length;
+			if (size == 0) {
+				System.out.println(RED + "The file has no words.  Please try again.");
+				return "error";
 			}
 			
-			BufferedReader br = new BufferedReader(new FileReader(file));
-			
-			//read file in line by line
-			Scanner fileReader = new Scanner(br);
-			fileReader.useDelimiter("(\n)");
-			
-			while (fileReader.hasNext()) {
-				array[index] = fileReader.next();
-				index++;
-			}
-			fileReader.close();
+			//build the sets directly from the words instead of one insert at a time
+			long start = System.nanoTime();
+			bst.bulkLoad(array, false);
+			dll.bulkLoad(array, false);
+			skip.bulkLoad(array, false);
+			System.out.printf(GREEN + "Loaded %d keys in %.1f ms" + RESET + "\n", bst.size(), (System.nanoTime() - start) / 1e6);
 			//generate an array of random strings
-			for (int i = 0; i < 10; i++) {
-				int random = new Random().nextInt(array.length);
-				randomValues[i] = array[random];
-			}
+			pickRandomValues();
 			return "continue";
 		}
 		catch (FileNotFoundException e) {
 			System.out.println(RED + "File not found.  Please try again.");
 			return "error";
 		}
+		catch (IOException e) {
+			System.out.println(RED + "Could not read the file:  " + e.getMessage());
+			return "error";
+		}
 	}
 }
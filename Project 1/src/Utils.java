@@ -24,6 +24,17 @@
  * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
 /** 
  * Allows the user to run tests on the three data structures at one time.
  * Also supports individual operations on the data structures.
@@ -42,15 +53,9 @@ public class Utils<Type> {
 	 * The Enum Command: used to emulate a switch on the inputs.
 	 */
 	public enum Command{
-		runtest, insert, search, delete, pred, succ, min, max, loadNew, quit;
+		runtest, parallel, csv, insert, search, delete, pred, succ, min, max, loadNew, quit;
 	}
 	
-	/*used for the compareValue method*/
-	
-	public static final int GREATER = 1;
-	public static final int LESSER = 2;
-	public static final int EQUAL = 3;
-	
 	//These are used to determine the operations for runtest
 	public static final int INSERT = 4;
 	public static final int SUCCESSOR = 5;
@@ -59,40 +64,316 @@ public class Utils<Type> {
 	public static final int MINIMUM = 8;
 	public static final int MAXIMUM = 9;
 	
+	/** The names of the operations in a runtest row. */
+	public static final String[] OPERATIONS = {"insert", "search", "predecessor", "successor", "minimum", "maximum"};
+	
+	/** Counts the bytes each thread allocates, or null if this JVM cannot. */
+	public static final com.sun.management.ThreadMXBean THREADS = threads();
+	
+	/** The most full collections to run while waiting for the heap to settle. */
+	public static final int SETTLE_ROUNDS = 4;
+	
+	/**
+	 * Orders strings by code point, which is the order of their UTF-8 bytes.
+	 * It matches natural String order unless a key has characters outside the
+	 * Basic Multilingual Plane.
+	 */
+	public static final Comparator<String> CODE_POINT_ORDER = new Comparator<String>() {
+		public int compare(String a, String b) {
+			int i = 0;
+			int j = 0;
+			while (i < a.length() && j < b.length()) {
+				int ca = a.codePointAt(i);
+				int cb = b.codePointAt(j);
+				if (ca != cb) {
+					return (ca < cb) ? -1 : 1;
+				}
+				i += Character.charCount(ca);
+				j += Character.charCount(cb);
+			}
+			if (i < a.length()) {
+				return 1;
+			}
+			return (j < b.length()) ? -1 : 0;
+		}
+	};
+	
+	/**
+	 * Gets the comparator a set should use.
+	 *
+	 * @param <Type> the generic type
+	 * @param comparator The comparator the caller asked for, or null
+	 * @return The comparator, or the keys' natural order if it was null
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public static <Type> Comparator<? super Type> orNatural(Comparator<? super Type> comparator) {
+		if (comparator != null) {
+			return comparator;
+		}
+		return (Comparator) Comparator.naturalOrder();
+	}
+	
+	/**
+	 * Folds the case of a word so that plain String order is case-insensitive.
+	 *
+	 * @param word The word
+	 * @return The folded word
+	 */
+	public static String fold(String word) {
+		return word.toLowerCase(Locale.ROOT);
+	}
+	
+	/**
+	 * Folds case for the sets that take a fold, e.g. new BTree<String>(null,
+	 * Utils.FOLD_CASE).  Such a set folds each key once as it goes in, keeps
+	 * the folded form next to the original, and compares folded forms, so it
+	 * is case-insensitive and still hands back every key as it was inserted.
+	 */
+	public static final UnaryOperator<String> FOLD_CASE = new UnaryOperator<String>() {
+		public String apply(String word) {
+			return fold(word);
+		}
+	};
+	
+	/**
+	 * Gets the order of a set's keys when it compares their folded forms.
+	 * Each comparison folds both keys, so the sets only hand this out from
+	 * getComparator and use the comparator on stored folded forms themselves.
+	 *
+	 * @param <Type> the generic type
+	 * @param comparator The order of the folded forms
+	 * @param fold The fold, or null for none
+	 * @return The order of the keys
+	 */
+	public static <Type> Comparator<? super Type> foldedOrder(final Comparator<? super Type> comparator, final UnaryOperator<Type> fold) {
+		if (fold == null) {
+			return comparator;
+		}
+		return new Comparator<Type>() {
+			public int compare(Type a, Type b) {
+				return comparator.compare(fold.apply(a), fold.apply(b));
+			}
+		};
+	}
+	
+	/**
+	 * Gets the key to stop a cursor before when listing every word that
+	 * starts with a prefix, e.g. set.cursor(prefix, Utils.prefixEnd(prefix)).
+	 *
+	 * @param prefix The prefix
+	 * @return The smallest string greater than every word with the prefix,
+	 *         or null if there is none and the scan should run to the end
+	 */
+	public static String prefixEnd(String prefix) {
+		int end = prefix.length();
+		while (end > 0 && prefix.charAt(end - 1) == Character.MAX_VALUE) {
+			end--;
+		}
+		if (end == 0) {
+			return null;
+		}
+		return prefix.substring(0, end - 1) + (char) (prefix.charAt(end - 1) + 1);
+	}
+	
+	/**
+	 * Gets a sorted copy of the keys for a bulk load, with duplicates removed.
+	 *
+	 * @param <Type> the generic type
+	 * @param keys The keys
+	 * @param presorted True if the caller says the keys are already in order
+	 * @param comparator The order of the keys
+	 * @return The sorted, distinct keys
+	 */
+	public static <Type> Type[] sortedKeys(Type[] keys, boolean presorted, Comparator<? super Type> comparator) {
+		Type[] sorted = Arrays.copyOf(keys, keys.length);
+		if (!presorted || !isSorted(sorted, comparator)) {
+			Arrays.sort(sorted, comparator);
+		}
+		int count = 0;
+		for (int i = 0; i < sorted.length; i++) {
+			if (count == 0 || comparator.compare(sorted[count - 1], sorted[i]) != 0) {
+				sorted[count++] = sorted[i];
+			}
+		}
+		return (count == sorted.length) ? sorted : Arrays.copyOf(sorted, count);
+	}
+	
+	/**
+	 * Gets the keys for a bulk load into a set that compares folded forms.
+	 * Each key is folded once, the keys are put in the order of their folded
+	 * forms, and of the keys that fold alike only the first is kept.
+	 *
+	 * @param <Type> the generic type
+	 * @param keys The keys
+	 * @param presorted True if the caller says the keys are already in order
+	 * @param comparator The order of the folded forms
+	 * @param fold The fold, or null for none
+	 * @return The sorted, distinct keys, then their folded forms at the same positions
+	 */
+	public static <Type> Type[][] sortedKeys(Type[] keys, boolean presorted, final Comparator<? super Type> comparator, UnaryOperator<Type> fold) {
+		@SuppressWarnings("unchecked")
+		Type[][] pair = (Type[][]) Array.newInstance(keys.getClass(), 2);
+		if (fold == null) {
+			pair[0] = pair[1] = sortedKeys(keys, presorted, comparator);
+			return pair;
+		}
+		Type[] sorted = Arrays.copyOf(keys, keys.length);
+		final Type[] folded = Arrays.copyOf(keys, keys.length);
+		for (int i = 0; i < keys.length; i++) {
+			folded[i] = fold.apply(keys[i]);
+		}
+		if (!presorted || !isSorted(folded, comparator)) {
+			Integer[] order = new Integer[keys.length];
+			for (int i = 0; i < order.length; i++) {
+				order[i] = i;
+			}
+			//stable, so the first of the keys that fold alike stays first
+			Arrays.sort(order, new Comparator<Integer>() {
+				public int compare(Integer a, Integer b) {
+					return comparator.compare(folded[a], folded[b]);
+				}
+			});
+			Type[] refolded = Arrays.copyOf(folded, folded.length);
+			for (int i = 0; i < order.length; i++) {
+				sorted[i] = keys[order[i]];
+				folded[i] = refolded[order[i]];
+			}
+		}
+		int count = 0;
+		for (int i = 0; i < sorted.length; i++) {
+			if (count == 0 || comparator.compare(folded[count - 1], folded[i]) != 0) {
+				sorted[count] = sorted[i];
+				folded[count++] = folded[i];
+			}
+		}
+		pair[0] = Arrays.copyOf(sorted, count);
+		pair[1] = Arrays.copyOf(folded, count);
+		return pair;
+	}
+	
+	/**
+	 * Gets a sorted copy of primitive keys for a bulk load, with duplicates
+	 * removed.
+	 *
+	 * @param keys The keys
+	 * @param presorted True if the caller says the keys are already in order
+	 * @return The sorted, distinct keys
+	 */
+	public static long[] sortedKeys(long[] keys, boolean presorted) {
+		long[] sorted = Arrays.copyOf(keys, keys.length);
+		boolean inOrder = presorted;
+		for (int i = 1; inOrder && i < sorted.length; i++) {
+			inOrder = sorted[i - 1] <= sorted[i];
+		}
+		if (!inOrder) {
+			Arrays.sort(sorted);
+		}
+		int count = 0;
+		for (int i = 0; i < sorted.length; i++) {
+			if (count == 0 || sorted[count - 1] != sorted[i]) {
+				sorted[count++] = sorted[i];
+			}
+		}
+		return (count == sorted.length) ? sorted : Arrays.copyOf(sorted, count);
+	}
+	
 	/**
-	 * Helper method that compares strings
+	 * Checks if the keys are in nondecreasing order.
 	 *
-	 * @param value The string
-	 * @param nodeValue The node value to be compared
-	 * @return The result of the comparison
+	 * @param <Type> the generic type
+	 * @param keys The keys
+	 * @param comparator The order of the keys
+	 * @return True, if is sorted
 	 */
-	public static int compareValue(String value, String nodeValue) {
-		int compare = (value.compareToIgnoreCase(nodeValue));
-		if (compare > 0) {
-			return GREATER;
+	public static <Type> boolean isSorted(Type[] keys, Comparator<? super Type> comparator) {
+		for (int i = 1; i < keys.length; i++) {
+			if (comparator.compare(keys[i - 1], keys[i]) > 0) {
+				return false;
+			}
 		}
-		else if (compare == 0) {
-			return EQUAL;
+		return true;
+	}
+	
+	/**
+	 * Gets the JVM's counter of the bytes each thread allocates.
+	 *
+	 * @return The counter, or null if this JVM has none or it is turned off
+	 */
+	static com.sun.management.ThreadMXBean threads() {
+		try {
+			java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+			if (threads instanceof com.sun.management.ThreadMXBean) {
+				com.sun.management.ThreadMXBean counter = (com.sun.management.ThreadMXBean) threads;
+				if (counter.isThreadAllocatedMemorySupported() && counter.isThreadAllocatedMemoryEnabled()) {
+					return counter;
+				}
+			}
+		}
+		catch (LinkageError e) {
+			//not a HotSpot JVM
 		}
-		return LESSER;
+		return null;
+	}
+	
+	/**
+	 * Gets the bytes the current thread has allocated so far.  Reading the
+	 * counter allocates nothing, so it can be read around every operation.
+	 *
+	 * @return The bytes, or 0 if they cannot be counted
+	 */
+	public static long allocatedBytes() {
+		return (THREADS == null) ? 0 : THREADS.getCurrentThreadAllocatedBytes();
+	}
+	
+	/**
+	 * Gets the heap in use once garbage collection has settled: full
+	 * collections are run until the heap stops shrinking.  The difference
+	 * of two readings is what was retained in between, as long as no other
+	 * thread was allocating.
+	 *
+	 * @return The bytes of heap in use
+	 */
+	public static long settledHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		long used = Long.MAX_VALUE;
+		for (int i = 0; i < SETTLE_ROUNDS; i++) {
+			System.gc();
+			long now = runtime.totalMemory() - runtime.freeMemory();
+			if (now >= used) {
+				break;
+			}
+			used = now;
+		}
+		return used;
+	}
+	
+	/**
+	 * Times each operation on a set into a histogram.
+	 *
+	 * @param set The set that is operated on
+	 * @param input The array to be used as input
+	 * @param operation The operation to be performed
+	 * @return The latencies in nanoseconds
+	 */
+	public static LatencyHistogram testSet(DynamicSet<String> set, String[] input, int operation) {
+		return testSet(set, input, operation, new LatencyHistogram());
 	}
 	
 	/**
-	 * Outputs the minimum, maximum and average times of the operations on a set.
+	 * Times each operation on a set into a histogram, along with the bytes
+	 * each one allocates.  The allocation counter is read outside the timed
+	 * span, so it does not add to the latencies.
 	 *
 	 * @param set The set that is operated on
 	 * @param input The array to be used as input
 	 * @param operation The operation to be performed
-	 * @return An array of times
-	 */
-	public static double[] testSet(DynamicSet<String> set, String[] input, int operation) {
-		double [] outputArray = new double [3];
-		double sum = 0;
-		double min = 1000000000000000000000000000.0;
-		double max = 0;
-		
+	 * @param histogram The histogram to record into
+	 * @return The histogram
+	 */
+	public static LatencyHistogram testSet(DynamicSet<String> set, String[] input, int operation, LatencyHistogram histogram) {
 		for (String word: input) {
-			double start = System.nanoTime();
+			long allocated = allocatedBytes();
+			long start = System.nanoTime();
 			//operation is based on input
 			switch (operation) {
 				case INSERT: set.insert(word,null); break; 
@@ -100,40 +381,39 @@ public class Utils<Type> {
 				case SUCCESSOR: set.successor(word); break;
 				case PREDECESSOR: set.predecessor(word); break;
 			}
-			
-			double end = System.nanoTime();
-			double time = end - start;
-			if (time < min) {
-				min = time;
-			}
-			if (time > max) {
-				max = time;
+			histogram.record(System.nanoTime() - start);
+			if (THREADS != null) {
+				histogram.recordAllocation(allocatedBytes() - allocated);
 			}
-			sum = sum + time;
 		}
-		outputArray[0] = min;
-		outputArray[1] = max;
-		outputArray[2] = sum/input.length;
-		return outputArray;
+		return histogram;
 	}
 	
 	/**
-	 * Tests the the time it takes to get the minimum or the maximum value of a set
+	 * Times getting the minimum or the maximum value of a set into a histogram.
 	 *
 	 * @param set The set to be operated on
 	 * @param operation The operation to be performed
-	 * @return The time it takes for the operation to be completed
+	 * @param times The number of times to do it
+	 * @return The latencies in nanoseconds
 	 */
-	public static double testMinMax(DynamicSet<String> set, int operation) {
-		double start = System.nanoTime();
-		if (operation == MINIMUM) {
-			set.minimum();
-		}
-		if (operation == MAXIMUM) {
-			set.maximum();
+	public static LatencyHistogram testMinMax(DynamicSet<String> set, int operation, int times) {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 0; i < times; i++) {
+			long allocated = allocatedBytes();
+			long start = System.nanoTime();
+			if (operation == MINIMUM) {
+				set.minimum();
+			}
+			if (operation == MAXIMUM) {
+				set.maximum();
+			}
+			histogram.record(System.nanoTime() - start);
+			if (THREADS != null) {
+				histogram.recordAllocation(allocatedBytes() - allocated);
+			}
 		}
-		double end = System.nanoTime();
-		return end - start;
+		return histogram;
 	}
 	
 	/**
@@ -156,48 +436,112 @@ public class Utils<Type> {
 	 * Prints the divider for the runtest table.
 	 */
 	public static void printDivider() {
-		for(int i = 0; i < 154; i++) {
+		for(int i = 0; i < 145; i++) {
 			System.out.print("-");
 		}
 		System.out.println("");
 	}
 	
 	/**
-	 * Prints a cell of the runtest table.
+	 * Prints the header of the runtest table.
+	 */
+	public static void printHeader() {
+		printDivider();
+		System.out.printf("%-15s| %-12s|", "", "Operation");
+		for (double percentile : LatencyHistogram.REPORTED) {
+			System.out.printf(" %9s |", "p" + (percentile == (long) percentile ? String.valueOf((long) percentile) : String.valueOf(percentile)));
+		}
+		System.out.printf(" %9s |", "max");
+		System.out.printf(" %9s | %9s | %11s | %9s |\n", "B/op", "alloc ops", "retained B", "B/key");
+		printDivider();
+	}
+	
+	/**
+	 * Prints a cell of the runtest table: the percentiles, the maximum, the
+	 * bytes allocated per operation and how many operations allocated, and
+	 * the set's retained heap if it was measured after this operation.
 	 *
-	 * @param input The array of values to be printed.
+	 * @param input The latencies of one operation
 	 */
-	public static void printCell(double[] input) {
-		System.out.printf("%-4.2e/%-4.2e/%-4.2e", input[0], input[1], input[2]);
+	public static void printCell(LatencyHistogram input) {
+		for (double percentile : LatencyHistogram.REPORTED) {
+			System.out.printf(" %9d |", input.getValueAtPercentile(percentile));
+		}
+		System.out.printf(" %9d |", input.getMax());
+		if (input.getAllocatingCount() < 0) {
+			System.out.printf(" %9s | %9s |", "-", "-");
+		}
+		else {
+			System.out.printf(" %9.1f | %9d |", input.getBytesPerOperation(), input.getAllocatingCount());
+		}
+		if (input.getRetainedBytes() < 0) {
+			System.out.printf(" %11s | %9s |", "", "");
+		}
+		else {
+			System.out.printf(" %11d | %9.1f |", input.getRetainedBytes(), input.getBytesPerKey());
+		}
 	}
 	
 	/**
-	 * Prints the row of the runtest table.
+	 * Times every runtest operation on a set.  If asked, the heap is also
+	 * settled before and after the inserts, and what the set retained is
+	 * recorded on the insert histogram.  That reading is only meaningful if
+	 * no other thread allocates meanwhile, so parallel runs skip it.
 	 *
 	 * @param set the set
 	 * @param array the array
 	 * @param randomValues the random values
+	 * @param retained True to measure the heap the set retains after loading
+	 * @return The latencies of each operation, in the order of OPERATIONS
+	 */
+	public static LatencyHistogram[] testRow(DynamicSet<String> set, String[] array, String[] randomValues, boolean retained) {
+		LatencyHistogram[] row = new LatencyHistogram[OPERATIONS.length];
+		row[0] = new LatencyHistogram();
+		long before = retained ? settledHeap() : 0;
+		testSet(set, array, Utils.INSERT, row[0]);
+		if (retained) {
+			row[0].setRetained(settledHeap() - before, set.size());
+		}
+		row[1] = testSet(set, randomValues, Utils.SEARCH);
+		row[2] = testSet(set, randomValues, Utils.PREDECESSOR);
+		row[3] = testSet(set, randomValues, Utils.SUCCESSOR);
+		row[4] = testMinMax(set, Utils.MINIMUM, randomValues.length);
+		row[5] = testMinMax(set, Utils.MAXIMUM, randomValues.length);
+		return row;
+	}
+	
+	/**
+	 * Prints the rows of the runtest table for one set, one per operation,
+	 * with latencies in nanoseconds.
+	 *
+	 * @param label The name of the set
+	 * @param row The latencies of each operation, in the order of OPERATIONS
 	 */
-	public static void printRow(DynamicSet<String> set, String[] array, String[] randomValues) {
-		double[] insert = testSet(set, array, Utils.INSERT);
-		double[] search = testSet(set, randomValues, Utils.SEARCH);
-		double[] pred = testSet(set, randomValues, Utils.PREDECESSOR);
-		double[] succ = testSet(set, randomValues, Utils.SUCCESSOR);
-		double min = testMinMax(set, Utils.MINIMUM);
-		double max = testMinMax(set, Utils.MAXIMUM);
-		
-		printCell(insert);
-		System.out.print(" | ");
-		printCell(search);
-		System.out.print(" | ");
-		printCell(pred);
-		System.out.print(" | ");
-		printCell(succ);
-		System.out.print(" | ");
-		System.out.printf("%-4.2e", min);
-		System.out.print(" | ");
-		System.out.printf("%-4.2e", max);
-		System.out.print(" | \n");
+	public static void printRow(String label, LatencyHistogram[] row) {
+		for (int i = 0; i < row.length; i++) {
+			System.out.printf("%-15s| %-12s|", (i == 0) ? label : "", OPERATIONS[i]);
+			printCell(row[i]);
+			System.out.println();
+		}
 		printDivider();
 	}
+	
+	/**
+	 * Writes the full latency distributions of a runtest to a CSV file, with
+	 * the memory columns of each operation repeated on its rows.
+	 *
+	 * @param results The latencies of each set, by name
+	 * @param file The file to write
+	 * @throws FileNotFoundException if the file cannot be created
+	 */
+	public static void writeCsv(Map<String, LatencyHistogram[]> results, File file) throws FileNotFoundException {
+		PrintWriter out = new PrintWriter(file);
+		out.println("structure,operation,low_ns,high_ns,count,cumulative,bytes_per_op,allocating_ops,retained_bytes,bytes_per_key");
+		for (Map.Entry<String, LatencyHistogram[]> entry : results.entrySet()) {
+			for (int i = 0; i < OPERATIONS.length; i++) {
+				entry.getValue()[i].writeCsv(out, entry.getKey() + "," + OPERATIONS[i]);
+			}
+		}
+		out.close();
+	}
 }
@@ -0,0 +1,178 @@
+
+
+/*
+ * Copyright (c) 2013, Erika Nana
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of Project 1 nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY Erika Nana ''AS IS'' AND ANY
+ * EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL Erika Nana BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads word files, one word per line, through memory-mapped windows of
+ * the file.  Lines are split by scanning for newline bytes rather than with
+ * a regex, carriage returns and empty lines are dropped, and nothing about
+ * the file has to be known in advance: the word array grows as it fills.
+ *
+ * @author Erika Nana
+ */
+public class WordFileLoader {
+	
+	/** The size of the window of the file mapped at a time. */
+	static final int WINDOW_SIZE = 1 << 26;
+	
+	/**
+	 * Receives the words of a file one at a time.
+	 */
+	private interface WordSink {
+		
+		/**
+		 * Takes a word.
+		 *
+		 * @param word The word
+		 */
+		void word(String word);
+	}
+	
+	/**
+	 * Reads every word of a file into an array.
+	 *
+	 * @param file The file
+	 * @param fold True to fold the case of each word with Utils.fold
+	 * @return The words, in file order
+	 * @throws IOException if the file cannot be read
+	 */
+	public static String[] readWords(File file, final boolean fold) throws IOException {
+		final String[][] words = { new String[1024] };
+		final int[] count = { 0 };
+		read(file, new WordSink() {
+			public void word(String word) {
+				if (count[0] == words[0].length) {
+					words[0] = Arrays.copyOf(words[0], count[0] * 2);
+				}
+				words[0][count[0]++] = fold ? Utils.fold(word) : word;
+			}
+		});
+		return Arrays.copyOf(words[0], count[0]);
+	}
+	
+	/**
+	 * Inserts every word of a file straight into a set, without holding the
+	 * words in an array first.
+	 *
+	 * @param file The file
+	 * @param set The set
+	 * @param fold True to fold the case of each word with Utils.fold
+	 * @return The number of words read, counting repeats
+	 * @throws IOException if the file cannot be read
+	 */
+	public static long streamWords(File file, final DynamicSet<String> set, final boolean fold) throws IOException {
+		final long[] count = { 0 };
+		read(file, new WordSink() {
+			public void word(String word) {
+				set.insert(fold ? Utils.fold(word) : word, null);
+				count[0]++;
+			}
+		});
+		return count[0];
+	}
+	
+	/**
+	 * Maps the file a window at a time and hands each line to a sink.  A
+	 * window ends after its last newline, so no line is split between two
+	 * windows; a window with no newline at all is doubled until it has one.
+	 *
+	 * @param file The file
+	 * @param sink Where the words go
+	 * @throws IOException if the file cannot be read
+	 */
+	private static void read(File file, WordSink sink) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			long length = channel.size();
+			long position = 0;
+			int window = WINDOW_SIZE;
+			byte[] line = new byte[256];
+			while (position < length) {
+				int size = (int) Math.min(window, length - position);
+				boolean last = position + size == length;
+				MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+				
+				int start = 0;
+				for (int i = 0; i < size; i++) {
+					if (map.get(i) == '\n') {
+						line = emit(map, start, i, line, sink);
+						start = i + 1;
+					}
+				}
+				if (last && start < size) { //the file does not end with a newline
+					line = emit(map, start, size, line, sink);
+					start = size;
+				}
+				if (start == 0 && !last) {
+					window = (int) Math.min(Integer.MAX_VALUE, (long) window * 2);
+					continue;
+				}
+				position += start;
+			}
+		}
+		finally {
+			raf.close();
+		}
+	}
+	
+	/**
+	 * Decodes one line and hands it to the sink, unless it is empty.
+	 *
+	 * @param map The mapped window
+	 * @param start Where the line starts
+	 * @param end Where the newline is
+	 * @param line A buffer for the line's bytes
+	 * @param sink Where the word goes
+	 * @return The buffer, grown if the line did not fit
+	 */
+	private static byte[] emit(MappedByteBuffer map, int start, int end, byte[] line, WordSink sink) {
+		if (end > start && map.get(end - 1) == '\r') {
+			end--;
+		}
+		int length = end - start;
+		if (length == 0) {
+			return line;
+		}
+		if (length > line.length) {
+			line = new byte[Math.max(length, line.length * 2)];
+		}
+		for (int i = 0; i < length; i++) {
+			line[i] = map.get(start + i);
+		}
+		sink.word(new String(line, 0, length, StandardCharsets.UTF_8));
+		return line;
+	}
+}